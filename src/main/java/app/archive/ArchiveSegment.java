@@ -0,0 +1,191 @@
+package app.archive;
+
+import app.model.Notification;
+import app.model.NotificationPriority;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A complete, read-only archive segment written by {@link ArchiveSegmentWriter}. The file is memory-mapped once and
+ * the sparse index is kept on the heap; a read binary-searches the index for the first block that can hold the user's
+ * rows and inflates blocks until it passes the user or the end of the range. Only the touched blocks are paged in.
+ * <p>
+ * Keys compare user ids as unsigned bytes, the order MySQL and H2 sort binary(16) columns in.
+ */
+final class ArchiveSegment {
+
+    // rows without a user are stored under the lowest key and read back as null
+    private static final UUID NO_USER = new UUID(0, 0);
+
+    private final MappedByteBuffer buffer;
+    private final List<IndexEntry> index;
+
+    private ArchiveSegment(MappedByteBuffer buffer, List<IndexEntry> index) {
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            int footer = buffer.limit() - ArchiveSegmentWriter.FOOTER_BYTES;
+            if (footer < 0 || buffer.getInt(footer + Long.BYTES) != ArchiveSegmentWriter.MAGIC) {
+                throw new IOException(String.format("Archive segment %s is incomplete or corrupt.", path));
+            }
+
+            ByteBuffer indexBuffer = buffer.slice((int) buffer.getLong(footer), footer - (int) buffer.getLong(footer));
+            int count = indexBuffer.getInt();
+            List<IndexEntry> index = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                UUID userId = new UUID(indexBuffer.getLong(), indexBuffer.getLong());
+                LocalDateTime createdOn = LocalDateTime.ofEpochSecond(indexBuffer.getLong(), indexBuffer.getInt(), ZoneOffset.UTC);
+                index.add(new IndexEntry(userId, createdOn, indexBuffer.getLong(), indexBuffer.getInt()));
+            }
+            return new ArchiveSegment(buffer, index);
+        }
+    }
+
+    // The user's rows created in [from, to), oldest first.
+    List<Notification> read(UUID userId, LocalDateTime from, LocalDateTime to) throws IOException {
+
+        UUID key = userKey(userId);
+        List<Notification> rows = new ArrayList<>();
+
+        for (int block = firstBlock(key, from); block < index.size(); block++) {
+            IndexEntry entry = index.get(block);
+            if (compare(entry.userId(), entry.createdOn(), key, to) >= 0) {
+                // the block starts at or after the end of the range
+                break;
+            }
+
+            for (Notification row : inflate(entry)) {
+                UUID rowUser = userKey(row.getUserId());
+                if (rowUser.equals(key) && !row.getCreatedOn().isBefore(from) && row.getCreatedOn().isBefore(to)) {
+                    rows.add(row);
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    int getBlockCount() {
+        return index.size();
+    }
+
+    // the last block whose first key is not after (userId, from) - earlier blocks end before the range
+    private int firstBlock(UUID userId, LocalDateTime from) {
+
+        int low = 0;
+        int high = index.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            IndexEntry entry = index.get(middle);
+            if (compare(entry.userId(), entry.createdOn(), userId, from) <= 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private List<Notification> inflate(IndexEntry entry) throws IOException {
+
+        ByteBuffer block = buffer.slice((int) entry.offset(), entry.length());
+        byte[] raw = new byte[block.getInt()];
+        int compressedLength = block.getInt();
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block.slice(block.position(), compressedLength));
+            int inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                inflated += inflater.inflate(raw, inflated, raw.length - inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Archive block at offset " + entry.offset() + " is corrupt.", e);
+        } finally {
+            inflater.end();
+        }
+
+        List<Notification> rows = new ArrayList<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        while (in.available() > 0) {
+            rows.add(readRow(in));
+        }
+        return rows;
+    }
+
+    private static Notification readRow(DataInputStream in) throws IOException {
+
+        UUID id = new UUID(in.readLong(), in.readLong());
+        UUID userId = new UUID(in.readLong(), in.readLong());
+        LocalDateTime createdOn = readDateTime(in);
+        NotificationStatus status = NotificationStatus.valueOf(in.readUTF());
+        int type = in.readByte();
+        String priority = readNullable(in);
+
+        return Notification.builder()
+                .id(id)
+                .userId(NO_USER.equals(userId) ? null : userId)
+                .createdOn(createdOn)
+                .status(status)
+                .type(type < 0 ? null : NotificationType.values()[type])
+                .priority(priority == null ? null : NotificationPriority.valueOf(priority))
+                .attempts(in.readInt())
+                .isDeleted(in.readBoolean())
+                .subject(in.readUTF())
+                .body(in.readUTF())
+                .failureClass(readNullable(in))
+                .failureReason(readNullable(in))
+                .sendAt(in.readBoolean() ? readDateTime(in) : null)
+                .lastAttemptOn(in.readBoolean() ? readDateTime(in) : null)
+                .build();
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    static UUID userKey(UUID userId) {
+        return userId == null ? NO_USER : userId;
+    }
+
+    static int compare(UUID userId, LocalDateTime createdOn, UUID otherUserId, LocalDateTime otherCreatedOn) {
+
+        int byUser = Long.compareUnsigned(userId.getMostSignificantBits(), otherUserId.getMostSignificantBits());
+        if (byUser == 0) {
+            byUser = Long.compareUnsigned(userId.getLeastSignificantBits(), otherUserId.getLeastSignificantBits());
+        }
+        return byUser != 0 ? byUser : createdOn.compareTo(otherCreatedOn);
+    }
+
+    record IndexEntry(UUID userId, LocalDateTime createdOn, long offset, int length) {
+    }
+}
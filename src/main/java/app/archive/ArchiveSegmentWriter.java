@@ -0,0 +1,172 @@
+package app.archive;
+
+import app.model.Notification;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+/**
+ * Writes one archive segment: rows sorted by user and createdOn, packed into deflated blocks of a fixed number of
+ * rows, followed by a sparse index with the first key and the position of every block and a fixed-size footer.
+ * <pre>
+ * block*  = rawLength:int compressedLength:int deflated rows
+ * index   = count:int (userMsb:long userLsb:long epochSecond:long nano:int offset:long length:int)*
+ * footer  = indexOffset:long magic:int
+ * </pre>
+ */
+final class ArchiveSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x4E415243;
+    static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final int blockRows;
+
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final DataOutputStream blockOut = new DataOutputStream(block);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final List<ArchiveSegment.IndexEntry> index = new ArrayList<>();
+
+    private int rowsInBlock;
+    private UUID blockUserId;
+    private LocalDateTime blockCreatedOn;
+    private long position;
+    private long rows;
+
+    ArchiveSegmentWriter(Path path, int blockRows) throws IOException {
+        this.file = new FileOutputStream(path.toFile());
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        this.blockRows = blockRows;
+    }
+
+    // Rows have to come in (userId, createdOn) order, the index relies on it.
+    void append(Notification notification) throws IOException {
+
+        if (rowsInBlock == 0) {
+            blockUserId = ArchiveSegment.userKey(notification.getUserId());
+            blockCreatedOn = notification.getCreatedOn();
+        }
+
+        writeRow(blockOut, notification);
+        rows++;
+        if (++rowsInBlock == blockRows) {
+            flushBlock();
+        }
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    // Writes the index and the footer and forces everything to disk; the segment is complete afterwards.
+    void finish() throws IOException {
+
+        if (rowsInBlock > 0) {
+            flushBlock();
+        }
+
+        long indexOffset = position;
+        out.writeInt(index.size());
+        for (ArchiveSegment.IndexEntry entry : index) {
+            out.writeLong(entry.userId().getMostSignificantBits());
+            out.writeLong(entry.userId().getLeastSignificantBits());
+            writeDateTime(out, entry.createdOn());
+            out.writeLong(entry.offset());
+            out.writeInt(entry.length());
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(MAGIC);
+        out.flush();
+        file.getChannel().force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+
+        byte[] raw = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] chunk = new byte[8 * 1024];
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+
+        int length = 2 * Integer.BYTES + compressed.size();
+        out.writeInt(raw.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+
+        index.add(new ArchiveSegment.IndexEntry(blockUserId, blockCreatedOn, position, length));
+        position += length;
+        if (position > Integer.MAX_VALUE) {
+            // one segment is one mapping, and a mapping is at most 2 GB
+            throw new IOException("Archive segment is larger than 2 GB.");
+        }
+        block.reset();
+        rowsInBlock = 0;
+    }
+
+    private static void writeRow(DataOutputStream out, Notification notification) throws IOException {
+
+        UUID userId = ArchiveSegment.userKey(notification.getUserId());
+        out.writeLong(notification.getId().getMostSignificantBits());
+        out.writeLong(notification.getId().getLeastSignificantBits());
+        out.writeLong(userId.getMostSignificantBits());
+        out.writeLong(userId.getLeastSignificantBits());
+        writeDateTime(out, notification.getCreatedOn());
+        out.writeUTF(notification.getStatus().name());
+        out.writeByte(notification.getType() == null ? -1 : notification.getType().ordinal());
+        writeNullable(out, notification.getPriority() == null ? null : notification.getPriority().name());
+        out.writeInt(notification.getAttempts());
+        // as of archiving; clears after that are tombstones applied by NotificationArchive.read
+        out.writeBoolean(notification.isDeleted());
+        out.writeUTF(notification.getSubject());
+        out.writeUTF(notification.getBody());
+        writeNullable(out, notification.getFailureClass());
+        writeNullable(out, notification.getFailureReason());
+        writeNullableDateTime(out, notification.getSendAt());
+        writeNullableDateTime(out, notification.getLastAttemptOn());
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void writeNullableDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeDateTime(out, value);
+        }
+    }
+
+    // only an encoding - the values are read back as the same local date-time
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+}
@@ -0,0 +1,228 @@
+package app.archive;
+
+import app.model.Notification;
+import app.repository.JdbcKeys;
+import app.retention.NotificationRetention;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for notifications that are too old for the hot table: one immutable segment file per month of
+ * createdOn, written by {@link NotificationArchiver} and read through memory mapping.
+ * <p>
+ * Months are archived oldest first, so everything before the end of the newest segment is archived. Each instance
+ * archives to its own directory but partitions are dropped for all of them, so every instance records that point in
+ * archive_watermark under the id kept in its directory, and retention only drops partitions before the lowest one.
+ * That keeps every row in the table, each archive, or both.
+ * <p>
+ * The watermark is refreshed on a heartbeat, and an instance not seen for {@code stale-after} no longer counts, so a
+ * replaced instance or a lost directory does not hold drops forever. Neither does an instance that has archived
+ * nothing yet: a new instance, or one whose directory was wiped, archives from the oldest month still in the table and
+ * cannot serve history older than that; ranges reaching further back only come from the instances that archived it.
+ * <p>
+ * Segments are immutable and keep isDeleted as it was when the month was archived. Clearing the history records a
+ * tombstone instead, and reads skip the archived rows created before it.
+ */
+@Slf4j
+@Component
+public class NotificationArchive {
+
+    private static final String SUFFIX = ".seg";
+    private static final String INSTANCE_ID_FILE = "instance-id";
+
+    // MySQL syntax, also understood by H2 in MySQL mode
+    private static final String PUBLISH = "INSERT INTO archive_watermark (instance_id, archived_until, last_seen_on) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE archived_until = VALUES(archived_until), last_seen_on = VALUES(last_seen_on)";
+    // instances that have archived nothing are skipped by MIN; null while no live instance has archived anything
+    private static final String SHARED = "SELECT MIN(archived_until) FROM archive_watermark WHERE last_seen_on >= ?";
+    private static final String CLEAR = "INSERT INTO notification_tombstone (user_id, cleared_before) VALUES (?, ?) ON DUPLICATE KEY UPDATE cleared_before = GREATEST(cleared_before, VALUES(cleared_before))";
+    private static final String CLEARED_BEFORE = "SELECT cleared_before FROM notification_tombstone WHERE user_id = ?";
+
+    private final NotificationRetention retention;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int blockRows;
+    private final Duration staleAfter;
+    private final String instanceId;
+
+    private final NavigableSet<YearMonth> months = new ConcurrentSkipListSet<>();
+    private final Map<YearMonth, ArchiveSegment> openSegments = new ConcurrentHashMap<>();
+
+    @Autowired
+    public NotificationArchive(NotificationRetention retention,
+                               JdbcTemplate jdbcTemplate,
+                               @Value("${notification.archive.enabled:false}") boolean enabled,
+                               @Value("${notification.archive.directory:archive}") String directory,
+                               @Value("${notification.archive.block-rows:256}") int blockRows,
+                               @Value("${notification.archive.stale-after:1h}") Duration staleAfter) throws IOException {
+        this.retention = retention;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.blockRows = blockRows;
+        this.staleAfter = staleAfter;
+
+        if (enabled && Files.isDirectory(this.directory)) {
+            try (Stream<Path> files = Files.list(this.directory)) {
+                files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.startsWith("notifications-") && name.endsWith(SUFFIX))
+                        .map(name -> YearMonth.parse(name.substring("notifications-".length(), name.length() - SUFFIX.length())))
+                        .forEach(months::add);
+            }
+            newestMonth().ifPresent(month -> retention.archivedUntil(month.plusMonths(1).atDay(1)));
+        }
+        this.instanceId = enabled ? instanceId(this.directory) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<YearMonth> newestMonth() {
+        return months.isEmpty() ? Optional.empty() : Optional.of(months.last());
+    }
+
+    // The lowest watermark of the instances seen within stale-after, this one included.
+    public LocalDate sharedArchivedUntil() {
+
+        publishWatermark();
+        return jdbcTemplate.queryForObject(SHARED, LocalDate.class, LocalDateTime.now().minus(staleAfter));
+    }
+
+    // Keeps this instance's watermark counted while it has nothing new to archive; must run well within stale-after.
+    @Scheduled(fixedDelayString = "${notification.archive.heartbeat-interval:5m}")
+    public void heartbeat() {
+
+        if (!enabled) {
+            return;
+        }
+        try {
+            publishWatermark();
+        } catch (DataAccessException e) {
+            log.warn("Could not refresh the archive watermark due to {}.", e.getMessage());
+        }
+    }
+
+    // Archived rows of the user created before the given time are no longer read.
+    public void recordCleared(UUID userId, LocalDateTime clearedBefore) {
+
+        if (enabled) {
+            jdbcTemplate.update(CLEAR, JdbcKeys.toBytes(userId), clearedBefore);
+        }
+    }
+
+    // The user's archived notifications created in [from, to), oldest first.
+    public List<Notification> read(UUID userId, LocalDateTime from, LocalDateTime to) {
+
+        if (months.isEmpty() || !from.isBefore(to)) {
+            return List.of();
+        }
+
+        LocalDateTime clearedBefore = jdbcTemplate.query(CLEARED_BEFORE,
+                resultSet -> resultSet.next() ? resultSet.getTimestamp(1).toLocalDateTime() : null, (Object) JdbcKeys.toBytes(userId));
+        if (clearedBefore != null && clearedBefore.isAfter(from)) {
+            from = clearedBefore;
+            if (!from.isBefore(to)) {
+                return List.of();
+            }
+        }
+
+        List<Notification> rows = new ArrayList<>();
+        for (YearMonth month : months.subSet(YearMonth.from(from), true, YearMonth.from(to), true)) {
+            try {
+                rows.addAll(segment(month).read(userId, from, to));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        rows.sort(Comparator.comparing(Notification::getCreatedOn));
+        return rows;
+    }
+
+    // Written to a temporary file and moved into place once complete, so a crash never leaves half a segment.
+    long write(YearMonth month, RowSource rows) throws IOException {
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName(month));
+        Path temporary = directory.resolve(fileName(month) + ".tmp");
+
+        long written;
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(temporary, blockRows)) {
+            rows.writeTo(writer);
+            writer.finish();
+            written = writer.getRows();
+        }
+
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        months.add(month);
+        openSegments.remove(month);
+        retention.archivedUntil(months.last().plusMonths(1).atDay(1));
+        publishWatermark();
+
+        log.info("Archived {} notifications created in {} to {}.", written, month, target);
+        return written;
+    }
+
+    private void publishWatermark() {
+        jdbcTemplate.update(PUBLISH, instanceId, newestMonth().map(month -> month.plusMonths(1).atDay(1)).orElse(null), LocalDateTime.now());
+    }
+
+    // Kept next to the segments, so the watermark stays with the archive it describes across restarts.
+    private static String instanceId(Path directory) throws IOException {
+
+        Path file = directory.resolve(INSTANCE_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file).trim();
+        }
+
+        Files.createDirectories(directory);
+        String instanceId = UUID.randomUUID().toString();
+        Files.writeString(file, instanceId);
+        return instanceId;
+    }
+
+    private ArchiveSegment segment(YearMonth month) throws IOException {
+
+        ArchiveSegment segment = openSegments.get(month);
+        if (segment == null) {
+            segment = ArchiveSegment.open(directory.resolve(fileName(month)));
+            openSegments.put(month, segment);
+        }
+        return segment;
+    }
+
+    private static String fileName(YearMonth month) {
+        return "notifications-" + month + SUFFIX;
+    }
+
+    @FunctionalInterface
+    interface RowSource {
+        void writeTo(ArchiveSegmentWriter writer) throws IOException;
+    }
+}
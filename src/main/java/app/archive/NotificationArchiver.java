@@ -0,0 +1,131 @@
+package app.archive;
+
+import app.model.Notification;
+import app.model.NotificationPriority;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import app.repository.JdbcKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.UUID;
+
+// Copies whole months of notifications into the archive once they are older than after-months. The rows stay in the
+// table until retention drops their partition.
+@Slf4j
+@Component
+public class NotificationArchiver {
+
+    private static final String SELECT_MONTH = """
+            SELECT id, user_id, created_on, status, type, priority, attempts, is_deleted, subject, body,
+                   failure_class, failure_reason, send_at, last_attempt_on
+            FROM notification WHERE created_on >= ? AND created_on < ?
+            ORDER BY user_id, created_on
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationArchive archive;
+    private final int afterMonths;
+
+    @Autowired
+    public NotificationArchiver(JdbcTemplate jdbcTemplate,
+                                NotificationArchive archive,
+                                @Value("${notification.archive.after-months:3}") int afterMonths) {
+        // streams a month instead of loading it; MySQL only honours the fetch size with useCursorFetch=true
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(1000);
+        this.archive = archive;
+        this.afterMonths = afterMonths;
+    }
+
+    // Runs before partition maintenance, so a month is archived by the time retention could drop it.
+    @Scheduled(cron = "${notification.archive.cron:0 0 3 * * *}")
+    public void runDaily() {
+
+        if (archive.isEnabled()) {
+            archiveBefore(YearMonth.from(LocalDate.now()).minusMonths(afterMonths));
+        }
+    }
+
+    // Archives every month before the given one that is not archived yet, oldest first. Returns the months written.
+    public int archiveBefore(YearMonth until) {
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_on) FROM notification", Timestamp.class);
+        if (oldest == null) {
+            return 0;
+        }
+
+        YearMonth month = YearMonth.from(oldest.toLocalDateTime());
+        YearMonth archivedUntil = archive.newestMonth().map(newest -> newest.plusMonths(1)).orElse(month);
+        if (archivedUntil.isAfter(month)) {
+            month = archivedUntil;
+        }
+
+        int archived = 0;
+        for (; month.isBefore(until); month = month.plusMonths(1)) {
+            try {
+                archiveMonth(month);
+                archived++;
+            } catch (IOException | UncheckedIOException e) {
+                // later months wait, archiving them would leave a gap the retention watermark cannot express
+                log.error("Archiving notifications created in {} failed due to {}.", month, e.getMessage());
+                break;
+            }
+        }
+        return archived;
+    }
+
+    private void archiveMonth(YearMonth month) throws IOException {
+
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        archive.write(month, writer -> jdbcTemplate.query(SELECT_MONTH, resultSet -> {
+            try {
+                writer.append(toNotification(resultSet));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, from, to));
+    }
+
+    private static Notification toNotification(ResultSet resultSet) throws SQLException {
+
+        int type = resultSet.getInt("type");
+        boolean typeIsNull = resultSet.wasNull();
+        String priority = resultSet.getString("priority");
+
+        return Notification.builder()
+                .id(JdbcKeys.toUuid(resultSet.getBytes("id")))
+                .userId(JdbcKeys.toUuid(resultSet.getBytes("user_id")))
+                .createdOn(toDateTime(resultSet.getTimestamp("created_on")))
+                .status(NotificationStatus.valueOf(resultSet.getString("status")))
+                .type(typeIsNull ? null : NotificationType.values()[type])
+                .priority(priority == null ? null : NotificationPriority.valueOf(priority))
+                .attempts(resultSet.getInt("attempts"))
+                .isDeleted(resultSet.getBoolean("is_deleted"))
+                .subject(resultSet.getString("subject"))
+                .body(resultSet.getString("body"))
+                .failureClass(resultSet.getString("failure_class"))
+                .failureReason(resultSet.getString("failure_reason"))
+                .sendAt(toDateTime(resultSet.getTimestamp("send_at")))
+                .lastAttemptOn(toDateTime(resultSet.getTimestamp("last_attempt_on")))
+                .build();
+    }
+
+    private static LocalDateTime toDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,216 @@
+package app.autoscale;
+
+import app.channel.ChannelRouter;
+import app.config.AutoscaleProperties;
+import app.mail.RelayRouter;
+import app.service.NotificationDispatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resizes the dispatcher and channel pools listed under notification.autoscale.pools from how far behind they are.
+ * Every interval each pool is sampled - queue depth, age of the oldest queued task, busy threads and tasks finished
+ * since the last sample - and its {@link ScalingPolicy} decides the new size. The dispatcher pool carries new sends
+ * as well as retries (recovery, dead-letter replay); the channel pools carry the sends themselves.
+ * <p>
+ * The email pool is held at its size while SMTP is slow: when the fastest relay answers slower than max-smtp-latency,
+ * the backlog is the relays', and more threads would only add to it. It also never grows past the sends the relays'
+ * adaptive concurrency limits allow together - threads beyond that only wait for a permit and then fail.
+ */
+@Slf4j
+@Component
+public class PoolAutoscaler {
+
+    static final String EMAIL_POOL = "email";
+
+    private final boolean enabled;
+    private final long maxSmtpLatencyNanos;
+    private final LongSupplier smtpLatencyNanos;
+    private final IntSupplier smtpConcurrencyLimit;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final List<ScaledPool> scaledPools = new ArrayList<>();
+
+    @Autowired
+    public PoolAutoscaler(NotificationDispatcher notificationDispatcher,
+                          ChannelRouter channelRouter,
+                          ObjectProvider<RelayRouter> relayRouter,
+                          AutoscaleProperties properties,
+                          MeterRegistry meterRegistry) {
+        this(Stream.concat(Stream.of(notificationDispatcher), channelRouter.getBulkheads().stream()).toList(),
+                () -> fastestRelayNanos(relayRouter.getIfAvailable()), () -> concurrencyLimit(relayRouter.getIfAvailable()),
+                properties, meterRegistry, System::nanoTime);
+    }
+
+    PoolAutoscaler(List<? extends ScalablePool> pools, LongSupplier smtpLatencyNanos, IntSupplier smtpConcurrencyLimit,
+                   AutoscaleProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = properties.isEnabled();
+        this.maxSmtpLatencyNanos = properties.getMaxSmtpLatency().toNanos();
+        this.smtpLatencyNanos = smtpLatencyNanos;
+        this.smtpConcurrencyLimit = smtpConcurrencyLimit;
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+
+        if (!enabled) {
+            return;
+        }
+
+        Map<String, AutoscaleProperties.Pool> settings = properties.getPools();
+        for (ScalablePool pool : pools) {
+            if (settings.containsKey(pool.getPoolName())) {
+                scaledPools.add(register(pool, new ScalingPolicy(settings.get(pool.getPoolName()))));
+            }
+        }
+
+        Set<String> known = pools.stream().map(ScalablePool::getPoolName).collect(Collectors.toSet());
+        settings.keySet().stream()
+                .filter(name -> !known.contains(name))
+                .forEach(name -> log.warn("Autoscaling is configured for pool {}, which does not exist; pools are {}.", name, known));
+    }
+
+    @Scheduled(fixedDelayString = "${notification.autoscale.interval:5s}")
+    public void adjust() {
+
+        if (!enabled) {
+            return;
+        }
+
+        long now = nanoClock.getAsLong();
+        long smtpLatency = smtpLatencyNanos.getAsLong();
+        int smtpLimit = smtpConcurrencyLimit.getAsInt();
+        for (ScaledPool scaled : scaledPools) {
+            adjust(scaled, now, smtpLatency, smtpLimit);
+        }
+    }
+
+    private void adjust(ScaledPool scaled, long now, long smtpLatency, int smtpLimit) {
+
+        ScalablePool pool = scaled.pool;
+        boolean email = EMAIL_POOL.equals(pool.getPoolName());
+
+        int active = pool.getActiveCount();
+        long completed = pool.getCompletedCount();
+        long taskNanos = PoolSample.taskNanos(active, completed - scaled.completed, now - scaled.sampledAt);
+        if (taskNanos == 0 && email) {
+            // nothing finished within the interval, the relays' latency is the best guess of a send's time
+            taskNanos = smtpLatency;
+        }
+        boolean held = email && (smtpLatency > maxSmtpLatencyNanos || pool.getPoolSize() >= smtpLimit);
+        PoolSample sample = new PoolSample(pool.getPoolSize(), active, pool.getQueueSize(), pool.getOldestWaitNanos(), taskNanos, held);
+        scaled.completed = completed;
+        scaled.sampledAt = now;
+
+        if (held != scaled.held) {
+            scaled.held = held;
+            if (held) {
+                log.warn("Holding the {} pool at {} threads while SMTP answers in {} ms and takes {} sends at once.",
+                        pool.getPoolName(), sample.poolSize(), smtpLatency / 1_000_000, smtpLimit);
+            } else {
+                log.info("SMTP answers in {} ms and takes {} sends at once again, the {} pool may grow.",
+                        smtpLatency / 1_000_000, smtpLimit, pool.getPoolName());
+            }
+        }
+
+        int size = scaled.policy.decide(sample);
+        if (email && size > sample.poolSize()) {
+            // not held, so the limit is above the current size
+            size = Math.min(size, smtpLimit);
+        }
+        if (size == sample.poolSize()) {
+            return;
+        }
+
+        pool.setPoolSize(size);
+        (size > sample.poolSize() ? scaled.scaledUp : scaled.scaledDown).increment();
+        log.info("Resized the {} pool from {} to {} threads: {} queued, oldest waiting {} ms, {} busy, {} ms per task.",
+                pool.getPoolName(), sample.poolSize(), size, sample.queued(), sample.oldestWaitNanos() / 1_000_000,
+                sample.active(), sample.taskNanos() / 1_000_000);
+    }
+
+    private ScaledPool register(ScalablePool pool, ScalingPolicy policy) {
+
+        Gauge.builder("notification.autoscale.pool.size", pool, ScalablePool::getPoolSize)
+                .tag("pool", pool.getPoolName())
+                .description("Threads the pool may run")
+                .register(meterRegistry);
+        TimeGauge.builder("notification.autoscale.oldest.wait", pool, TimeUnit.NANOSECONDS, ScalablePool::getOldestWaitNanos)
+                .tag("pool", pool.getPoolName())
+                .description("How long the longest waiting task of the pool has been queued")
+                .register(meterRegistry);
+
+        return new ScaledPool(pool, policy, decisions(pool, "up"), decisions(pool, "down"), pool.getCompletedCount(), nanoClock.getAsLong());
+    }
+
+    private Counter decisions(ScalablePool pool, String direction) {
+
+        return Counter.builder("notification.autoscale.decisions")
+                .tag("pool", pool.getPoolName())
+                .tag("direction", direction)
+                .description("Times the autoscaler resized the pool")
+                .register(meterRegistry);
+    }
+
+    private static long fastestRelayNanos(RelayRouter relayRouter) {
+
+        if (relayRouter == null) {
+            return 0;
+        }
+        // a relay without sends yet reports 0
+        double millis = relayRouter.getRelays().stream()
+                .mapToDouble(RelayRouter.Relay::getLatencyMillis)
+                .filter(latency -> latency > 0)
+                .min()
+                .orElse(0);
+        return (long) (millis * 1_000_000);
+    }
+
+    // Sends all relays take at once; a relay that does not limit them leaves the pool unlimited.
+    private static int concurrencyLimit(RelayRouter relayRouter) {
+
+        if (relayRouter == null) {
+            return Integer.MAX_VALUE;
+        }
+        long limit = relayRouter.getRelays().stream()
+                .mapToLong(RelayRouter.Relay::getConcurrencyLimit)
+                .sum();
+        return (int) Math.min(Integer.MAX_VALUE, limit);
+    }
+
+    private static final class ScaledPool {
+
+        private final ScalablePool pool;
+        private final ScalingPolicy policy;
+        private final Counter scaledUp;
+        private final Counter scaledDown;
+        // as of the previous sample
+        private long completed;
+        private long sampledAt;
+        private boolean held;
+
+        private ScaledPool(ScalablePool pool, ScalingPolicy policy, Counter scaledUp, Counter scaledDown, long completed, long sampledAt) {
+            this.pool = pool;
+            this.policy = policy;
+            this.scaledUp = scaledUp;
+            this.scaledDown = scaledDown;
+            this.completed = completed;
+            this.sampledAt = sampledAt;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package app.autoscale;
+
+/**
+ * One look at a pool at the end of an autoscaling interval. taskNanos is how long a task keeps its thread, 0 when
+ * not known yet; held means the downstream is too slow for more threads to help.
+ */
+public record PoolSample(int poolSize, int active, int queued, long oldestWaitNanos, long taskNanos, boolean held) {
+
+    // Little's law: threads busy on average = tasks finished per nanosecond * nanoseconds per task.
+    static long taskNanos(int active, long completed, long intervalNanos) {
+        return completed <= 0 ? 0 : active * intervalNanos / completed;
+    }
+}
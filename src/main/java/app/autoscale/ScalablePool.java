@@ -0,0 +1,22 @@
+package app.autoscale;
+
+// A worker pool whose size PoolAutoscaler may change while it runs.
+public interface ScalablePool {
+
+    // name in notification.autoscale.pools and in the metric tags
+    String getPoolName();
+
+    int getPoolSize();
+
+    int getActiveCount();
+
+    int getQueueSize();
+
+    // tasks finished since the pool was created
+    long getCompletedCount();
+
+    // how long the longest waiting task has been queued, 0 when nothing waits
+    long getOldestWaitNanos();
+
+    void setPoolSize(int poolSize);
+}
@@ -0,0 +1,63 @@
+package app.autoscale;
+
+import app.config.AutoscaleProperties;
+
+/**
+ * Decides the size of one pool from one sample per interval, within [minSize, maxSize].
+ * <p>
+ * A pool lags when its oldest queued task has waited longer than the target wait. It then grows to the threads busy
+ * now plus the threads that clear the queue within the target wait at the measured time per task, but at most
+ * doubles per interval - the next sample shows whether that was enough. A pool that is held is not grown: more
+ * threads would only wait on the slow downstream as well.
+ * <p>
+ * A pool shrinks by a quarter once it has had nothing queued and at most half of its threads busy for
+ * scale-down-after intervals in a row, never below twice the threads still busy. One busy interval restarts the count,
+ * so a pool does not shrink between bursts.
+ */
+public class ScalingPolicy {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetWaitNanos;
+    private final int scaleDownAfter;
+
+    private int idleIntervals;
+
+    public ScalingPolicy(AutoscaleProperties.Pool settings) {
+        this.minSize = Math.max(1, settings.getMinSize());
+        this.maxSize = Math.max(minSize, settings.getMaxSize());
+        this.targetWaitNanos = settings.getTargetWait().toNanos();
+        this.scaleDownAfter = Math.max(1, settings.getScaleDownAfter());
+    }
+
+    public int decide(PoolSample sample) {
+
+        int size = sample.poolSize();
+
+        if (sample.queued() > 0 && sample.oldestWaitNanos() > targetWaitNanos) {
+            idleIntervals = 0;
+            if (sample.held()) {
+                return clamp(size);
+            }
+            // a task longer than the interval has not finished yet, so its time is not known - double
+            int needed = sample.taskNanos() <= 0 ? size * 2
+                    : sample.active() + (int) Math.ceil((double) sample.queued() * sample.taskNanos() / targetWaitNanos);
+            return clamp(Math.max(size + 1, Math.min(needed, size * 2)));
+        }
+
+        if (sample.queued() == 0 && sample.active() <= size / 2) {
+            if (++idleIntervals >= scaleDownAfter) {
+                idleIntervals = 0;
+                return clamp(Math.max(sample.active() * 2, size - Math.max(1, size / 4)));
+            }
+            return clamp(size);
+        }
+
+        idleIntervals = 0;
+        return clamp(size);
+    }
+
+    private int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+}
@@ -0,0 +1,167 @@
+package app.channel;
+
+import app.autoscale.ScalablePool;
+import app.config.FairnessProperties;
+import app.exception.ChannelRejectedException;
+import app.limit.WeightedFairQueue;
+import app.model.NotificationType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor of one channel: at most max-concurrency sends run at once and at most queue-capacity wait.
+ * A full bulkhead fails the send at once with {@link ChannelRejectedException}, and so does a send still waiting for a
+ * thread after the timeout - it is taken out of the queue and can no longer start, so the caller may record the
+ * failure safely. A send that has started is never timed out here: it cannot be interrupted safely and might still
+ * reach the provider, so it runs until the channel answers, bounded by the channel's own I/O timeouts (e.g.
+ * mail.smtp.timeout).
+ * <p>
+ * Waiting sends are queued per caller and started in weighted round robin ({@link WeightedFairQueue}), so each caller
+ * gets its share of the channel's provider capacity however much the others submit.
+ * <p>
+ * With virtual threads (JDK 21+) the same limits apply, but a send blocked on the network no longer holds a platform
+ * thread, so max-concurrency can be raised to the number of sends the provider connection limits allow. That only
+ * holds for sends that do not block inside a monitor; {@link ChannelRouter} keeps email on platform threads before
+ * JDK 24.
+ * <p>
+ * max-concurrency is the starting size; PoolAutoscaler resizes the channels listed under notification.autoscale.pools.
+ */
+public class ChannelBulkhead implements ScalablePool {
+
+    private final NotificationType type;
+    private final WeightedFairQueue queue;
+    private final ThreadPoolExecutor executor;
+    private final long queueTimeoutNanos;
+
+    public ChannelBulkhead(NotificationType type, int maxConcurrency, int queueCapacity, Duration timeout) {
+        this(type, maxConcurrency, queueCapacity, timeout, false);
+    }
+
+    // One caller may fill the whole queue, e.g. for benchmarks of a single producer.
+    public ChannelBulkhead(NotificationType type, int maxConcurrency, int queueCapacity, Duration timeout, boolean virtualThreads) {
+        this(type, maxConcurrency, queueCapacity, timeout, virtualThreads, unshared(), new SimpleMeterRegistry());
+    }
+
+    public ChannelBulkhead(NotificationType type, int maxConcurrency, int queueCapacity, Duration timeout, boolean virtualThreads,
+                           FairnessProperties fairness, MeterRegistry meterRegistry) {
+        this.type = type;
+        this.queueTimeoutNanos = timeout.toNanos();
+
+        String threadPrefix = "channel-" + type.name().toLowerCase() + "-";
+        ThreadFactory threadFactory = virtualThreads ? new VirtualThreadTaskExecutor(threadPrefix).getVirtualThreadFactory() : platformThreads(threadPrefix);
+        this.queue = new WeightedFairQueue(getPoolName(), queueCapacity, fairness, meterRegistry);
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, queue, threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static FairnessProperties unshared() {
+
+        FairnessProperties fairness = new FairnessProperties();
+        fairness.setMaxCallerShare(1.0);
+        return fairness;
+    }
+
+    private static ThreadFactory platformThreads(String threadPrefix) {
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public CompletableFuture<Void> submit(Runnable send) {
+        return submit(WeightedFairQueue.DEFAULT_CALLER, send);
+    }
+
+    public CompletableFuture<Void> submit(String caller, Runnable send) {
+
+        // exactly one of the thread starting the send and the queue timeout completes started
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        WeightedFairQueue.Task task = new WeightedFairQueue.Task(caller, () -> {
+            if (!started.complete(null)) {
+                // timed out in the queue, the caller already has its failure
+                return;
+            }
+            try {
+                send.run();
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ChannelRejectedException("The %s channel is saturated.".formatted(type)));
+        }
+
+        started.orTimeout(queueTimeoutNanos, TimeUnit.NANOSECONDS).whenComplete((ignored, timeout) -> {
+            if (timeout != null) {
+                executor.remove(task);
+                result.completeExceptionally(new ChannelRejectedException("The %s channel did not start the send within %d ms.".formatted(type, TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos))));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String getPoolName() {
+        return type.name().toLowerCase();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return executor.getCorePoolSize();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    @Override
+    public long getOldestWaitNanos() {
+        return queue.getOldestWaitNanos();
+    }
+
+    // A send already running keeps its thread; surplus threads stop once their send is done.
+    @Override
+    public void setPoolSize(int poolSize) {
+
+        // the core size may never exceed the maximum
+        if (poolSize > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
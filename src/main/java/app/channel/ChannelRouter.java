@@ -0,0 +1,85 @@
+package app.channel;
+
+import app.config.ChannelProperties;
+import app.config.FairnessProperties;
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Hands each notification to the sender of its type, inside that channel's bulkhead.
+@Component
+public class ChannelRouter {
+
+    // JEP 491 - from JDK 24 a virtual thread blocked inside a synchronized method no longer pins its carrier
+    static final int UNPINNED_MONITORS_JDK = 24;
+
+    private final Map<NotificationType, ChannelSender> senders = new EnumMap<>(NotificationType.class);
+    private final Map<NotificationType, ChannelBulkhead> bulkheads = new EnumMap<>(NotificationType.class);
+
+    public ChannelRouter(List<ChannelSender> channelSenders, ChannelProperties channelProperties) {
+        this(channelSenders, channelProperties, false, new FairnessProperties(), new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public ChannelRouter(List<ChannelSender> channelSenders, ChannelProperties channelProperties,
+                         @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                         FairnessProperties fairness, MeterRegistry meterRegistry) {
+
+        for (ChannelSender sender : channelSenders) {
+            if (senders.put(sender.getType(), sender) != null) {
+                throw new IllegalStateException(String.format("More than one sender is registered for the %s channel.", sender.getType()));
+            }
+
+            ChannelProperties.Bulkhead settings = channelProperties.getBulkhead(sender.getType());
+            boolean virtual = runsOnVirtualThreads(sender.getType(), virtualThreads, Runtime.version().feature());
+            bulkheads.put(sender.getType(), new ChannelBulkhead(sender.getType(), settings.getMaxConcurrency(), settings.getQueueCapacity(), settings.getTimeout(), virtual, fairness, meterRegistry));
+        }
+    }
+
+    // Completes when the channel accepted the notification; completes exceptionally when it failed, or with
+    // ChannelRejectedException when the channel is saturated or did not start the send in time.
+    public CompletableFuture<Void> send(Notification notification, NotificationPreference userPreference) {
+
+        // rows stored before the type column was filled in were all emails
+        NotificationType type = notification.getType() == null ? NotificationType.EMAIL : notification.getType();
+
+        ChannelSender sender = senders.get(type);
+        if (sender == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException(String.format("No sender is registered for the %s channel.", type)));
+        }
+
+        return bulkheads.get(type).submit(notification.getCaller(), () -> sender.send(notification, userPreference));
+    }
+
+    // Jakarta Mail's SMTPTransport talks to the relay inside synchronized methods. Before JDK 24 that pins the carrier
+    // of a virtual thread for the whole send, so a few slow relays would stall every carrier and with them all virtual
+    // threads of the service. The email channel keeps platform threads there; the others hold no monitor while blocked.
+    static boolean runsOnVirtualThreads(NotificationType type, boolean virtualThreads, int jdkFeature) {
+        return virtualThreads && (type != NotificationType.EMAIL || jdkFeature >= UNPINNED_MONITORS_JDK);
+    }
+
+    public ChannelBulkhead getBulkhead(NotificationType type) {
+        return bulkheads.get(type);
+    }
+
+    public Collection<ChannelBulkhead> getBulkheads() {
+        return bulkheads.values();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(ChannelBulkhead::shutdown);
+    }
+}
@@ -0,0 +1,18 @@
+package app.channel;
+
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationType;
+
+/**
+ * One delivery channel, e.g. email or SMS. Every {@link NotificationType} has exactly one implementation, found by
+ * {@link ChannelRouter} among the Spring beans. Implementations send synchronously and throw when delivery failed;
+ * the router runs them inside the channel's own bulkhead, so a slow channel only ever blocks its own threads.
+ */
+public interface ChannelSender {
+
+    NotificationType getType();
+
+    // Delivers the notification to the contact info of the preference.
+    void send(Notification notification, NotificationPreference userPreference);
+}
@@ -0,0 +1,44 @@
+package app.channel;
+
+import app.jfr.MessageBuildEvent;
+import app.mail.HighPriorityMailMessage;
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationPriority;
+import app.model.NotificationType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EmailChannelSender implements ChannelSender {
+
+    private final MailSender mailSender;
+
+    @Autowired
+    public EmailChannelSender(MailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    @Override
+    public NotificationType getType() {
+        return NotificationType.EMAIL;
+    }
+
+    @Override
+    public void send(Notification notification, NotificationPreference userPreference) {
+
+        MessageBuildEvent buildEvent = new MessageBuildEvent();
+        buildEvent.begin();
+
+        SimpleMailMessage message = notification.getPriority() == NotificationPriority.HIGH ? new HighPriorityMailMessage() : new SimpleMailMessage();
+        message.setTo(userPreference.getContactInfo());
+        message.setSubject(notification.getSubject());
+        message.setText(notification.getBody());
+
+        buildEvent.finish(notification.getUserId(), "BUILT");
+
+        mailSender.send(message);
+    }
+}
@@ -0,0 +1,23 @@
+package app.channel;
+
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+// Stand-in until a push provider is integrated - logs the message instead of sending it.
+@Slf4j
+@Component
+public class MobileChannelSender implements ChannelSender {
+
+    @Override
+    public NotificationType getType() {
+        return NotificationType.MOBILE;
+    }
+
+    @Override
+    public void send(Notification notification, NotificationPreference userPreference) {
+        log.info("Push notification to device {}: {}", userPreference.getContactInfo(), notification.getSubject());
+    }
+}
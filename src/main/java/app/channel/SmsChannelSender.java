@@ -0,0 +1,23 @@
+package app.channel;
+
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+// Stand-in until an SMS gateway is integrated - logs the message instead of sending it.
+@Slf4j
+@Component
+public class SmsChannelSender implements ChannelSender {
+
+    @Override
+    public NotificationType getType() {
+        return NotificationType.SMS;
+    }
+
+    @Override
+    public void send(Notification notification, NotificationPreference userPreference) {
+        log.info("SMS to {}: {}", userPreference.getContactInfo(), notification.getSubject());
+    }
+}
@@ -0,0 +1,36 @@
+package app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("notification.autoscale")
+public class AutoscaleProperties {
+
+    private boolean enabled = false;
+
+    // keyed by pool: dispatch, email, sms or mobile, e.g. notification.autoscale.pools.email.max-size=128; pools not
+    // listed keep the size they were configured with
+    private Map<String, Pool> pools = new HashMap<>();
+
+    // the email pool is not grown while the fastest SMTP relay answers slower than this
+    private Duration maxSmtpLatency = Duration.ofSeconds(5);
+
+    @Data
+    public static class Pool {
+
+        private int minSize = 1;
+
+        private int maxSize = 8;
+
+        // longest a task should wait for a thread; the pool grows when its oldest task waited longer
+        private Duration targetWait = Duration.ofSeconds(1);
+
+        // quiet intervals in a row before the pool shrinks
+        private int scaleDownAfter = 6;
+    }
+}
@@ -0,0 +1,9 @@
+package app.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ChannelProperties.class)
+public class ChannelConfig {
+}
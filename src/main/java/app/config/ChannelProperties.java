@@ -0,0 +1,34 @@
+package app.config;
+
+import app.model.NotificationType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("notification.channels")
+public class ChannelProperties {
+
+    // keyed by channel, e.g. notification.channels.bulkheads.sms.max-concurrency=4
+    private Map<NotificationType, Bulkhead> bulkheads = new EnumMap<>(NotificationType.class);
+
+    public Bulkhead getBulkhead(NotificationType type) {
+        return bulkheads.getOrDefault(type, new Bulkhead());
+    }
+
+    @Data
+    public static class Bulkhead {
+
+        // threads of the channel, i.e. the most sends in progress at once
+        private int maxConcurrency = 8;
+
+        // sends waiting for a thread; beyond that the channel rejects at once
+        private int queueCapacity = 1000;
+
+        // the longest a send waits in the queue for a thread; a started send runs until the channel answers
+        private Duration timeout = Duration.ofSeconds(30);
+    }
+}
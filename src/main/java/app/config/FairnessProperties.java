@@ -0,0 +1,29 @@
+package app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("notification.fairness")
+public class FairnessProperties {
+
+    // keyed by caller id, e.g. notification.fairness.weights.billing=4 - a caller's share of a busy queue is its
+    // weight over the weights of all callers waiting in it
+    private Map<String, Integer> weights = new HashMap<>();
+
+    // weight of callers not listed, including requests without a caller id
+    private int defaultWeight = 1;
+
+    // most of any one queue a single caller may fill, so the others can still get in
+    private double maxCallerShare = 0.5;
+
+    // callers tracked per queue; callers beyond that share one "other" queue, which also bounds the metric tags
+    private int maxCallers = 100;
+
+    public int getWeight(String caller) {
+        return Math.max(1, weights.getOrDefault(caller, defaultWeight));
+    }
+}
@@ -0,0 +1,29 @@
+package app.config;
+
+import app.archive.NotificationArchive;
+import app.archive.NotificationArchiver;
+import app.autoscale.PoolAutoscaler;
+import app.retention.PartitionMaintenance;
+import app.scheduler.NotificationScheduler;
+import app.service.NotificationRecovery;
+import app.service.SuppressionService;
+import app.spool.NotificationSpool;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LazyInitializationConfig {
+
+    // Created at startup even with spring.main.lazy-initialization=true: the scheduler only runs its @Scheduled load
+    // once it exists, recovery and partition maintenance have to see ApplicationReadyEvent, the archive has to report
+    // what it holds before retention drops anything, the suppression filter must be loaded before the first send
+    // instead of during it, requests journaled before a restart are replayed without waiting for a new request, and
+    // the pools are resized from the start rather than once something happens to use the autoscaler.
+    @Bean
+    static LazyInitializationExcludeFilter eagerNotificationBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(NotificationScheduler.class, NotificationRecovery.class, PartitionMaintenance.class,
+                NotificationArchive.class, NotificationArchiver.class, SuppressionService.class, NotificationSpool.class,
+                PoolAutoscaler.class);
+    }
+}
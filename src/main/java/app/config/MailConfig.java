@@ -0,0 +1,89 @@
+package app.config;
+
+import app.limit.GradientLimit;
+import app.mail.CircuitBreakerMailSender;
+import app.mail.ConcurrencyLimitedMailSender;
+import app.mail.RelayRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Boot's mail auto-configuration backs off as soon as a MailSender bean exists, so the relay clients are built here
+// from the spring.mail.* properties (and notification.smtp.relays when several relays are configured) and then
+// wrapped by the decorators: router -> per-relay circuit breaker -> concurrency limit -> JavaMailSender.
+@Configuration
+@EnableConfigurationProperties({MailProperties.class, SmtpRelayProperties.class})
+public class MailConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public RelayRouter smtpMailSender(MailProperties mailProperties,
+                                      SmtpRelayProperties relayProperties,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${notification.smtp.limiter.initial-limit:10}") int initialLimit,
+                                      @Value("${notification.smtp.limiter.min-limit:1}") int minLimit,
+                                      @Value("${notification.smtp.limiter.max-limit:100}") int maxLimit,
+                                      @Value("${notification.smtp.limiter.rtt-tolerance:1.5}") double rttTolerance,
+                                      @Value("${notification.smtp.limiter.max-wait:5s}") Duration maxWait,
+                                      @Value("${notification.smtp.breaker.window-size:20}") int windowSize,
+                                      @Value("${notification.smtp.breaker.minimum-calls:10}") int minimumCalls,
+                                      @Value("${notification.smtp.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                      @Value("${notification.smtp.breaker.open-duration:30s}") Duration openDuration,
+                                      @Value("${notification.smtp.breaker.half-open-trials:3}") int halfOpenTrials) {
+
+        List<SmtpRelayProperties.Relay> relayConfigs = relayProperties.getRelays();
+        if (relayConfigs.isEmpty()) {
+            relayConfigs = List.of(defaultRelay(mailProperties));
+        }
+
+        List<RelayRouter.Relay> relays = new ArrayList<>();
+        for (SmtpRelayProperties.Relay relayConfig : relayConfigs) {
+            String name = relayConfig.getName() == null ? relayConfig.getHost() : relayConfig.getName();
+            GradientLimit limit = new GradientLimit(initialLimit, minLimit, maxLimit, rttTolerance);
+            ConcurrencyLimitedMailSender limited = new ConcurrencyLimitedMailSender(name, relay(mailProperties, relayConfig), limit, maxWait, meterRegistry);
+            MailSender guarded = new CircuitBreakerMailSender(name, limited, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenTrials, meterRegistry);
+            relays.add(new RelayRouter.Relay(name, guarded, relayConfig.getWeight(), limited::getLimit));
+        }
+
+        return new RelayRouter(relays, relayProperties.getHedgeDelay());
+    }
+
+    private static SmtpRelayProperties.Relay defaultRelay(MailProperties mailProperties) {
+
+        SmtpRelayProperties.Relay relay = new SmtpRelayProperties.Relay();
+        relay.setHost(mailProperties.getHost());
+        relay.setPort(mailProperties.getPort());
+        relay.setUsername(mailProperties.getUsername());
+        relay.setPassword(mailProperties.getPassword());
+        return relay;
+    }
+
+    private static JavaMailSenderImpl relay(MailProperties mailProperties, SmtpRelayProperties.Relay relayConfig) {
+
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(relayConfig.getHost());
+        if (relayConfig.getPort() != null) {
+            sender.setPort(relayConfig.getPort());
+        }
+        sender.setUsername(relayConfig.getUsername());
+        sender.setPassword(relayConfig.getPassword());
+        sender.setProtocol(mailProperties.getProtocol());
+        sender.setDefaultEncoding(mailProperties.getDefaultEncoding() == null ? StandardCharsets.UTF_8.name() : mailProperties.getDefaultEncoding().name());
+
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(mailProperties.getProperties());
+        javaMailProperties.putAll(relayConfig.getProperties());
+        sender.setJavaMailProperties(javaMailProperties);
+        return sender;
+    }
+}
@@ -0,0 +1,46 @@
+package app.config;
+
+import app.retention.MySqlPartitionOperations;
+import app.retention.PartitionOperations;
+import app.retention.SimulatedPartitionOperations;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.sql.DatabaseMetaData;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class PartitionConfig {
+
+    // Native partitions on MySQL; anywhere else (H2 in the tests) retention deletes the expired months instead.
+    @Bean
+    public PartitionOperations partitionOperations(JdbcTemplate jdbcTemplate) throws MetaDataAccessException {
+
+        String productName = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+        DatabaseDriver driver = DatabaseDriver.fromProductName(productName);
+        if (driver == DatabaseDriver.MYSQL || driver == DatabaseDriver.MARIADB) {
+            return new MySqlPartitionOperations(jdbcTemplate);
+        }
+        return new SimulatedPartitionOperations(jdbcTemplate);
+    }
+
+    // The first partition bound of db/vendor/mysql/V5, taken when the migration runs rather than when it was written:
+    // a fixed date would leave every month up to it in p_history, or rows of the months after it in p_future.
+    // Flyway checksums the script before placeholders are replaced, so validation does not depend on the date.
+    @Bean
+    public FlywayConfigurationCustomizer firstPartitionBound() {
+
+        return configuration -> {
+            Map<String, String> placeholders = new HashMap<>(configuration.getPlaceholders());
+            placeholders.put("first_partition_bound", YearMonth.now().plusMonths(1).atDay(1).toString());
+            configuration.placeholders(placeholders);
+        };
+    }
+}
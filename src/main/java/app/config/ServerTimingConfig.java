@@ -0,0 +1,38 @@
+package app.config;
+
+import app.timing.JdbcTimingPostProcessor;
+import app.timing.RepositoryTimingInterceptor;
+import app.timing.ServerTimingFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Opt-in per-request stage timing, see ServerTimingFilter. Nothing here exists unless
+// notification.server-timing.enabled=true, so requests pay nothing for it otherwise.
+@Configuration
+@ConditionalOnProperty(name = "notification.server-timing.enabled", havingValue = "true")
+@EnableConfigurationProperties(ServerTimingProperties.class)
+public class ServerTimingConfig {
+
+    @Bean
+    static RepositoryTimingInterceptor repositoryTimingInterceptor() {
+        return new RepositoryTimingInterceptor();
+    }
+
+    @Bean
+    static JdbcTimingPostProcessor jdbcTimingPostProcessor() {
+        return new JdbcTimingPostProcessor();
+    }
+
+    // first in the chain, so total covers the other filters as well
+    @Bean
+    FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(ServerTimingProperties properties) {
+
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter(properties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
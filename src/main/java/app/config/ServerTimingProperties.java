@@ -0,0 +1,20 @@
+package app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("notification.server-timing")
+public class ServerTimingProperties {
+
+    // off by default - when off neither the filter nor the repository timing is installed
+    private boolean enabled = false;
+
+    // share of requests whose stage breakdown is logged, e.g. 0.01 for one in a hundred
+    private double logSampleRate = 0.01;
+
+    // requests slower than this are logged whatever the sample rate
+    private Duration logSlowerThan = Duration.ofSeconds(1);
+}
@@ -0,0 +1,41 @@
+package app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("notification.smtp")
+public class SmtpRelayProperties {
+
+    // empty means a single relay built from spring.mail.*
+    private List<Relay> relays = new ArrayList<>();
+
+    // how long a high-priority send waits on the first relay before it is also sent through a second one
+    private Duration hedgeDelay = Duration.ofMillis(500);
+
+    @Data
+    public static class Relay {
+
+        private String name;
+
+        private String host;
+
+        private Integer port;
+
+        private String username;
+
+        private String password;
+
+        // relative share of traffic while all relays are equally fast and healthy
+        private int weight = 1;
+
+        // added to spring.mail.properties for this relay only
+        private Map<String, String> properties = new HashMap<>();
+    }
+}
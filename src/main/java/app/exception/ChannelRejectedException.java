@@ -0,0 +1,9 @@
+package app.exception;
+
+// Thrown when a channel's bulkhead is full; the notification was never handed to the channel.
+public class ChannelRejectedException extends RuntimeException {
+
+    public ChannelRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package app.exception;
+
+import org.springframework.mail.MailSendException;
+
+// Thrown instead of contacting an SMTP relay whose circuit breaker is open; the notification ends up FAILED and is
+// picked up again by the retry endpoint.
+public class CircuitOpenException extends MailSendException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package app.exception;
+
+import org.springframework.mail.MailSendException;
+
+// Thrown when no SMTP slot freed up within max-wait. The relay was never contacted, so the circuit breaker does not
+// count it and the notification does not use up an attempt.
+public class ConcurrencyLimitExceededException extends MailSendException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package app.exception;
+
+import java.util.UUID;
+
+// Thrown for an id that was never stored, or was cleared - ExceptionAdvice turns it into 404.
+public class NotificationNotFoundException extends RuntimeException {
+
+    public NotificationNotFoundException(UUID notificationId) {
+        super(String.format("Notification with id %s was not found.", notificationId));
+    }
+}
@@ -0,0 +1,17 @@
+package app.exception;
+
+import app.model.Notification;
+import lombok.Getter;
+
+// Thrown when the database fails after the notification was stored - recovery resolves the row, so the request must
+// not be stored a second time.
+@Getter
+public class NotificationStoredException extends RuntimeException {
+
+    private final transient Notification notification;
+
+    public NotificationStoredException(Notification notification, RuntimeException cause) {
+        super(cause.getMessage(), cause);
+        this.notification = notification;
+    }
+}
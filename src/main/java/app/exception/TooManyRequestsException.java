@@ -0,0 +1,15 @@
+package app.exception;
+
+import lombok.Getter;
+
+// Thrown when the service sheds load - ExceptionAdvice turns it into 429 with a Retry-After header.
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,11 @@
+package app.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.notification.MessageBuild")
+@Label("Message Build")
+@Description("Time spent building the outgoing message.")
+public class MessageBuildEvent extends NotificationStageEvent {
+}
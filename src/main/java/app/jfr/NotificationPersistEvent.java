@@ -0,0 +1,11 @@
+package app.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.notification.NotificationPersist")
+@Label("Notification Persist")
+@Description("Time spent storing the notification row.")
+public class NotificationPersistEvent extends NotificationStageEvent {
+}
@@ -0,0 +1,32 @@
+package app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+// Base of the send pipeline events. Instances are cheap to create, and when no recording enables them
+// shouldCommit() is false, so no fields are set and nothing is written.
+@Category({"Notification Service", "Send Pipeline"})
+@StackTrace(false)
+public abstract class NotificationStageEvent extends Event {
+
+    // hashed so recordings can be shared without exposing user ids
+    @Label("User Id Hash")
+    int userIdHash;
+
+    @Label("Outcome")
+    String outcome;
+
+    public void finish(UUID userId, String outcome) {
+
+        end();
+        if (shouldCommit()) {
+            this.userIdHash = userId == null ? 0 : userId.hashCode();
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
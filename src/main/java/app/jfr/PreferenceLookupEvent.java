@@ -0,0 +1,11 @@
+package app.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.notification.PreferenceLookup")
+@Label("Preference Lookup")
+@Description("Time spent loading the notification preference of a user.")
+public class PreferenceLookupEvent extends NotificationStageEvent {
+}
@@ -0,0 +1,11 @@
+package app.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.notification.SmtpSend")
+@Label("SMTP Send")
+@Description("Time spent handing the message to the mail relay.")
+public class SmtpSendEvent extends NotificationStageEvent {
+}
@@ -0,0 +1,66 @@
+package app.limit;
+
+/**
+ * Gradient concurrency limit. The limit grows by about sqrt(limit) while latency stays close to the best latency
+ * seen recently, shrinks in proportion when latency rises, and shrinks multiplicatively when a request is dropped
+ * because the dependency behind it is overloaded. Callers own the in-flight count and report one sample per request.
+ */
+public class GradientLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int MIN_RTT_RESET_SAMPLES = 1_000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+
+    private volatile double limit;
+
+    // guarded by this
+    private long minRttNanos = Long.MAX_VALUE;
+    private double smoothedRttNanos;
+    private long samples;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.limit = initialLimit;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized double getSmoothedRttNanos() {
+        return smoothedRttNanos;
+    }
+
+    public synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+
+        samples++;
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : smoothedRttNanos * 0.9 + rttNanos * 0.1;
+
+        if (samples % MIN_RTT_RESET_SAMPLES == 0) {
+            // let the baseline follow a dependency whose normal latency changed for good
+            minRttNanos = (long) smoothedRttNanos;
+        }
+
+        if (inFlightAtStart < limit / 2) {
+            // not enough load to tell whether a higher limit would still be safe
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRttNanos / smoothedRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+}
@@ -0,0 +1,409 @@
+package app.limit;
+
+import app.config.FairnessProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue of a thread pool that shares the pool between callers by deficit round robin. Every caller has its own
+ * FIFO queue; callers with waiting tasks take turns, and on its turn a caller starts up to its weight in tasks. A
+ * caller flooding the pool only lengthens its own queue - each other waiting caller still gets its weight over the
+ * sum of the waiting callers' weights of the threads that free up.
+ * <p>
+ * Tasks name their caller by being a {@link Task}; anything else belongs to the default caller. An offer fails when
+ * the queue is full or the caller already fills its maximum share of it, so the executor rejects only the caller
+ * that is over its share while the others still get in.
+ */
+public class WeightedFairQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    public static final String DEFAULT_CALLER = "default";
+    static final String OTHER_CALLER = "other";
+
+    private final String name;
+    private final int capacity;
+    private final int callerCapacity;
+    private final FairnessProperties fairness;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // guarded by lock
+    private final Map<String, CallerQueue> callers = new HashMap<>();
+    // callers with waiting tasks, the head has the turn
+    private final ArrayDeque<CallerQueue> turns = new ArrayDeque<>();
+    private final List<CallerQueue> unregistered = new ArrayList<>();
+    private volatile boolean hasUnregistered;
+    private int size;
+
+    public WeightedFairQueue(String name, int capacity, FairnessProperties fairness, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.capacity = capacity;
+        this.callerCapacity = Math.max(1, (int) (capacity * fairness.getMaxCallerShare()));
+        this.fairness = fairness;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Tags every task handed to the executor with the caller, e.g. for CompletableFuture.supplyAsync.
+    public static Executor forCaller(Executor executor, String caller) {
+        return command -> executor.execute(new Task(caller, command));
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+
+        lock.lock();
+        try {
+            return enqueue(task);
+        } finally {
+            lock.unlock();
+            registerNewCallers();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!enqueue(task)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            registerNewCallers();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        offer(task, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Runnable poll() {
+
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+
+        lock.lock();
+        try {
+            return turns.isEmpty() ? null : turns.peekFirst().tasks.peekFirst().task();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Used by ThreadPoolExecutor to take back a task it could not start during shutdown.
+    @Override
+    public boolean remove(Object task) {
+
+        lock.lock();
+        try {
+            for (CallerQueue queue : callers.values()) {
+                if (queue.tasks.removeIf(queued -> queued.task().equals(task))) {
+                    size--;
+                    if (queue.tasks.isEmpty()) {
+                        turns.remove(queue);
+                        queue.deficit = 0;
+                    }
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+
+        lock.lock();
+        try {
+            return capacity - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> target, int maxElements) {
+
+        lock.lock();
+        try {
+            int drained = 0;
+            Runnable task;
+            while (drained < maxElements && (task = dequeue()) != null) {
+                target.add(task);
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A snapshot in no particular order; removal goes through remove(Object).
+    @Override
+    public Iterator<Runnable> iterator() {
+
+        lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<>(size);
+            turns.forEach(queue -> queue.tasks.forEach(queued -> tasks.add(queued.task())));
+            return tasks.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getDepth(String caller) {
+
+        lock.lock();
+        try {
+            CallerQueue queue = callers.get(caller);
+            return queue == null ? 0 : queue.tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStarted(String caller) {
+
+        lock.lock();
+        try {
+            CallerQueue queue = callers.get(caller);
+            return queue == null ? 0 : queue.started;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // How long the task that has waited longest has been waiting, 0 when nothing waits. Each caller's queue is FIFO,
+    // so only the heads are compared.
+    public long getOldestWaitNanos() {
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long oldest = 0;
+            for (CallerQueue queue : turns) {
+                oldest = Math.max(oldest, now - queue.tasks.peekFirst().enqueuedAt());
+            }
+            return oldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // guarded by lock
+    private boolean enqueue(Runnable task) {
+
+        String caller = task instanceof Task tagged && tagged.caller() != null ? tagged.caller() : DEFAULT_CALLER;
+        CallerQueue queue = callers.get(caller);
+        if (queue == null) {
+            String key = callers.size() < fairness.getMaxCallers() ? caller : OTHER_CALLER;
+            queue = callers.get(key);
+            if (queue == null) {
+                queue = new CallerQueue(key, fairness.getWeight(key));
+                callers.put(key, queue);
+                unregistered.add(queue);
+                hasUnregistered = true;
+            }
+        }
+        if (size >= capacity || queue.tasks.size() >= callerCapacity) {
+            queue.rejected++;
+            return false;
+        }
+
+        if (queue.tasks.isEmpty()) {
+            turns.addLast(queue);
+        }
+        queue.tasks.addLast(new Queued(task, System.nanoTime()));
+        size++;
+        notEmpty.signal();
+        return true;
+    }
+
+    // guarded by lock
+    private Runnable dequeue() {
+
+        CallerQueue queue = turns.peekFirst();
+        if (queue == null) {
+            return null;
+        }
+        if (queue.deficit == 0) {
+            // its turn starts
+            queue.deficit = queue.weight;
+        }
+
+        Runnable task = queue.tasks.pollFirst().task();
+        queue.deficit--;
+        queue.started++;
+        size--;
+
+        if (queue.tasks.isEmpty()) {
+            // an idle caller does not save up turns for later
+            turns.pollFirst();
+            queue.deficit = 0;
+        } else if (queue.deficit == 0) {
+            turns.addLast(turns.pollFirst());
+        }
+        notFull.signal();
+        return task;
+    }
+
+    // Outside the lock, the meters take it when they are read.
+    private void registerNewCallers() {
+
+        if (!hasUnregistered) {
+            return;
+        }
+
+        List<CallerQueue> created;
+        lock.lock();
+        try {
+            created = new ArrayList<>(unregistered);
+            unregistered.clear();
+            hasUnregistered = false;
+        } finally {
+            lock.unlock();
+        }
+        created.forEach(this::register);
+    }
+
+    private void register(CallerQueue queue) {
+
+        Gauge.builder("notification.fairness.queue.depth", this, fairQueue -> fairQueue.getDepth(queue.caller))
+                .tag("queue", name)
+                .tag("caller", queue.caller)
+                .description("Tasks of the caller waiting in the queue")
+                .register(meterRegistry);
+        FunctionCounter.builder("notification.fairness.started", this, fairQueue -> fairQueue.getStarted(queue.caller))
+                .tag("queue", name)
+                .tag("caller", queue.caller)
+                .description("Tasks of the caller taken from the queue by a thread")
+                .register(meterRegistry);
+        FunctionCounter.builder("notification.fairness.rejected", queue, callerQueue -> rejected(callerQueue))
+                .tag("queue", name)
+                .tag("caller", queue.caller)
+                .description("Tasks of the caller rejected because the queue or the caller's share of it was full")
+                .register(meterRegistry);
+    }
+
+    private long rejected(CallerQueue queue) {
+
+        lock.lock();
+        try {
+            return queue.rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A task and the caller it runs for.
+    public record Task(String caller, Runnable runnable) implements Runnable {
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+
+    private record Queued(Runnable task, long enqueuedAt) {
+    }
+
+    private static final class CallerQueue {
+
+        private final String caller;
+        private final int weight;
+        private final ArrayDeque<Queued> tasks = new ArrayDeque<>();
+        // tasks the caller may still start in its current turn
+        private int deficit;
+        private long started;
+        private long rejected;
+
+        private CallerQueue(String caller, int weight) {
+            this.caller = caller;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package app.mail;
+
+import app.exception.CircuitOpenException;
+import app.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around one SMTP relay.
+ * <ul>
+ *     <li>CLOSED - sends go through; the outcome of the last window-size sends is kept, and once at least
+ *     minimum-calls of them are known and the failure rate reaches the threshold the breaker opens.</li>
+ *     <li>OPEN - sends fail at once with {@link CircuitOpenException} instead of waiting for the connect timeout.
+ *     After open-duration the next send moves the breaker to HALF_OPEN.</li>
+ *     <li>HALF_OPEN - up to half-open-trials sends are let through as trials, the others still fail fast. All
+ *     trials succeeding closes the breaker, any trial failing opens it again.</li>
+ * </ul>
+ * Errors building the message (parse, preparation) and waits for a local concurrency slot say nothing about the relay
+ * and are not counted, and a rejected recipient counts as a success.
+ */
+@Slf4j
+public class CircuitBreakerMailSender implements MailSender {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String relay;
+    private final MailSender delegate;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenTrials;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    // bumped on every transition so outcomes of sends started in an earlier state are ignored
+    private long generation;
+    private final boolean[] outcomes;
+    private int recorded;
+    private int failures;
+    private int next;
+    private long openedAtNanos;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public CircuitBreakerMailSender(String relay, MailSender delegate, int windowSize, int minimumCalls, double failureRateThreshold,
+                                    Duration openDuration, int halfOpenTrials, MeterRegistry meterRegistry) {
+        this(relay, delegate, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenTrials, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreakerMailSender(String relay, MailSender delegate, int windowSize, int minimumCalls, double failureRateThreshold,
+                             Duration openDuration, int halfOpenTrials, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.relay = relay;
+        this.delegate = delegate;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenTrials = halfOpenTrials;
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        this.outcomes = new boolean[windowSize];
+
+        for (State gaugeState : State.values()) {
+            Gauge.builder("notification.smtp.circuit.state", this, breaker -> breaker.getState() == gaugeState ? 1 : 0)
+                    .tag("relay", relay)
+                    .tag("state", gaugeState.name().toLowerCase(Locale.ROOT))
+                    .description("1 for the current state of the SMTP circuit breaker, 0 otherwise")
+                    .register(meterRegistry);
+        }
+        this.rejected = Counter.builder("notification.smtp.circuit.rejected")
+                .tag("relay", relay)
+                .description("Sends failed fast because the circuit breaker was open")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+
+        long permittedGeneration = acquirePermission();
+
+        try {
+            delegate.send(simpleMessages);
+        } catch (MailParseException | MailPreparationException | ConcurrencyLimitExceededException e) {
+            onIgnored(permittedGeneration);
+            throw e;
+        } catch (MailException e) {
+            // a rejected recipient means the relay is up and answering
+            onResult(permittedGeneration, SmtpFailures.isRecipientRejected(e));
+            throw e;
+        }
+        onResult(permittedGeneration, true);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized long acquirePermission() {
+
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openDurationNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.OPEN || (state == State.HALF_OPEN && trialsStarted >= halfOpenTrials)) {
+            rejected.increment();
+            throw new CircuitOpenException("SMTP relay %s is unavailable, circuit breaker is %s.".formatted(relay, state));
+        }
+
+        if (state == State.HALF_OPEN) {
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    private synchronized void onResult(long permittedGeneration, boolean succeeded) {
+
+        if (permittedGeneration != generation) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (!succeeded) {
+                transitionTo(State.OPEN);
+            } else if (++trialsSucceeded >= halfOpenTrials) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        record(succeeded);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private synchronized void onIgnored(long permittedGeneration) {
+
+        if (permittedGeneration == generation && state == State.HALF_OPEN) {
+            // give the trial slot back so another send can probe the relay
+            trialsStarted--;
+        }
+    }
+
+    // Ring buffer of the last window-size outcomes, with the failure count kept alongside.
+    private void record(boolean succeeded) {
+
+        if (recorded == windowSize) {
+            if (!outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+
+        outcomes[next] = succeeded;
+        if (!succeeded) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void transitionTo(State newState) {
+
+        log.warn("SMTP circuit breaker for relay {} changed from {} to {}.", relay, state, newState);
+        Counter.builder("notification.smtp.circuit.transitions")
+                .tag("relay", relay)
+                .tag("from", state.name().toLowerCase(Locale.ROOT))
+                .tag("to", newState.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .increment();
+
+        state = newState;
+        generation++;
+        recorded = 0;
+        failures = 0;
+        next = 0;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (newState == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        }
+    }
+}
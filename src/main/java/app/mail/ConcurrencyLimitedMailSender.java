@@ -0,0 +1,119 @@
+package app.mail;
+
+import app.exception.ConcurrencyLimitExceededException;
+import app.limit.GradientLimit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of concurrent sends to one SMTP relay with a {@link GradientLimit} fed by relay round-trip times. A failed send
+ * counts as a drop, so throttling by the provider shrinks the limit. Senders over the limit wait up to max-wait for
+ * a slot and then fail with {@link ConcurrencyLimitExceededException}, which leaves the notification FAILED for the retry
+ * endpoint without counting against the relay's circuit breaker.
+ */
+public class ConcurrencyLimitedMailSender implements MailSender {
+
+    private final String relay;
+    private final MailSender delegate;
+    private final GradientLimit limit;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    // guarded by lock
+    private int inFlight;
+
+    public ConcurrencyLimitedMailSender(String relay, MailSender delegate, GradientLimit limit, Duration maxWait, MeterRegistry meterRegistry) {
+        this.relay = relay;
+        this.delegate = delegate;
+        this.limit = limit;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        Gauge.builder("notification.smtp.concurrency.limit", this, ConcurrencyLimitedMailSender::getLimit)
+                .tag("relay", relay)
+                .description("Current adaptive limit of concurrent SMTP sends")
+                .register(meterRegistry);
+        Gauge.builder("notification.smtp.concurrency.in-flight", this, ConcurrencyLimitedMailSender::getInFlight)
+                .tag("relay", relay)
+                .description("SMTP sends currently in progress")
+                .register(meterRegistry);
+        TimeGauge.builder("notification.smtp.rtt", limit, TimeUnit.NANOSECONDS, GradientLimit::getSmoothedRttNanos)
+                .tag("relay", relay)
+                .description("Smoothed SMTP relay round-trip time")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+
+        int inFlightAtStart = acquire();
+        long start = System.nanoTime();
+        boolean dropped = false;
+
+        try {
+            delegate.send(simpleMessages);
+        } catch (MailException e) {
+            dropped = !SmtpFailures.isRecipientRejected(e);
+            throw e;
+        } finally {
+            release();
+            limit.onSample(System.nanoTime() - start, inFlightAtStart, dropped);
+        }
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int acquire() {
+
+        lock.lock();
+        try {
+            long remainingNanos = maxWaitNanos;
+            while (inFlight >= limit.getLimit()) {
+                if (remainingNanos <= 0) {
+                    throw new ConcurrencyLimitExceededException("SMTP concurrency limit of %d reached on relay %s.".formatted(limit.getLimit(), relay));
+                }
+                remainingNanos = slotFreed.awaitNanos(remainingNanos);
+            }
+            return ++inFlight;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP slot.", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+
+        lock.lock();
+        try {
+            inFlight--;
+            // the limit may have grown too, so wake every waiter rather than one
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
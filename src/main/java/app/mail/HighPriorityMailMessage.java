@@ -0,0 +1,7 @@
+package app.mail;
+
+import org.springframework.mail.SimpleMailMessage;
+
+// Marks a message the relay router may hedge to a second relay when the first one is slow.
+public class HighPriorityMailMessage extends SimpleMailMessage {
+}
@@ -0,0 +1,251 @@
+package app.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Spreads sends over several SMTP relays. A relay is picked at random with a probability proportional to its
+ * configured weight, divided by its recent latency and reduced by its recent error rate, so slow or failing relays
+ * lose traffic quickly but are still probed now and then. When the picked relay fails the remaining relays are
+ * tried, best first, before the send is reported as failed.
+ * <p>
+ * High-priority messages are hedged: if the first relay has not answered after hedge-delay the message is also
+ * sent through the next relay and the first success wins. The recipient may then get the message twice, which is
+ * the price of the lower tail latency.
+ */
+@Slf4j
+public class RelayRouter implements MailSender {
+
+    private final List<Relay> relays;
+    private final long hedgeDelayNanos;
+    private final ExecutorService hedgeExecutor;
+
+    public RelayRouter(List<Relay> relays, Duration hedgeDelay) {
+        this.relays = List.copyOf(relays);
+        this.hedgeDelayNanos = hedgeDelay.toNanos();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-hedge-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+
+        List<Relay> candidates = candidates();
+        boolean highPriority = Arrays.stream(simpleMessages).anyMatch(HighPriorityMailMessage.class::isInstance);
+
+        if (highPriority && candidates.size() > 1) {
+            sendHedged(candidates, simpleMessages);
+        } else {
+            sendWithFailover(candidates, simpleMessages);
+        }
+    }
+
+    public List<Relay> getRelays() {
+        return relays;
+    }
+
+    // The weighted pick first, then the others from best to worst score.
+    List<Relay> candidates() {
+
+        List<Relay> ordered = new ArrayList<>(relays);
+        ordered.sort(Comparator.comparingDouble(Relay::score).reversed());
+
+        double total = ordered.stream().mapToDouble(Relay::score).sum();
+        if (!(total > 0)) {
+            // nothing to weigh - best first is all that is left
+            return ordered;
+        }
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < ordered.size(); i++) {
+            pick -= ordered.get(i).score();
+            if (pick < 0) {
+                ordered.add(0, ordered.remove(i));
+                break;
+            }
+        }
+        return ordered;
+    }
+
+    private void sendWithFailover(List<Relay> candidates, SimpleMailMessage... simpleMessages) {
+
+        MailException lastFailure = null;
+        for (Relay relay : candidates) {
+            try {
+                relay.send(simpleMessages);
+                return;
+            } catch (MailException e) {
+                if (SmtpFailures.isRecipientRejected(e)) {
+                    // every relay would give the same answer
+                    throw e;
+                }
+                log.warn("SMTP relay {} failed due to {}, trying the next one.", relay.getName(), e.getMessage());
+                lastFailure = e;
+            }
+        }
+        throw lastFailure;
+    }
+
+    private void sendHedged(List<Relay> candidates, SimpleMailMessage... simpleMessages) {
+
+        CompletableFuture<Void> firstSuccess = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+
+        CompletableFuture<Void> primary = CompletableFuture.runAsync(() -> candidates.get(0).send(simpleMessages), hedgeExecutor);
+        primary.whenComplete((ignored, failure) -> onAttemptDone(firstSuccess, pending, failure));
+
+        try {
+            primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException e) {
+            log.debug("SMTP relay {} is slow, hedging the send.", candidates.get(0).getName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MailException mailException && SmtpFailures.isRecipientRejected(mailException)) {
+                throw mailException;
+            }
+            // failed before the hedge delay - plain failover over the remaining relays
+            sendWithFailover(candidates.subList(1, candidates.size()), simpleMessages);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending through SMTP relay " + candidates.get(0).getName(), e);
+        }
+
+        List<Relay> remaining = candidates.subList(1, candidates.size());
+        CompletableFuture.runAsync(() -> sendWithFailover(remaining, simpleMessages), hedgeExecutor)
+                .whenComplete((ignored, failure) -> onAttemptDone(firstSuccess, pending, failure));
+
+        try {
+            firstSuccess.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof MailException mailException ? mailException : new MailSendException("Hedged SMTP send failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for a hedged SMTP send.", e);
+        }
+    }
+
+    private static void onAttemptDone(CompletableFuture<Void> firstSuccess, AtomicInteger pending, Throwable failure) {
+
+        if (failure == null) {
+            firstSuccess.complete(null);
+        } else if (pending.decrementAndGet() == 0) {
+            firstSuccess.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+        }
+    }
+
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    /**
+     * One relay with its recent latency and error rate, both exponentially weighted so a recovered relay wins its
+     * traffic back within a few sends.
+     */
+    public static class Relay {
+
+        private static final double LATENCY_SMOOTHING = 0.2;
+        private static final double ERROR_SMOOTHING = 0.3;
+        // an unknown or very fast relay is scored as if it answered in 1ms
+        private static final double MIN_LATENCY_MILLIS = 1.0;
+        // keeps a failing relay probed occasionally so its recovery is noticed
+        private static final double MIN_SUCCESS_RATE = 0.01;
+
+        private final String name;
+        private final MailSender sender;
+        private final int weight;
+        private final IntSupplier concurrencyLimit;
+
+        // guarded by this
+        private double latencyMillis;
+        private double errorRate;
+
+        public Relay(String name, MailSender sender, int weight) {
+            this(name, sender, weight, () -> Integer.MAX_VALUE);
+        }
+
+        public Relay(String name, MailSender sender, int weight, IntSupplier concurrencyLimit) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight of SMTP relay " + name + " must be at least 1, was " + weight + ".");
+            }
+            this.name = name;
+            this.sender = sender;
+            this.weight = weight;
+            this.concurrencyLimit = concurrencyLimit;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Sends the relay takes at once right now, Integer.MAX_VALUE when it is not limited.
+        public int getConcurrencyLimit() {
+            return concurrencyLimit.getAsInt();
+        }
+
+        public synchronized double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        void send(SimpleMailMessage... simpleMessages) {
+
+            long start = System.nanoTime();
+            try {
+                sender.send(simpleMessages);
+                onSuccess(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1_000.0);
+            } catch (MailException e) {
+                if (SmtpFailures.isRecipientRejected(e)) {
+                    // the relay answered properly, the recipient is the problem
+                    onSuccess(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1_000.0);
+                } else {
+                    onFailure();
+                }
+                throw e;
+            }
+        }
+
+        synchronized double score() {
+
+            double successRate = Math.max(MIN_SUCCESS_RATE, 1 - errorRate);
+            return weight * successRate * successRate / Math.max(MIN_LATENCY_MILLIS, latencyMillis);
+        }
+
+        private synchronized void onSuccess(double millis) {
+
+            latencyMillis = latencyMillis == 0 ? millis : latencyMillis * (1 - LATENCY_SMOOTHING) + millis * LATENCY_SMOOTHING;
+            errorRate = errorRate * (1 - ERROR_SMOOTHING);
+        }
+
+        // a refused connection fails fast, so only the error rate learns from failures, never the latency
+        private synchronized void onFailure() {
+            errorRate = errorRate * (1 - ERROR_SMOOTHING) + ERROR_SMOOTHING;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package app.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.springframework.mail.MailSendException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Classifies SMTP failures. JavaMailSender wraps the server reply several levels deep: the per-message exceptions of
+// MailSendException, the causes, and the getNextException() chain of MessagingException.
+public final class SmtpFailures {
+
+    // RFC 3463 class.subject.detail, e.g. 5.1.1 in "550 5.1.1 <user@example.com>: Recipient address rejected"
+    private static final Pattern ENHANCED_STATUS = Pattern.compile("\\b([245])\\.(\\d{1,3})\\.(\\d{1,3})\\b");
+
+    private SmtpFailures() {
+    }
+
+    // The mailbox does not exist (5xx on RCPT TO with an enhanced status 5.1.x - bad mailbox, bad domain, moved) or
+    // the address is malformed - sending the same message again, through any relay, cannot succeed. Other permanent
+    // RCPT TO replies are not about the address: 5.7.x is the relay refusing to relay or authenticate for us, which
+    // another relay may accept, and 5.2.x is a full or disabled mailbox that may come back. Those stay relay failures.
+    public static boolean isRecipientRejected(Throwable failure) {
+
+        Deque<Throwable> pending = new ArrayDeque<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.push(failure);
+
+        while (!pending.isEmpty()) {
+            Throwable current = pending.pop();
+            if (!seen.add(current)) {
+                continue;
+            }
+
+            if (current instanceof SMTPAddressFailedException addressFailed && isBadMailbox(addressFailed)) {
+                return true;
+            }
+            if (current instanceof AddressException) {
+                return true;
+            }
+
+            if (current instanceof MailSendException mailSendException) {
+                mailSendException.getFailedMessages().values().forEach(pending::push);
+            }
+            if (current instanceof MessagingException messagingException && messagingException.getNextException() != null) {
+                pending.push(messagingException.getNextException());
+            }
+            if (current.getCause() != null) {
+                pending.push(current.getCause());
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isBadMailbox(SMTPAddressFailedException addressFailed) {
+
+        if (addressFailed.getReturnCode() < 500 || addressFailed.getMessage() == null) {
+            return false;
+        }
+        Matcher status = ENHANCED_STATUS.matcher(addressFailed.getMessage());
+        return status.find() && status.group(1).equals("5") && status.group(2).equals("1");
+    }
+}
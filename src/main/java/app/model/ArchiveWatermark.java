@@ -0,0 +1,29 @@
+package app.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// How far one instance's local archive reaches, written by NotificationArchive; null while it has archived nothing.
+// lastSeenOn is refreshed with every write, an instance not seen for a while no longer holds partition drops.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveWatermark {
+
+    @Id
+    @Column(length = 64)
+    private String instanceId;
+
+    private LocalDate archivedUntil;
+
+    @Column(nullable = false)
+    private LocalDateTime lastSeenOn;
+}
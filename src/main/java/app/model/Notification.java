@@ -7,6 +7,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_notification_status_send_at", columnList = "status, sendAt"),
+        @Index(name = "idx_notification_user_created_on", columnList = "userId, createdOn")
+})
 @Data
 @Builder
 @Getter
@@ -36,4 +40,27 @@ public class Notification {
     private UUID userId;
 
     private boolean isDeleted;
+
+    // null for immediate sends, otherwise the moment the scheduler should deliver the notification
+    private LocalDateTime sendAt;
+
+    // null for rows stored before priorities existed, treated as NORMAL
+    @Enumerated(EnumType.STRING)
+    private NotificationPriority priority;
+
+    // SMTP attempts that reached a relay; the row becomes DEAD once it hits notification.delivery.max-attempts
+    private int attempts;
+
+    // simple class name of the last delivery error, used to filter dead letters for replay
+    private String failureClass;
+
+    private String failureReason;
+
+    // when the row last went to SENDING, so recovery can tell an abandoned send from one still in progress
+    private LocalDateTime lastAttemptOn;
+
+    // the X-Caller-Id the notification was accepted for, its share of the dispatcher and channels; null is the
+    // default caller
+    @Column(length = 64)
+    private String caller;
 }
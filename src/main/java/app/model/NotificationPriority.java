@@ -0,0 +1,5 @@
+package app.model;
+
+public enum NotificationPriority {
+    NORMAL, HIGH
+}
@@ -1,5 +1,8 @@
 package app.model;
 
 public enum NotificationStatus {
-    SUCCEEDED, FAILED
+    SUCCEEDED, FAILED, SCHEDULED, QUEUED, SUPPRESSED, DEAD,
+
+    // handed to a channel without a recorded outcome yet; left over after a crash the send may or may not have happened
+    SENDING
 }
@@ -0,0 +1,25 @@
+package app.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// The user cleared the history; archived notifications created before clearedBefore are no longer returned.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationTombstone {
+
+    @Id
+    private UUID userId;
+
+    @Column(nullable = false)
+    private LocalDateTime clearedBefore;
+}
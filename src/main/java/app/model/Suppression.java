@@ -0,0 +1,32 @@
+package app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A recipient address that must not be contacted again, e.g. after a hard bounce.
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suppression {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // stored trimmed and lower case
+    @Column(nullable = false, unique = true)
+    private String email;
+
+    private String reason;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+}
@@ -0,0 +1,24 @@
+package app.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// Version stamp behind a user's ETags, written by UserVersions; the all-zero user id is the all-users row.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserVersion {
+
+    @Id
+    private UUID userId;
+
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,43 @@
+package app.repository;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// How the plain JDBC statements next to the repositories address rows. UUID columns are UUID in H2 and binary(16) in
+// MySQL - both accept the 16 raw bytes. A notification is looked up by id within a window around its created_on, which
+// lets MySQL prune to the row's monthly partition; it is a window, not an equality, because the column rounds to
+// microseconds.
+public final class JdbcKeys {
+
+    public static final Duration CREATED_ON_SLACK = Duration.ofSeconds(1);
+
+    private JdbcKeys() {
+    }
+
+    public static byte[] toBytes(UUID id) {
+
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID toUuid(byte[] bytes) {
+
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    public static LocalDateTime createdOnFrom(LocalDateTime createdOn) {
+        return createdOn.minus(CREATED_ON_SLACK);
+    }
+
+    public static LocalDateTime createdOnTo(LocalDateTime createdOn) {
+        return createdOn.plus(CREATED_ON_SLACK);
+    }
+}
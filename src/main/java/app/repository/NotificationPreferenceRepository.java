@@ -1,9 +1,13 @@
 package app.repository;
 
 import app.model.NotificationPreference;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +16,10 @@ public interface NotificationPreferenceRepository extends JpaRepository<Notifica
 
     Optional<NotificationPreference> findByUserId(UUID userId);
 
+    // keyset pagination - each batch continues after the last id of the previous one instead of using an OFFSET
+    @Query("""
+            SELECT p FROM NotificationPreference p WHERE p.enabled = true AND p.id > :lastId ORDER BY p.id
+            """)
+    List<NotificationPreference> findEnabledAfter(@Param("lastId") UUID lastId, Limit limit);
+
 }
@@ -2,22 +2,76 @@ package app.repository;
 
 import app.model.Notification;
 import app.model.NotificationStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
 
+    // the createdOn bounds below let MySQL prune the monthly partitions outside the retention window
     @Query("""
-            SELECT n FROM Notification n WHERE n.userId = :userId AND n.isDeleted = false
+            SELECT n FROM Notification n WHERE n.userId = :userId AND n.isDeleted = false AND n.createdOn >= :since
             """)
-    List<Notification> findAllByUserIdAndDeletedIsFalse(@Param("userId") UUID userId);
+    List<Notification> findAllByUserIdAndDeletedIsFalse(@Param("userId") UUID userId, @Param("since") LocalDateTime since);
 
-    List<Notification> findAllByUserIdAndStatus(UUID userId, NotificationStatus status);
+    @Query("""
+            SELECT n FROM Notification n WHERE n.userId = :userId AND n.isDeleted = false AND n.createdOn >= :since ORDER BY n.createdOn DESC
+            """)
+    List<Notification> findNewestByUserId(@Param("userId") UUID userId, @Param("since") LocalDateTime since, Limit limit);
+
+    @Query("""
+            SELECT n FROM Notification n WHERE n.userId = :userId AND n.isDeleted = false AND n.createdOn >= :from AND n.createdOn < :to ORDER BY n.createdOn
+            """)
+    List<Notification> findAllByUserIdCreatedBetween(@Param("userId") UUID userId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("""
+            SELECT n FROM Notification n WHERE n.userId = :userId AND n.status = :status AND n.createdOn >= :since
+            """)
+    List<Notification> findAllByUserIdAndStatus(@Param("userId") UUID userId, @Param("status") NotificationStatus status, @Param("since") LocalDateTime since);
+
+    // served by idx_notification_status_send_at - the scheduler only reads the rows due within its horizon; paged by
+    // id because rows leave SCHEDULED while the pages are read
+    @Query("""
+            SELECT n FROM Notification n WHERE n.status = :status AND n.sendAt <= :until AND n.id > :lastId ORDER BY n.id
+            """)
+    List<Notification> findAllDueBefore(@Param("status") NotificationStatus status, @Param("until") LocalDateTime until, @Param("lastId") UUID lastId, Limit limit);
+
+    @Query("""
+            SELECT n FROM Notification n WHERE n.status = :status AND n.createdOn >= :since AND n.createdOn < :before AND n.id > :lastId ORDER BY n.id
+            """)
+    List<Notification> findAllByStatusCreatedBefore(@Param("status") NotificationStatus status, @Param("since") LocalDateTime since, @Param("before") LocalDateTime before, @Param("lastId") UUID lastId, Limit limit);
+
+    @Query("""
+            SELECT n FROM Notification n WHERE n.status = :status AND n.createdOn >= :since AND n.lastAttemptOn < :before AND n.id > :lastId ORDER BY n.id
+            """)
+    List<Notification> findAllByStatusAttemptedBefore(@Param("status") NotificationStatus status, @Param("since") LocalDateTime since, @Param("before") LocalDateTime before, @Param("lastId") UUID lastId, Limit limit);
+
+    // every filter is optional; the domain matches the end of the recipient address in the user's preference. since
+    // is not, it keeps MySQL to the partitions inside the retention window like the reads above
+    @Query("""
+            SELECT n FROM Notification n
+            WHERE n.status = :status AND n.createdOn >= :since AND n.id > :lastId
+              AND (:from IS NULL OR n.createdOn >= :from)
+              AND (:to IS NULL OR n.createdOn < :to)
+              AND (:failureClass IS NULL OR n.failureClass = :failureClass)
+              AND (:domain IS NULL OR EXISTS (
+                    SELECT p.id FROM NotificationPreference p WHERE p.userId = n.userId AND LOWER(p.contactInfo) LIKE CONCAT('%@', :domain)))
+            ORDER BY n.id
+            """)
+    List<Notification> findAllByStatusFiltered(@Param("status") NotificationStatus status,
+                                               @Param("since") LocalDateTime since,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               @Param("failureClass") String failureClass,
+                                               @Param("domain") String domain,
+                                               @Param("lastId") UUID lastId,
+                                               Limit limit);
 
 }
@@ -0,0 +1,34 @@
+package app.repository;
+
+import app.model.Suppression;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SuppressionRepository extends JpaRepository<Suppression, UUID> {
+
+    Optional<Suppression> findByEmail(String email);
+
+    List<Suppression> findTop100ByOrderByCreatedOnDesc();
+
+    long deleteByEmail(String email);
+
+    @Query("""
+            SELECT s FROM Suppression s WHERE s.id > :lastId ORDER BY s.id
+            """)
+    List<Suppression> findAllAfter(@Param("lastId") UUID lastId, Limit limit);
+
+    @Query("""
+            SELECT MAX(s.createdOn) FROM Suppression s
+            """)
+    Optional<LocalDateTime> findNewestCreatedOn();
+
+}
@@ -0,0 +1,71 @@
+package app.retention;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Native RANGE COLUMNS partitions, set up by db/vendor/mysql/V5. Dropping a partition removes its file instead of
+// deleting row by row, so retention costs neither undo log nor index maintenance.
+@Slf4j
+public class MySqlPartitionOperations implements PartitionOperations {
+
+    static final String FUTURE = "p_future";
+
+    private static final String LIST_PARTITIONS = """
+            SELECT partition_name, partition_description FROM information_schema.partitions
+            WHERE table_schema = DATABASE() AND table_name = 'notification' AND partition_name IS NOT NULL
+            ORDER BY partition_ordinal_position
+            """;
+
+    private static final String FUTURE_HAS_ROWS = "SELECT EXISTS (SELECT 1 FROM notification PARTITION (" + FUTURE + "))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MySqlPartitionOperations(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<NotificationPartition> list() {
+        return jdbcTemplate.query(LIST_PARTITIONS, (resultSet, rowNum) ->
+                new NotificationPartition(resultSet.getString(1), parseBound(resultSet.getString(2))));
+    }
+
+    // Splits the catch-all partition. That only touches metadata while it is empty, which maintenance keeps it by
+    // staying months ahead. Rows already in it, left there when maintenance has not run for longer than that, are
+    // copied into the new partitions under a table lock.
+    @Override
+    public void create(List<YearMonth> months) {
+
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(FUTURE_HAS_ROWS, Boolean.class))) {
+            log.warn("Partition {} holds rows, splitting it into {} copies them and locks notification meanwhile.", FUTURE, months);
+        }
+
+        String partitions = months.stream()
+                .map(month -> String.format("PARTITION %s VALUES LESS THAN ('%s')", PartitionPlan.nameOf(month), month.plusMonths(1).atDay(1)))
+                .collect(Collectors.joining(", "));
+
+        jdbcTemplate.execute("ALTER TABLE notification REORGANIZE PARTITION " + FUTURE + " INTO (" + partitions
+                + ", PARTITION " + FUTURE + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    @Override
+    public void drop(List<NotificationPartition> partitions) {
+        jdbcTemplate.execute("ALTER TABLE notification DROP PARTITION " + partitions.stream().map(NotificationPartition::name).collect(Collectors.joining(", ")));
+    }
+
+    // e.g. '2026-11-01 00:00:00' or MAXVALUE
+    static LocalDate parseBound(String description) {
+
+        String bound = Objects.requireNonNull(description).replace("'", "").trim();
+        if (bound.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(bound.substring(0, 10));
+    }
+}
@@ -0,0 +1,12 @@
+package app.retention;
+
+import java.time.LocalDate;
+
+// One range partition of the notification table; rows created before upperBound (exclusive) live in it. The
+// catch-all partition for future rows has no upper bound.
+public record NotificationPartition(String name, LocalDate upperBound) {
+
+    public boolean isBounded() {
+        return upperBound != null;
+    }
+}
@@ -0,0 +1,70 @@
+package app.retention;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * How long notifications are kept: the current month plus the configured number of whole months before it. Older
+ * rows are removed a partition at a time by {@link PartitionMaintenance}. With the archive on, only months that are
+ * already archived expire, so a stalled archiver delays retention instead of losing rows.
+ * <p>
+ * Reads bound createdOn by {@link #retainedSince()}, so MySQL only opens the partitions inside the retention window
+ * and rows whose partition is due to be dropped are already hidden.
+ */
+@Component
+public class NotificationRetention {
+
+    // keeps the bound in every query when retention is off, so they read the same either way; no row is older
+    public static final LocalDateTime KEEP_ALL = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private final int months;
+    private final boolean archiveEnabled;
+
+    // end of the newest archived month, set by NotificationArchive
+    private volatile LocalDate archivedUntil;
+
+    public NotificationRetention(int months) {
+        this(months, false);
+    }
+
+    @Autowired
+    public NotificationRetention(@Value("${notification.retention.months:0}") int months,
+                                 @Value("${notification.archive.enabled:false}") boolean archiveEnabled) {
+        this.months = months;
+        this.archiveEnabled = archiveEnabled;
+    }
+
+    // First day still retained, or null when nothing expires (months = 0, or nothing archived yet).
+    public LocalDate cutoff(LocalDate today) {
+        return cutoff(today, archivedUntil);
+    }
+
+    // As above, up to the given end of the archive, e.g. the lowest one of all instances before dropping partitions.
+    public LocalDate cutoff(LocalDate today, LocalDate archived) {
+
+        LocalDate cutoff = months <= 0 ? null : YearMonth.from(today).minusMonths(months).atDay(1);
+        if (cutoff == null || !archiveEnabled) {
+            return cutoff;
+        }
+
+        if (archived == null) {
+            return null;
+        }
+        return archived.isBefore(cutoff) ? archived : cutoff;
+    }
+
+    public void archivedUntil(LocalDate archivedUntil) {
+        this.archivedUntil = archivedUntil;
+    }
+
+    public LocalDateTime retainedSince() {
+
+        LocalDate cutoff = cutoff(LocalDate.now());
+        return cutoff == null ? KEEP_ALL : cutoff.atStartOfDay();
+    }
+}
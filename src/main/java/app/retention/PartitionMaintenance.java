@@ -0,0 +1,73 @@
+package app.retention;
+
+import app.archive.NotificationArchive;
+import app.service.UserVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Adds next months' partitions and drops the ones past retention, at startup and then once a day. With the archive on,
+// only partitions every instance has archived are dropped.
+@Slf4j
+@Component
+public class PartitionMaintenance {
+
+    private final PartitionOperations partitionOperations;
+    private final NotificationRetention retention;
+    private final UserVersions userVersions;
+    private final NotificationArchive archive;
+    private final int monthsAhead;
+
+    @Autowired
+    public PartitionMaintenance(PartitionOperations partitionOperations,
+                                NotificationRetention retention,
+                                UserVersions userVersions,
+                                NotificationArchive archive,
+                                @Value("${notification.partitions.months-ahead:3}") int monthsAhead) {
+        this.partitionOperations = partitionOperations;
+        this.retention = retention;
+        this.userVersions = userVersions;
+        this.archive = archive;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        run(LocalDate.now());
+    }
+
+    @Scheduled(cron = "${notification.partitions.maintenance-cron:0 30 3 * * *}")
+    public void runDaily() {
+        run(LocalDate.now());
+    }
+
+    public PartitionPlan run(LocalDate today) {
+
+        try {
+            LocalDate cutoff = archive.isEnabled() ? retention.cutoff(today, archive.sharedArchivedUntil()) : retention.cutoff(today);
+            PartitionPlan plan = PartitionPlan.of(partitionOperations.list(), today, monthsAhead, cutoff);
+            if (!plan.toCreate().isEmpty()) {
+                partitionOperations.create(plan.toCreate());
+            }
+            if (!plan.toDrop().isEmpty()) {
+                partitionOperations.drop(plan.toDrop());
+                // history read with ?from= changes for every user who had rows in them
+                userVersions.bumpAllUsers();
+                log.info("Dropped notification partitions {} past retention.", plan.toDrop().stream().map(NotificationPartition::name).toList());
+            }
+            return plan;
+        } catch (DataAccessException e) {
+            // the next run tries again; until then new rows still have the catch-all partition
+            log.error("Notification partition maintenance failed due to {}.", e.getMessage());
+            return new PartitionPlan(List.of(), List.of());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package app.retention;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// How the partitions of the notification table are read and changed on the database in use.
+public interface PartitionOperations {
+
+    // ordered by upper bound, empty when the table is not partitioned
+    List<NotificationPartition> list();
+
+    void create(List<YearMonth> months);
+
+    void drop(List<NotificationPartition> partitions);
+}
@@ -0,0 +1,48 @@
+package app.retention;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The partitions one maintenance run adds and drops. Monthly partitions are created ahead of time, so rows always
+ * land in a partition of their own month and the catch-all partition stays empty and cheap to split. A partition is
+ * dropped once all of its rows are older than the retention cutoff.
+ */
+public record PartitionPlan(List<YearMonth> toCreate, List<NotificationPartition> toDrop) {
+
+    public static PartitionPlan of(List<NotificationPartition> existing, LocalDate today, int monthsAhead, LocalDate cutoff) {
+
+        if (existing.isEmpty()) {
+            // the table is not partitioned
+            return new PartitionPlan(List.of(), List.of());
+        }
+
+        YearMonth next = existing.stream()
+                .filter(NotificationPartition::isBounded)
+                .map(partition -> YearMonth.from(partition.upperBound()))
+                .max(YearMonth::compareTo)
+                .orElse(YearMonth.from(today));
+
+        List<YearMonth> toCreate = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(YearMonth.from(today).plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            toCreate.add(month);
+        }
+
+        List<NotificationPartition> toDrop = cutoff == null ? List.of() : existing.stream()
+                .filter(NotificationPartition::isBounded)
+                .filter(partition -> !partition.upperBound().isAfter(cutoff))
+                .toList();
+
+        return new PartitionPlan(toCreate, toDrop);
+    }
+
+    public static String nameOf(YearMonth month) {
+        return String.format("p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    public boolean isEmpty() {
+        return toCreate.isEmpty() && toDrop.isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package app.retention;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// Stands in for partitions on databases without them, e.g. H2 in the tests: every month between the oldest and the
+// newest row is a partition, and dropping partitions deletes their rows. Lets the retention run end to end.
+public class SimulatedPartitionOperations implements PartitionOperations {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SimulatedPartitionOperations(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<NotificationPartition> list() {
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_on) FROM notification", Timestamp.class);
+        Timestamp newest = jdbcTemplate.queryForObject("SELECT MAX(created_on) FROM notification", Timestamp.class);
+        if (oldest == null) {
+            return List.of();
+        }
+
+        List<NotificationPartition> partitions = new ArrayList<>();
+        YearMonth last = YearMonth.from(newest.toLocalDateTime());
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); !month.isAfter(last); month = month.plusMonths(1)) {
+            partitions.add(new NotificationPartition(PartitionPlan.nameOf(month), month.plusMonths(1).atDay(1)));
+        }
+        return partitions;
+    }
+
+    @Override
+    public void create(List<YearMonth> months) {
+        // nothing to prepare - a month exists as soon as it has a row
+    }
+
+    @Override
+    public void drop(List<NotificationPartition> partitions) {
+
+        LocalDate upperBound = partitions.stream()
+                .map(NotificationPartition::upperBound)
+                .max(LocalDate::compareTo)
+                .orElseThrow();
+        jdbcTemplate.update("DELETE FROM notification WHERE created_on < ?", upperBound.atStartOfDay());
+    }
+}
@@ -0,0 +1,8 @@
+package app.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Published by NotificationService once a SCHEDULED row is stored, so it can enter the timing wheel right away.
+public record NotificationScheduledEvent(UUID notificationId, LocalDateTime sendAt, String caller) {
+}
@@ -0,0 +1,139 @@
+package app.scheduler;
+
+import app.limit.WeightedFairQueue;
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.NotificationRepository;
+import app.service.NotificationDispatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the SCHEDULED notifications due within the next horizon in a timing wheel and hands them to the dispatcher
+// when they expire. The database is only read once per load interval and only for the rows inside the horizon.
+@Slf4j
+@Component
+public class NotificationScheduler {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final Duration tick;
+    private final Duration horizon;
+    private final int batchSize;
+
+    private final TimingWheel<UUID> wheel;
+    // ids that are in the wheel or being dispatched, with their caller - protects against loading the same row twice
+    private final Map<UUID, String> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "notification-scheduler-tick"));
+
+    @Autowired
+    public NotificationScheduler(NotificationRepository notificationRepository,
+                                 NotificationDispatcher notificationDispatcher,
+                                 @Value("${notification.scheduler.tick:100ms}") Duration tick,
+                                 @Value("${notification.scheduler.ticks-per-wheel:1024}") int ticksPerWheel,
+                                 @Value("${notification.scheduler.horizon:2m}") Duration horizon,
+                                 @Value("${notification.scheduler.batch-size:1000}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.tick = tick;
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel<>(tick.toMillis(), ticksPerWheel, System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker.scheduleAtFixedRate(this::fireExpired, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    // The load interval must stay below the horizon, otherwise rows due between two loads arrive late.
+    @Scheduled(fixedDelayString = "${notification.scheduler.load-interval:1m}")
+    public void loadHorizon() {
+
+        LocalDateTime until = LocalDateTime.now().plus(horizon);
+        UUID lastId = FIRST_ID;
+        int loaded = 0;
+
+        // keyset paging - fireExpired moves rows out of SCHEDULED meanwhile, which would shift offset pages
+        while (true) {
+            List<Notification> due = notificationRepository.findAllDueBefore(NotificationStatus.SCHEDULED, until, lastId, Limit.of(batchSize));
+            due.forEach(notification -> schedule(notification.getId(), notification.getSendAt(), notification.getCaller()));
+            loaded += due.size();
+
+            if (due.size() < batchSize) {
+                break;
+            }
+            lastId = due.get(due.size() - 1).getId();
+        }
+
+        log.debug("Loaded {} scheduled notifications due before {}, {} waiting in the timing wheel.", loaded, until, wheel.size());
+    }
+
+    @EventListener
+    public void onNotificationScheduled(NotificationScheduledEvent event) {
+
+        // anything beyond the horizon is picked up by a later load
+        if (event.sendAt().isBefore(LocalDateTime.now().plus(horizon))) {
+            schedule(event.notificationId(), event.sendAt(), event.caller());
+        }
+    }
+
+    private void schedule(UUID notificationId, LocalDateTime sendAt, String caller) {
+
+        if (pending.putIfAbsent(notificationId, Objects.requireNonNullElse(caller, WeightedFairQueue.DEFAULT_CALLER)) == null) {
+            wheel.schedule(notificationId, sendAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    // Runs on the ticker, where an uncaught exception would cancel every later tick without a trace - nothing may
+    // escape it.
+    void fireExpired() {
+
+        List<UUID> expired;
+        try {
+            expired = wheel.advance(System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("Scheduler tick failed due to {}.", e.getMessage());
+            return;
+        }
+
+        for (UUID notificationId : expired) {
+            try {
+                notificationDispatcher.dispatch(notificationId, pending.get(notificationId)).whenComplete((result, error) -> pending.remove(notificationId));
+            } catch (TaskRejectedException e) {
+                // dispatcher is saturated - the row is still SCHEDULED, so the next load brings it back
+                pending.remove(notificationId);
+                log.warn("Dispatcher rejected scheduled notification {}, it will be retried on the next load.", notificationId);
+            } catch (Exception e) {
+                pending.remove(notificationId);
+                log.error("Dispatch of scheduled notification {} failed due to {}, it will be retried on the next load.", notificationId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package app.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel (Varghese &amp; Lauck). Scheduling is O(1): a task is appended to the bucket of its
+ * deadline tick and carries the number of full wheel revolutions it still has to wait. Advancing the wheel
+ * only touches the buckets of the ticks that elapsed.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final ArrayDeque<Entry<T>>[] buckets;
+    private final long startMillis;
+
+    // index of the next tick that has not been processed yet
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int ticksPerWheel, long startMillis) {
+
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive.");
+        }
+
+        // round up to a power of two so the bucket index is a mask instead of a modulo
+        int wheelSize = Integer.highestOneBit(Math.max(ticksPerWheel, 2) - 1) << 1;
+
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.startMillis = startMillis;
+    }
+
+    public synchronized void schedule(T task, long deadlineMillis) {
+
+        // round up so a task never fires before its deadline; overdue tasks go into the next tick
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis - startMillis, tickMillis), currentTick);
+        long rounds = (deadlineTick - currentTick) / buckets.length;
+
+        buckets[(int) (deadlineTick & mask)].add(new Entry<>(task, rounds));
+        size++;
+    }
+
+    /**
+     * Processes every tick up to {@code nowMillis} and returns the tasks whose deadline has passed.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        List<T> expired = new ArrayList<>();
+
+        while (currentTick <= targetTick) {
+            Iterator<Entry<T>> iterator = buckets[(int) (currentTick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Entry<T> entry = iterator.next();
+                if (entry.rounds <= 0) {
+                    iterator.remove();
+                    expired.add(entry.task);
+                } else {
+                    entry.rounds--;
+                }
+            }
+            currentTick++;
+        }
+
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static final class Entry<T> {
+
+        private final T task;
+        private long rounds;
+
+        private Entry(T task, long rounds) {
+            this.task = task;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package app.service;
+
+import app.exception.TooManyRequestsException;
+import app.limit.GradientLimit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for synchronous sends. In-flight requests are capped by a {@link GradientLimit}, so the cap
+ * follows request latency. Requests over the limit, or arriving while the dispatcher backlog is above its
+ * high-water mark, are rejected right away. Accepted requests therefore keep a bounded latency instead of queueing
+ * in Tomcat.
+ * <p>
+ * The Retry-After of a full backlog is the time the dispatcher needs to work it off at its recent throughput, which is
+ * sampled from its completed count at most once a second as requests arrive.
+ */
+@Slf4j
+@Component
+public class AdmissionLimiter {
+
+    private static final long SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // a longer gap says nothing about the current throughput, it only restarts the sampling
+    private static final long MAX_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // clients retrying much later than this would rather have the request fail
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final NotificationDispatcher notificationDispatcher;
+    private final GradientLimit limit;
+    private final int maxBacklog;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    private volatile long lastSampleNanos;
+    private volatile long lastCompleted;
+    // dispatches completed per second, smoothed; 0 until the first sample
+    private volatile double throughput;
+
+    @Autowired
+    public AdmissionLimiter(NotificationDispatcher notificationDispatcher,
+                            @Value("${notification.admission.initial-limit:20}") int initialLimit,
+                            @Value("${notification.admission.min-limit:4}") int minLimit,
+                            @Value("${notification.admission.max-limit:200}") int maxLimit,
+                            @Value("${notification.admission.rtt-tolerance:1.5}") double rttTolerance,
+                            @Value("${notification.admission.max-backlog:5000}") int maxBacklog) {
+        this(notificationDispatcher, initialLimit, minLimit, maxLimit, rttTolerance, maxBacklog, System::nanoTime);
+    }
+
+    AdmissionLimiter(NotificationDispatcher notificationDispatcher, int initialLimit, int minLimit, int maxLimit, double rttTolerance, int maxBacklog, LongSupplier nanoClock) {
+        this.notificationDispatcher = notificationDispatcher;
+        this.limit = new GradientLimit(initialLimit, minLimit, maxLimit, rttTolerance);
+        this.maxBacklog = maxBacklog;
+        this.nanoClock = nanoClock;
+        this.lastSampleNanos = nanoClock.getAsLong();
+    }
+
+    public Permit acquire() {
+
+        checkBacklog();
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                throw new TooManyRequestsException("Too many notifications are being sent right now, please retry later.", retryAfterSeconds());
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    // Rejects with 429 while the dispatcher backlog is above its high-water mark. On its own for requests that only
+    // add to the backlog and hold no permit while they wait.
+    public void checkBacklog() {
+
+        sampleThroughput();
+        int queueSize = notificationDispatcher.getQueueSize();
+        if (queueSize > maxBacklog) {
+            throw new TooManyRequestsException("Notification backlog is full, please retry later.", backlogRetryAfterSeconds(queueSize));
+        }
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // Time for the dispatcher to work off the backlog at its recent throughput, rounded up to whole seconds.
+    private long backlogRetryAfterSeconds(int queueSize) {
+
+        double rate = throughput;
+        if (rate <= 0) {
+            return retryAfterSeconds();
+        }
+        return Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(1, (long) Math.ceil(queueSize / rate)));
+    }
+
+    private void sampleThroughput() {
+
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed < SAMPLE_NANOS || !sampling.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long completed = notificationDispatcher.getCompletedCount();
+            if (elapsed <= MAX_SAMPLE_NANOS) {
+                double rate = (completed - lastCompleted) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                throughput = throughput == 0 ? rate : (throughput + rate) / 2;
+            }
+            lastCompleted = completed;
+            lastSampleNanos = now;
+        } finally {
+            sampling.set(false);
+        }
+    }
+
+    // Time for the requests ahead to drain at the current limit, rounded up to whole seconds.
+    private long retryAfterSeconds() {
+
+        double drainNanos = limit.getSmoothedRttNanos() * Math.max(1.0, (double) inFlight.get() / Math.max(1, limit.getLimit()));
+        return Math.max(1, (long) Math.ceil(drainNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    public class Permit {
+
+        private final long startNanos = nanoClock.getAsLong();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean dropped;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        // The request failed because a dependency is overloaded - back off instead of learning its latency.
+        public void drop() {
+            dropped = true;
+        }
+
+        public void release() {
+
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                limit.onSample(nanoClock.getAsLong() - startNanos, inFlightAtStart, dropped);
+            }
+        }
+    }
+}
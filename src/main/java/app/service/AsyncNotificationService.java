@@ -0,0 +1,47 @@
+package app.service;
+
+import app.exception.TooManyRequestsException;
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.web.dto.NotificationRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+// Accepts a notification without waiting for its delivery - the caller polls GET /api/v1/notifications/{id}.
+@Slf4j
+@Service
+public class AsyncNotificationService {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final NotificationService notificationService;
+    private final NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    public AsyncNotificationService(NotificationService notificationService, NotificationDispatcher notificationDispatcher) {
+        this.notificationService = notificationService;
+        this.notificationDispatcher = notificationDispatcher;
+    }
+
+    // Returns the stored QUEUED or SCHEDULED notification. A full dispatcher rejects the request instead of leaving
+    // a QUEUED row that nothing would pick up before the next restart.
+    public Notification acceptNotification(NotificationRequest notificationRequest) {
+
+        Notification notification = notificationService.queueNotification(notificationRequest);
+        if (notification.getStatus() != NotificationStatus.QUEUED) {
+            return notification;
+        }
+
+        try {
+            notificationDispatcher.dispatch(notification.getId(), notification.getCaller());
+        } catch (TaskRejectedException e) {
+            notificationService.discardQueued(notification);
+            log.warn("Notification for user {} was rejected because the dispatcher is full.", notification.getUserId());
+            throw new TooManyRequestsException("Too many notifications are waiting for delivery, please retry later.", RETRY_AFTER_SECONDS);
+        }
+
+        return notification;
+    }
+}
@@ -0,0 +1,40 @@
+package app.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of one broadcast, updated concurrently by the streaming loop and the dispatcher threads.
+@Getter
+public class BroadcastJob {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id;
+    private final String subject;
+    private final LocalDateTime startedOn;
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    // not sent because the recipient is on the suppression list, which is not a failure of the broadcast
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile State state = State.RUNNING;
+    private volatile LocalDateTime completedOn;
+
+    public BroadcastJob(UUID id, String subject) {
+        this.id = id;
+        this.subject = subject;
+        this.startedOn = LocalDateTime.now();
+    }
+
+    // completedOn is written first, so whoever sees the job finished also sees when
+    void complete(State state) {
+        this.completedOn = LocalDateTime.now();
+        this.state = state;
+    }
+}
@@ -0,0 +1,174 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationStatus;
+import app.repository.NotificationPreferenceRepository;
+import app.repository.NotificationRepository;
+import app.web.dto.BroadcastRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+@Slf4j
+@Service
+public class BroadcastService {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final NotificationPreferenceRepository notificationPreferenceRepository;
+    private final NotificationRepository notificationRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final UserVersions userVersions;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final int maxRetainedJobs;
+
+    private final Map<UUID, BroadcastJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService runner = Executors.newCachedThreadPool(r -> new Thread(r, "notification-broadcast"));
+
+    @Autowired
+    public BroadcastService(NotificationPreferenceRepository notificationPreferenceRepository,
+                            NotificationRepository notificationRepository,
+                            NotificationDispatcher notificationDispatcher,
+                            UserVersions userVersions,
+                            @Value("${notification.broadcast.batch-size:500}") int batchSize,
+                            @Value("${notification.broadcast.max-in-flight:1000}") int maxInFlight,
+                            @Value("${notification.broadcast.retained-jobs:100}") int maxRetainedJobs) {
+        this.notificationPreferenceRepository = notificationPreferenceRepository;
+        this.notificationRepository = notificationRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.userVersions = userVersions;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.maxRetainedJobs = maxRetainedJobs;
+    }
+
+    public BroadcastJob startBroadcast(BroadcastRequest broadcastRequest) {
+
+        BroadcastJob job = new BroadcastJob(UUID.randomUUID(), broadcastRequest.getSubject());
+        evictCompletedJobs();
+        jobs.put(job.getId(), job);
+
+        runner.execute(() -> run(job, broadcastRequest));
+
+        return job;
+    }
+
+    public BroadcastJob getBroadcastJob(UUID jobId) {
+
+        BroadcastJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NullPointerException(String.format("Broadcast job with id %s was not found.", jobId));
+        }
+
+        return job;
+    }
+
+    // Streams the enabled preferences batch by batch, so only one batch of rows and at most maxInFlight
+    // undelivered notifications are held in memory at any time.
+    private void run(BroadcastJob job, BroadcastRequest broadcastRequest) {
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        UUID lastId = FIRST_ID;
+
+        try {
+            while (true) {
+                List<NotificationPreference> preferences = notificationPreferenceRepository.findEnabledAfter(lastId, Limit.of(batchSize));
+                if (preferences.isEmpty()) {
+                    break;
+                }
+
+                // one INSERT batch per page thanks to hibernate.jdbc.batch_size
+                List<Notification> notifications = notificationRepository.saveAll(preferences.stream()
+                        .map(preference -> queuedNotification(preference, broadcastRequest))
+                        .toList());
+                job.getQueued().addAndGet(notifications.size());
+                userVersions.bump(preferences.stream().map(NotificationPreference::getUserId).toList());
+
+                for (int i = 0; i < notifications.size(); i++) {
+                    inFlight.acquire();
+                    dispatch(job, notifications.get(i), preferences.get(i), inFlight);
+                }
+
+                lastId = preferences.get(preferences.size() - 1).getId();
+            }
+
+            // wait for the tail of the last batch
+            inFlight.acquire(maxInFlight);
+            job.complete(BroadcastJob.State.COMPLETED);
+            log.info("Broadcast {} completed: {} queued, {} succeeded, {} suppressed, {} failed.", job.getId(), job.getQueued(), job.getSucceeded(), job.getSuppressed(), job.getFailed());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.complete(BroadcastJob.State.FAILED);
+        } catch (Exception e) {
+            job.complete(BroadcastJob.State.FAILED);
+            log.error("Broadcast {} stopped after {} queued notifications due to {}.", job.getId(), job.getQueued(), e.getMessage());
+        }
+    }
+
+    private void dispatch(BroadcastJob job, Notification notification, NotificationPreference preference, Semaphore inFlight) throws InterruptedException {
+
+        while (true) {
+            try {
+                notificationDispatcher.dispatch(notification, preference).whenComplete((result, error) -> {
+                    switch (notification.getStatus()) {
+                        case SUCCEEDED -> job.getSucceeded().incrementAndGet();
+                        case SUPPRESSED -> job.getSuppressed().incrementAndGet();
+                        default -> job.getFailed().incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+                return;
+            } catch (TaskRejectedException e) {
+                // dispatcher queue or this caller's share of it is full - wait for it to drain, the row stays QUEUED
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private Notification queuedNotification(NotificationPreference preference, BroadcastRequest broadcastRequest) {
+
+        return Notification.builder()
+                .subject(broadcastRequest.getSubject())
+                .body(broadcastRequest.getBody())
+                .createdOn(LocalDateTime.now())
+                .status(NotificationStatus.QUEUED)
+                .userId(preference.getUserId())
+                .isDeleted(false)
+                .type(preference.getType())
+                .caller(broadcastRequest.getCaller())
+                .build();
+    }
+
+    private void evictCompletedJobs() {
+
+        if (jobs.size() < maxRetainedJobs) {
+            return;
+        }
+
+        jobs.values().stream()
+                .filter(job -> job.getState() != BroadcastJob.State.RUNNING)
+                .min(Comparator.comparing(BroadcastJob::getCompletedOn, Comparator.nullsLast(Comparator.naturalOrder())))
+                .ifPresent(job -> jobs.remove(job.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.NotificationRepository;
+import app.retention.NotificationRetention;
+import app.web.dto.DeadLetterReplayRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+// Puts DEAD notifications back in front of the dispatcher, e.g. after a misconfigured relay or a fixed contact address.
+@Slf4j
+@Service
+public class DeadLetterService {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationRetention retention;
+    private final NotificationDispatcher notificationDispatcher;
+    private final UserVersions userVersions;
+    private final RecentStatusCache recentStatusCache;
+    private final RecentHistoryCache recentHistoryCache;
+    private final int batchSize;
+
+    @Autowired
+    public DeadLetterService(NotificationRepository notificationRepository,
+                             NotificationRetention retention,
+                             NotificationDispatcher notificationDispatcher,
+                             UserVersions userVersions,
+                             RecentStatusCache recentStatusCache,
+                             RecentHistoryCache recentHistoryCache,
+                             @Value("${notification.dead-letter.batch-size:500}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.retention = retention;
+        this.notificationDispatcher = notificationDispatcher;
+        this.userVersions = userVersions;
+        this.recentStatusCache = recentStatusCache;
+        this.recentHistoryCache = recentHistoryCache;
+        this.batchSize = batchSize;
+    }
+
+    // Each batch is stored as QUEUED with a fresh attempt budget before it is dispatched, so rows a crash interrupts
+    // are picked up by NotificationRecovery instead of staying DEAD.
+    public long replay(DeadLetterReplayRequest request) {
+
+        String domain = request.getDomain() == null ? null : request.getDomain().trim().toLowerCase(Locale.ROOT);
+        LocalDateTime since = retention.retainedSince();
+        UUID lastId = FIRST_ID;
+        long replayed = 0;
+
+        while (true) {
+            List<Notification> deadLetters = notificationRepository.findAllByStatusFiltered(NotificationStatus.DEAD, since,
+                    request.getFrom(), request.getTo(), request.getErrorClass(), domain, lastId, Limit.of(batchSize));
+            if (deadLetters.isEmpty()) {
+                break;
+            }
+
+            deadLetters.forEach(notification -> {
+                notification.setStatus(NotificationStatus.QUEUED);
+                notification.setAttempts(0);
+            });
+            notificationRepository.saveAll(deadLetters);
+            deadLetters.forEach(notification -> {
+                userVersions.bump(notification.getUserId());
+                recentStatusCache.put(notification);
+                recentHistoryCache.update(notification);
+            });
+
+            for (Notification notification : deadLetters) {
+                dispatch(notification);
+            }
+
+            replayed += deadLetters.size();
+            lastId = deadLetters.get(deadLetters.size() - 1).getId();
+        }
+
+        log.info("Replayed {} dead letters.", replayed);
+        return replayed;
+    }
+
+    private void dispatch(Notification notification) {
+
+        while (true) {
+            try {
+                notificationDispatcher.dispatch(notification.getId(), notification.getCaller());
+                return;
+            } catch (TaskRejectedException e) {
+                // dispatcher queue is full - wait for it to drain, the row is already QUEUED
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package app.service;
+
+import app.autoscale.ScalablePool;
+import app.config.FairnessProperties;
+import app.limit.WeightedFairQueue;
+import app.model.Notification;
+import app.model.NotificationPreference;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Delivers already stored notifications off the request thread. Waiting dispatches are queued per caller and taken
+// in weighted round robin (WeightedFairQueue), so one caller's backlog does not delay everybody else's. The pool is
+// resized at runtime by PoolAutoscaler when notification.autoscale.pools.dispatch is configured.
+@Slf4j
+@Component
+public class NotificationDispatcher implements ScalablePool {
+
+    private final NotificationService notificationService;
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration drainTimeout;
+
+    // dispatches accepted but not finished, including the time spent in the channel
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean accepting = true;
+
+    @Autowired
+    public NotificationDispatcher(NotificationService notificationService,
+                                  @Value("${notification.dispatch.pool-size:8}") int poolSize,
+                                  @Value("${notification.dispatch.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${notification.dispatch.drain-timeout:20s}") Duration drainTimeout,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                  FairnessProperties fairness,
+                                  MeterRegistry meterRegistry) {
+        this.notificationService = notificationService;
+        this.drainTimeout = drainTimeout;
+
+        this.executor = new ThreadPoolTaskExecutor() {
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int capacity) {
+                return new WeightedFairQueue("dispatch", capacity, fairness, meterRegistry);
+            }
+        };
+        this.executor.setThreadNamePrefix("notification-dispatch-");
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaxPoolSize(poolSize);
+        this.executor.setQueueCapacity(queueCapacity);
+        // the pool size still bounds concurrent dispatches, the Hikari pool bounds the ones inside the database
+        this.executor.setVirtualThreads(virtualThreads);
+        this.executor.initialize();
+    }
+
+    // Throws TaskRejectedException when the queue or the caller's share of it is full, the caller decides whether to
+    // retry later. The dispatch thread only loads the row and hands it to its channel; the returned future completes
+    // when the channel is done. A null caller is the default caller.
+    public CompletableFuture<Void> dispatch(UUID notificationId, String caller) {
+        return track(notificationId, caller, () -> notificationService.dispatchNotification(notificationId));
+    }
+
+    public CompletableFuture<Void> dispatch(Notification notification, NotificationPreference userPreference) {
+        return track(notification.getId(), notification.getCaller(), () -> notificationService.dispatchNotification(notification, userPreference));
+    }
+
+    private CompletableFuture<Void> track(UUID notificationId, String caller, Supplier<CompletableFuture<Void>> dispatch) {
+
+        if (!accepting) {
+            // shutting down - the row stays QUEUED or SCHEDULED and is picked up after the restart
+            throw new TaskRejectedException("Dispatcher is shutting down, notification %s was not accepted.".formatted(notificationId));
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(dispatch, WeightedFairQueue.forCaller(executor, caller))
+                    .thenCompose(Function.identity())
+                    .exceptionally(e -> {
+                        log.warn("Dispatch of notification {} failed due to {}.", notificationId, e.getMessage());
+                        return null;
+                    })
+                    .whenComplete((ignored, e) -> inFlight.decrementAndGet());
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        return executor.getQueueSize();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public String getPoolName() {
+        return "dispatch";
+    }
+
+    @Override
+    public int getPoolSize() {
+        return executor.getCorePoolSize();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return executor.getThreadPoolExecutor().getCompletedTaskCount();
+    }
+
+    @Override
+    public long getOldestWaitNanos() {
+        return ((WeightedFairQueue) executor.getThreadPoolExecutor().getQueue()).getOldestWaitNanos();
+    }
+
+    // Surplus threads stop once they finish their current dispatch.
+    @Override
+    public void setPoolSize(int poolSize) {
+
+        // the core size may never exceed the maximum
+        if (poolSize > executor.getMaxPoolSize()) {
+            executor.setMaxPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaxPoolSize(poolSize);
+        }
+    }
+
+    // Stops intake and waits up to the drain timeout for accepted dispatches to finish. Whatever is still running
+    // afterwards is interrupted: queued rows keep their status and are recovered on the next start, rows already
+    // handed to a channel are SENDING and resolved by NotificationRecovery.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+
+        accepting = false;
+
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        if (inFlight.get() > 0) {
+            log.warn("Dispatcher did not drain within {}, {} notifications are left for recovery.", drainTimeout, inFlight.get());
+        } else {
+            log.info("Dispatcher drained.");
+        }
+
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,217 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.JdbcKeys;
+import app.repository.NotificationRepository;
+import app.retention.NotificationRetention;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Re-dispatches the QUEUED rows a previous process accepted but never confirmed, e.g. a broadcast interrupted by a
+// restart, and resolves SENDING rows whose outcome was never recorded because the process died during the send.
+// Every instance runs the periodic check, so each row is claimed with a conditional update and only the instance whose
+// update changed it resolves and dispatches it.
+@Slf4j
+@Component
+public class NotificationRecovery {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+    static final String INTERRUPTED_SEND = "InterruptedSend";
+
+    // still SENDING with the attempt that was read - another instance or a late outcome has not got there first; the
+    // created_on window prunes to the row's partition, see JdbcKeys
+    private static final String CLAIM = "UPDATE notification SET status = ?, attempts = ?, failure_class = ?, failure_reason = ? "
+            + "WHERE id = ? AND created_on BETWEEN ? AND ? AND status = 'SENDING' AND last_attempt_on = ?";
+
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationDispatcher notificationDispatcher;
+    private final UserVersions userVersions;
+    private final RecentStatusCache recentStatusCache;
+    private final RecentHistoryCache recentHistoryCache;
+    private final NotificationRetention retention;
+    private final int batchSize;
+    private final Duration sendingTimeout;
+    private final boolean resendInterrupted;
+    private final int maxAttempts;
+
+    @Autowired
+    public NotificationRecovery(NotificationRepository notificationRepository,
+                                JdbcTemplate jdbcTemplate,
+                                NotificationDispatcher notificationDispatcher,
+                                UserVersions userVersions,
+                                RecentStatusCache recentStatusCache,
+                                RecentHistoryCache recentHistoryCache,
+                                NotificationRetention retention,
+                                @Value("${notification.recovery.batch-size:500}") int batchSize,
+                                @Value("${notification.recovery.sending-timeout:5m}") Duration sendingTimeout,
+                                @Value("${notification.recovery.resend-interrupted:true}") boolean resendInterrupted,
+                                @Value("${notification.delivery.max-attempts:5}") int maxAttempts) {
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationDispatcher = notificationDispatcher;
+        this.userVersions = userVersions;
+        this.recentStatusCache = recentStatusCache;
+        this.recentHistoryCache = recentHistoryCache;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.sendingTimeout = sendingTimeout;
+        this.resendInterrupted = resendInterrupted;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        // anything created by this process is still owned by it
+        LocalDateTime startedOn = LocalDateTime.now();
+
+        Thread recovery = new Thread(() -> {
+            // rows put back to QUEUED here are dispatched by replayQueued, not twice
+            resolveInterrupted(startedOn.minus(sendingTimeout), false);
+            replayQueued(startedOn);
+        }, "notification-recovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    // Catches sends interrupted shortly before this process started, which the startup pass leaves alone because
+    // another instance may still be waiting for them.
+    @Scheduled(fixedDelayString = "${notification.recovery.sending-check-interval:1m}", initialDelayString = "${notification.recovery.sending-check-interval:1m}")
+    public void resolveAbandonedSends() {
+        resolveInterrupted(LocalDateTime.now().minus(sendingTimeout), true);
+    }
+
+    // A SENDING row older than the sending timeout belongs to a process that died during the send - no channel waits
+    // that long. Whether the message went out is unknown, so the attempt counts. With resend-interrupted the row goes
+    // back to QUEUED and is delivered again, accepting a possible duplicate; otherwise it becomes DEAD with the
+    // failure class InterruptedSend and can be replayed selectively through the dead-letter endpoint.
+    synchronized void resolveInterrupted(LocalDateTime before, boolean dispatch) {
+
+        UUID lastId = FIRST_ID;
+        int resolved = 0;
+
+        try {
+            while (true) {
+                List<Notification> interrupted = notificationRepository.findAllByStatusAttemptedBefore(NotificationStatus.SENDING, retention.retainedSince(), before, lastId, Limit.of(batchSize));
+                if (interrupted.isEmpty()) {
+                    break;
+                }
+
+                List<Notification> claimed = new ArrayList<>();
+                for (Notification notification : interrupted) {
+                    if (claim(notification)) {
+                        claimed.add(notification);
+                    }
+                }
+                if (!claimed.isEmpty()) {
+                    userVersions.bump(claimed.stream().map(Notification::getUserId).toList());
+                }
+                claimed.forEach(notification -> {
+                    recentStatusCache.put(notification);
+                    recentHistoryCache.update(notification);
+                });
+
+                for (Notification notification : claimed) {
+                    if (dispatch && notification.getStatus() == NotificationStatus.QUEUED) {
+                        dispatch(notification);
+                    }
+                }
+
+                resolved += claimed.size();
+                lastId = interrupted.get(interrupted.size() - 1).getId();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Resolving interrupted sends stopped after {} rows due to {}.", resolved, e.getMessage());
+            return;
+        }
+
+        if (resolved > 0) {
+            log.warn("Resolved {} notifications whose send was interrupted, resend={}.", resolved, resendInterrupted);
+        }
+    }
+
+    // Sets the outcome on the notification only when this instance won the row.
+    private boolean claim(Notification notification) {
+
+        int attempts = notification.getAttempts() + 1;
+        NotificationStatus status = resendInterrupted && attempts < maxAttempts ? NotificationStatus.QUEUED : NotificationStatus.DEAD;
+        String failureReason = "The process stopped before the outcome of the send was recorded.";
+
+        LocalDateTime createdOn = notification.getCreatedOn();
+        int updated = jdbcTemplate.update(CLAIM, status.name(), attempts, INTERRUPTED_SEND, failureReason, JdbcKeys.toBytes(notification.getId()),
+                JdbcKeys.createdOnFrom(createdOn), JdbcKeys.createdOnTo(createdOn), notification.getLastAttemptOn());
+        if (updated != 1) {
+            return false;
+        }
+
+        notification.setAttempts(attempts);
+        notification.setFailureClass(INTERRUPTED_SEND);
+        notification.setFailureReason(failureReason);
+        notification.setStatus(status);
+        return true;
+    }
+
+    // During a rolling deploy a live instance may still hold some of these rows in its dispatcher queue. Both go
+    // through the dispatcher, which claims the row QUEUED -> SENDING before the send, so whichever comes second skips it.
+    void replayQueued(LocalDateTime before) {
+
+        UUID lastId = FIRST_ID;
+        int replayed = 0;
+
+        try {
+            while (true) {
+                List<Notification> queued = notificationRepository.findAllByStatusCreatedBefore(NotificationStatus.QUEUED, retention.retainedSince(), before, lastId, Limit.of(batchSize));
+                if (queued.isEmpty()) {
+                    break;
+                }
+
+                for (Notification notification : queued) {
+                    dispatch(notification);
+                }
+
+                replayed += queued.size();
+                lastId = queued.get(queued.size() - 1).getId();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Recovery of queued notifications stopped after {} rows due to {}.", replayed, e.getMessage());
+            return;
+        }
+
+        if (replayed > 0) {
+            log.info("Re-dispatched {} notifications left QUEUED by a previous run.", replayed);
+        }
+    }
+
+    private void dispatch(Notification notification) throws InterruptedException {
+
+        while (true) {
+            try {
+                notificationDispatcher.dispatch(notification.getId(), notification.getCaller());
+                return;
+            } catch (TaskRejectedException e) {
+                // dispatcher queue is full - wait for it to drain instead of dropping the row
+                Thread.sleep(100);
+            }
+        }
+    }
+}
@@ -1,25 +1,49 @@
 package app.service;
 
 
+import app.archive.NotificationArchive;
+import app.channel.ChannelRouter;
+import app.exception.ChannelRejectedException;
+import app.exception.CircuitOpenException;
+import app.exception.ConcurrencyLimitExceededException;
+import app.exception.NotificationNotFoundException;
+import app.exception.NotificationStoredException;
+import app.mail.SmtpFailures;
+import app.jfr.NotificationPersistEvent;
+import app.jfr.PreferenceLookupEvent;
+import app.jfr.SmtpSendEvent;
 import app.model.Notification;
 import app.model.NotificationPreference;
 import app.model.NotificationStatus;
-import app.model.NotificationType;
 import app.repository.NotificationPreferenceRepository;
 import app.repository.NotificationRepository;
+import app.retention.NotificationRetention;
+import app.scheduler.NotificationScheduledEvent;
+import app.stream.NotificationStoredEvent;
+import app.timing.RequestTiming;
 import app.web.dto.NotificationRequest;
+import app.web.dto.NotificationResponse;
 import app.web.dto.UpsertNotificationPreference;
 import app.web.mapper.DtoMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.MailSender;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -27,13 +51,32 @@ public class NotificationService {
 
     private final NotificationPreferenceRepository notificationPreferenceRepository;
     private final NotificationRepository notificationRepository;
-    private final MailSender mailSender;
+    private final ChannelRouter channelRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserVersions userVersions;
+    private final NotificationStatusWriter statusWriter;
+    private final SuppressionService suppressionService;
+    private final RecentStatusCache recentStatusCache;
+    private final RecentHistoryCache recentHistoryCache;
+    private final NotificationRetention retention;
+    private final NotificationArchive archive;
+    private final int maxAttempts;
 
     @Autowired
-    public NotificationService(NotificationPreferenceRepository notificationPreferenceRepository, NotificationRepository notificationRepository, MailSender mailSender) {
+    public NotificationService(NotificationPreferenceRepository notificationPreferenceRepository, NotificationRepository notificationRepository, ChannelRouter channelRouter, ApplicationEventPublisher eventPublisher, UserVersions userVersions, NotificationStatusWriter statusWriter, SuppressionService suppressionService, RecentStatusCache recentStatusCache, RecentHistoryCache recentHistoryCache, NotificationRetention retention, NotificationArchive archive,
+                               @Value("${notification.delivery.max-attempts:5}") int maxAttempts) {
         this.notificationPreferenceRepository = notificationPreferenceRepository;
         this.notificationRepository = notificationRepository;
-        this.mailSender = mailSender;
+        this.channelRouter = channelRouter;
+        this.eventPublisher = eventPublisher;
+        this.userVersions = userVersions;
+        this.statusWriter = statusWriter;
+        this.suppressionService = suppressionService;
+        this.recentStatusCache = recentStatusCache;
+        this.recentHistoryCache = recentHistoryCache;
+        this.retention = retention;
+        this.archive = archive;
+        this.maxAttempts = maxAttempts;
     }
 
     public NotificationPreference changeNotificationPreference(UUID userId, boolean enabled) {
@@ -42,25 +85,89 @@ public class NotificationService {
         // if it does not exist - then throws exception
         NotificationPreference notificationPreference = getPreferenceByUserId(userId);
         notificationPreference.setEnabled(enabled);
-        return notificationPreferenceRepository.save(notificationPreference);
+        NotificationPreference saved = notificationPreferenceRepository.save(notificationPreference);
+        userVersions.bump(userId);
+        return saved;
     }
 
     public NotificationPreference getPreferenceByUserId(UUID userId) {
-        return notificationPreferenceRepository.findByUserId(userId).orElseThrow(() -> new NullPointerException(String.format("Notification preference for user id %s was not found.", userId)));
+        return findPreference(userId).orElseThrow(() -> new NullPointerException(String.format("Notification preference for user id %s was not found.", userId)));
     }
 
     public List<Notification> getNotificationHistory(UUID userId) {
-        return notificationRepository.findAllByUserIdAndDeletedIsFalse(userId);
+        return notificationRepository.findAllByUserIdAndDeletedIsFalse(userId, retention.retainedSince());
+    }
+
+    // Notifications created in [from, to), oldest first; either bound may be null. The part of the range before the
+    // retention window is read from the archive, the rest from the table, where MySQL only opens the partitions inside
+    // the range.
+    public List<Notification> getNotificationHistory(UUID userId, LocalDateTime from, LocalDateTime to) {
+
+        if (from == null) {
+            from = NotificationRetention.KEEP_ALL;
+        }
+        if (to == null) {
+            to = LocalDateTime.now().plusDays(1);
+        }
+
+        LocalDateTime hotSince = retention.retainedSince();
+        List<Notification> history = new ArrayList<>();
+
+        if (from.isBefore(hotSince)) {
+            archive.read(userId, from, to.isBefore(hotSince) ? to : hotSince).stream()
+                    .filter(notification -> !notification.isDeleted())
+                    .forEach(history::add);
+        }
+        if (to.isAfter(hotSince)) {
+            history.addAll(notificationRepository.findAllByUserIdCreatedBetween(userId, from.isAfter(hotSince) ? from : hotSince, to));
+        }
+
+        return history;
+    }
+
+    // The first page of the history with the ETag of the ring answering it, when the recent history cache holds it.
+    public Optional<RecentHistoryCache.Page> getCachedRecentHistory(UUID userId, int limit) {
+
+        int pageSize = Math.max(1, limit);
+        return pageSize <= recentHistoryCache.getEntriesPerUser() ? recentHistoryCache.page(userId, pageSize) : Optional.empty();
+    }
+
+    // The first page of the history, newest first. A page within the recent history cache is answered from it once
+    // the user has been loaded; rows still in the write-behind buffer are overlaid from the recent status cache.
+    public List<NotificationResponse> getRecentNotificationHistory(UUID userId, int limit) {
+
+        Optional<RecentHistoryCache.Page> cached = getCachedRecentHistory(userId, limit);
+        if (cached.isPresent()) {
+            return cached.get().entries();
+        }
+
+        int pageSize = Math.max(1, limit);
+        int cachedEntries = recentHistoryCache.getEntriesPerUser();
+
+        long stamp = recentHistoryCache.stamp(userId);
+        List<NotificationResponse> newest = notificationRepository.findNewestByUserId(userId, retention.retainedSince(), Limit.of(Math.max(pageSize, cachedEntries)))
+                .stream()
+                .map(notification -> recentStatusCache.get(notification.getId()).orElse(notification))
+                .map(DtoMapper::fromNotification)
+                .toList();
+        recentHistoryCache.load(userId, stamp, newest);
+
+        return newest.size() > pageSize ? newest.subList(0, pageSize) : newest;
     }
 
     public void clearNotifications(UUID userId) {
+        // archived segments cannot be rewritten, their rows are skipped from now on instead
+        archive.recordCleared(userId, LocalDateTime.now());
         List<Notification> notifications = getNotificationHistory(userId);
 
         notifications.forEach(notification -> {
             notification.setDeleted(true);
             notificationRepository.save(notification);
+            recentStatusCache.evict(notification.getId());
         });
 
+        recentHistoryCache.clear(userId, notifications.stream().map(Notification::getId).collect(Collectors.toSet()));
+        userVersions.bump(userId);
     }
 
     public void retryFailedNotifications(UUID userId) {
@@ -71,30 +178,15 @@ public class NotificationService {
             throw new IllegalArgumentException(String.format("User with id %s does not allow to receive notifications.", userId));
         }
 
-        List<Notification> failedNotifications = notificationRepository.findAllByUserIdAndStatus(userId, NotificationStatus.FAILED);
+        List<Notification> failedNotifications = notificationRepository.findAllByUserIdAndStatus(userId, NotificationStatus.FAILED, retention.retainedSince());
         failedNotifications = failedNotifications.stream().filter(notification -> !notification.isDeleted()).toList();
 
 
         for (Notification notification : failedNotifications) {
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(userPreference.getContactInfo());
-            message.setSubject(notification.getSubject());
-            message.setText(notification.getBody());
-
-            try {
-                mailSender.send(message);
-                notification.setStatus(NotificationStatus.SUCCEEDED);
-            } catch (Exception e) {
-                notification.setStatus(NotificationStatus.FAILED);
-                String contactInfo = userPreference.getContactInfo();
-                if (userPreference.getContactInfo() == null) {
-                    log.warn("There was an issue sending an email due to missing contact info: {}", e.getMessage());
-                } else {
-                    log.warn("There was an issue sending an email to {} due to {}.", userPreference.getContactInfo(), e.getMessage());
-                }
+            CompletableFuture<Boolean> delivery = deliver(notification, userPreference);
+            if (RequestTiming.time(RequestTiming.Stage.MAIL, delivery::join)) {
+                statusWriter.enqueue(notification);
             }
-            notificationRepository.save(notification);
         }
     }
 
@@ -112,7 +204,9 @@ public class NotificationService {
             preference.setEnabled(dto.isNotificationEnabled());
             preference.setType(DtoMapper.fromNotificationTypeRequest(dto.getType()));
             preference.setUpdatedOn(LocalDateTime.now());
-            return notificationPreferenceRepository.save(preference);
+            NotificationPreference saved = notificationPreferenceRepository.save(preference);
+            userVersions.bump(dto.getUserId());
+            return saved;
         }
 
         // 3. if it does not exist - just create a new one.
@@ -126,42 +220,273 @@ public class NotificationService {
                 .build();
 
 
-        return notificationPreferenceRepository.save(notificationPreference);
+        NotificationPreference saved = notificationPreferenceRepository.save(notificationPreference);
+        userVersions.bump(dto.getUserId());
+        return saved;
     }
 
     public Notification sendNotification(NotificationRequest notificationRequest) {
 
-        UUID userId = notificationRequest.getUserId();
-        NotificationPreference userPreference = getPreferenceByUserId(userId);
+        NotificationPreference userPreference = getPreferenceByUserId(notificationRequest.getUserId());
+        Notification notification = newNotification(notificationRequest, userPreference);
+
+        LocalDateTime sendAt = notificationRequest.getSendAt();
+        if (sendAt != null && sendAt.isAfter(notification.getCreatedOn())) {
+            return scheduleNotification(notification, sendAt);
+        }
 
+        try {
+            CompletableFuture<Boolean> delivery = deliver(notification, userPreference);
+            RequestTiming.time(RequestTiming.Stage.MAIL, delivery::join);
+
+            return persist(notification);
+        } catch (DataAccessException | TransactionException e) {
+            if (notification.getId() == null) {
+                throw e;
+            }
+            // the SENDING row exists and recovery resolves it, whether or not the message went out
+            throw new NotificationStoredException(notification, e);
+        }
+    }
+
+    // Stores the notification as QUEUED (or SCHEDULED) without sending it; the caller hands it to the dispatcher.
+    public Notification queueNotification(NotificationRequest notificationRequest) {
+
+        NotificationPreference userPreference = getPreferenceByUserId(notificationRequest.getUserId());
+        Notification notification = newNotification(notificationRequest, userPreference);
+
+        LocalDateTime sendAt = notificationRequest.getSendAt();
+        if (sendAt != null && sendAt.isAfter(notification.getCreatedOn())) {
+            return scheduleNotification(notification, sendAt);
+        }
+
+        notification.setStatus(NotificationStatus.QUEUED);
+        return persist(notification);
+    }
+
+    // Undoes queueNotification when the dispatcher could not take the notification.
+    public void discardQueued(Notification notification) {
+
+        notificationRepository.delete(notification);
+        recentStatusCache.evict(notification.getId());
+        recentHistoryCache.evict(notification.getUserId(), notification.getId());
+        userVersions.bump(notification.getUserId());
+    }
+
+    // Answered from the recent status cache when this process changed the notification a moment ago.
+    public Notification getNotification(UUID notificationId) {
+
+        Optional<Notification> notification = recentStatusCache.get(notificationId);
+        if (notification.isEmpty()) {
+            notification = notificationRepository.findById(notificationId);
+            notification.ifPresent(recentStatusCache::put);
+        }
+
+        return notification
+                .filter(found -> !found.isDeleted())
+                .orElseThrow(() -> new NotificationNotFoundException(notificationId));
+    }
+
+    private Notification newNotification(NotificationRequest notificationRequest, NotificationPreference userPreference) {
+
+        UUID userId = notificationRequest.getUserId();
         if (!userPreference.isEnabled()) {
             throw new IllegalArgumentException(String.format("User with id %s does not allow to receive notifications.", userId));
         }
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(userPreference.getContactInfo());
-        message.setSubject(notificationRequest.getSubject());
-        message.setText(notificationRequest.getBody());
-
         // We record new notification in the database to show that we have sent notification to that user
-        Notification notification = Notification.builder()
+        return Notification.builder()
                 .subject(notificationRequest.getSubject())
                 .body(notificationRequest.getBody())
                 .createdOn(LocalDateTime.now())
                 .userId(userId)
                 .isDeleted(false)
-                .type(NotificationType.EMAIL)
+                .type(userPreference.getType())
+                .priority(notificationRequest.getPriority())
+                .caller(notificationRequest.getCaller())
                 .build();
+    }
+
+    // Called by the dispatcher once a stored notification is due. The returned future completes once the outcome is
+    // in the status writer; the calling thread is free as soon as the notification is handed to its channel.
+    public CompletableFuture<Void> dispatchNotification(UUID notificationId) {
+
+        if (statusWriter.hasUnflushedUpdate(notificationId)) {
+            // delivered moments ago, the new status is still in the write-behind buffer
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Optional<Notification> notificationOptional = notificationRepository.findById(notificationId);
+        if (notificationOptional.isEmpty() || !isAwaitingDispatch(notificationOptional.get())) {
+            // already delivered, cleared or removed in the meantime
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Notification notification = notificationOptional.get();
+        return dispatchNotification(notification, findPreference(notification.getUserId()).orElse(null));
+    }
+
+    // Used when the caller already holds the preference, e.g. a broadcast streaming the preference table.
+    public CompletableFuture<Void> dispatchNotification(Notification notification, NotificationPreference userPreference) {
+
+        if (userPreference == null || !userPreference.isEnabled()) {
+            log.warn("Notification {} was not sent because user with id {} does not allow to receive notifications anymore.", notification.getId(), notification.getUserId());
+            notification.setStatus(NotificationStatus.FAILED);
+            statusWriter.enqueue(notification);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return deliver(notification, userPreference).thenAccept(claimed -> {
+            if (claimed) {
+                statusWriter.enqueue(notification);
+                publishStored(notification);
+            }
+        });
+    }
+
+    private boolean isAwaitingDispatch(Notification notification) {
+
+        NotificationStatus status = notification.getStatus();
+        return !notification.isDeleted() && (status == NotificationStatus.SCHEDULED || status == NotificationStatus.QUEUED);
+    }
 
+    private Notification scheduleNotification(Notification notification, LocalDateTime sendAt) {
+
+        notification.setStatus(NotificationStatus.SCHEDULED);
+        notification.setSendAt(sendAt);
+
+        Notification scheduled = persist(notification);
+        eventPublisher.publishEvent(new NotificationScheduledEvent(scheduled.getId(), scheduled.getSendAt(), scheduled.getCaller()));
+
+        return scheduled;
+    }
+
+    private Optional<NotificationPreference> findPreference(UUID userId) {
+
+        PreferenceLookupEvent lookupEvent = new PreferenceLookupEvent();
+        lookupEvent.begin();
+
+        Optional<NotificationPreference> preference = notificationPreferenceRepository.findByUserId(userId);
+
+        lookupEvent.finish(userId, preference.isPresent() ? "FOUND" : "NOT_FOUND");
+        return preference;
+    }
+
+    private Notification persist(Notification notification) {
+
+        NotificationPersistEvent persistEvent = new NotificationPersistEvent();
+        persistEvent.begin();
+
+        boolean isNew = notification.getId() == null;
+        Notification saved;
         try {
-            mailSender.send(message);
-            notification.setStatus(NotificationStatus.SUCCEEDED);
-        } catch (Exception e) {
+            saved = notificationRepository.save(notification);
+        } catch (RuntimeException e) {
+            if (isNew) {
+                // nothing was stored - only a stored notification keeps the id generated for the insert
+                notification.setId(null);
+            }
+            throw e;
+        }
+        userVersions.bump(notification.getUserId());
+        recentStatusCache.put(saved);
+        recentHistoryCache.update(saved);
+        publishStored(saved);
+
+        persistEvent.finish(notification.getUserId(), String.valueOf(notification.getStatus()));
+        return saved;
+    }
+
+    private void publishStored(Notification notification) {
+        eventPublisher.publishEvent(new NotificationStoredEvent(notification.getUserId(), DtoMapper.fromNotification(notification)));
+    }
+
+    // Sets the outcome on the notification; the returned future never completes exceptionally. It completes with
+    // false, and the notification is left as it was read, when another instance claimed the row first.
+    private CompletableFuture<Boolean> deliver(Notification notification, NotificationPreference userPreference) {
+
+        if (suppressionService.isSuppressed(userPreference.getContactInfo())) {
+            log.info("Notification {} was not sent because {} is on the suppression list.", notification.getId(), userPreference.getContactInfo());
+            notification.setStatus(NotificationStatus.SUPPRESSED);
+            return CompletableFuture.completedFuture(true);
+        }
+
+        if (!markSending(notification)) {
+            log.debug("Notification {} was claimed by another instance, it is not sent here.", notification.getId());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        SmtpSendEvent sendEvent = new SmtpSendEvent();
+        sendEvent.begin();
+
+        return channelRouter.send(notification, userPreference).handle((ignored, error) -> {
+            if (error == null) {
+                notification.setStatus(NotificationStatus.SUCCEEDED);
+                notification.setAttempts(notification.getAttempts() + 1);
+                notification.setFailureClass(null);
+                notification.setFailureReason(null);
+                sendEvent.finish(notification.getUserId(), "SUCCEEDED");
+            } else {
+                Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+                sendEvent.finish(notification.getUserId(), failure.getClass().getSimpleName());
+                onDeliveryFailure(notification, userPreference.getContactInfo(), failure);
+            }
+            return true;
+        });
+    }
+
+    // Recorded before the channel is called, so a crash during the call leaves a SENDING row for recovery to resolve
+    // instead of a sent message without a row, or a row that is sent a second time without a trace of the first. A
+    // stored row is claimed from the status it was read with - every instance loads the same due rows, and only the
+    // one whose update changed the row sends it.
+    private boolean markSending(Notification notification) {
+
+        if (notification.getId() == null) {
+            // an immediate send is stored for the first time here
+            notification.setStatus(NotificationStatus.SENDING);
+            notification.setLastAttemptOn(LocalDateTime.now());
+            persist(notification);
+            return true;
+        }
+        return statusWriter.claimForSending(notification);
+    }
+
+    // FAILED rows are retried later; DEAD rows only come back through a dead-letter replay.
+    private void onDeliveryFailure(Notification notification, String contactInfo, Throwable failure) {
+
+        String reason = String.valueOf(failure.getMessage());
+        notification.setFailureClass(failure.getClass().getSimpleName());
+        notification.setFailureReason(reason.length() > 255 ? reason.substring(0, 255) : reason);
+        if (!(failure instanceof CircuitOpenException || failure instanceof ConcurrencyLimitExceededException || failure instanceof ChannelRejectedException)) {
+            // an open breaker, a saturated relay or a full channel never reached the provider, so it does not use up an attempt
+            notification.setAttempts(notification.getAttempts() + 1);
+        }
+
+        if (contactInfo != null && SmtpFailures.isRecipientRejected(failure)) {
+            // a hard bounce - retrying cannot help, and later notifications to the address are suppressed
+            notification.setStatus(NotificationStatus.DEAD);
+            suppressRecipient(contactInfo, notification.getFailureReason());
+        } else if (failure instanceof MailParseException || failure instanceof MailPreparationException) {
+            notification.setStatus(NotificationStatus.DEAD);
+        } else if (notification.getAttempts() >= maxAttempts) {
+            notification.setStatus(NotificationStatus.DEAD);
+        } else {
             notification.setStatus(NotificationStatus.FAILED);
-            String contactInfo = userPreference.getContactInfo();
-            log.warn("There was an issue sending an email to %s due to %s.".formatted(userPreference.getContactInfo(), e.getMessage()));
         }
 
-        return notificationRepository.save(notification);
+        if (contactInfo == null) {
+            log.warn("There was an issue sending a {} notification due to missing contact info: {}", notification.getType(), failure.getMessage());
+        } else {
+            log.warn("There was an issue sending a {} notification to {} due to {}.", notification.getType(), contactInfo, failure.getMessage());
+        }
+    }
+
+    private void suppressRecipient(String contactInfo, String reason) {
+
+        try {
+            suppressionService.suppress(contactInfo, reason);
+        } catch (DataAccessException e) {
+            log.error("Could not suppress recipient {} due to {}.", contactInfo, e.getMessage());
+        }
     }
 }
@@ -0,0 +1,243 @@
+package app.service;
+
+import app.jfr.NotificationPersistEvent;
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.JdbcKeys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind buffer for the status, attempt count and last failure of already stored notifications. Dispatch and
+ * retry enqueue the outcome of each SMTP attempt, and a background thread writes them as one JDBC batch in one
+ * transaction every batch-size updates or flush-interval, whichever comes first.
+ * <p>
+ * Only the outcome is buffered: {@link #claimForSending} writes SENDING synchronously before the channel is called,
+ * and only if the row is still in the status it was read with, so of several instances firing the same row only one
+ * sends it. Until the batch with the outcome is written the row stays SENDING, and after a crash
+ * {@link NotificationRecovery} resolves those rows, so delivery stays at least once. The user's version is bumped
+ * with the batch, not with the claim, which keeps the claim the only synchronous write of a send.
+ * <p>
+ * A batch the database rejects is kept and written again, first after one flush interval and then after twice the
+ * previous wait, up to max-retry-backoff. Newer updates stay in the buffer behind it, so every row still gets its
+ * updates in order.
+ */
+@Slf4j
+@Component
+public class NotificationStatusWriter {
+
+    // rows are addressed by id and a created_on window, see JdbcKeys
+    private static final String UPDATE_STATUS = "UPDATE notification SET status = ?, attempts = ?, failure_class = ?, failure_reason = ? WHERE id = ? AND created_on BETWEEN ? AND ?";
+    private static final String CLAIM_FOR_SENDING = "UPDATE notification SET status = ?, last_attempt_on = ? WHERE id = ? AND created_on BETWEEN ? AND ? AND status = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserVersions userVersions;
+    private final RecentStatusCache recentStatusCache;
+    private final RecentHistoryCache recentHistoryCache;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxRetryBackoffNanos;
+
+    private final BlockingQueue<StatusUpdate> buffer;
+    // ids whose new status is not in the database yet, with the number of their buffered updates - the dispatcher
+    // must not pick those rows up again until the last one is written
+    private final Map<UUID, Integer> unflushed = new ConcurrentHashMap<>();
+    // the batch the database last rejected, written before anything else from the buffer (guarded by this)
+    private final List<StatusUpdate> failed = new ArrayList<>();
+    private long retryBackoffNanos;
+    private long retryAtNanos;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public NotificationStatusWriter(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    UserVersions userVersions,
+                                    RecentStatusCache recentStatusCache,
+                                    RecentHistoryCache recentHistoryCache,
+                                    @Value("${notification.status-writer.batch-size:500}") int batchSize,
+                                    @Value("${notification.status-writer.flush-interval:200ms}") Duration flushInterval,
+                                    @Value("${notification.status-writer.capacity:10000}") int capacity,
+                                    @Value("${notification.status-writer.max-retry-backoff:30s}") Duration maxRetryBackoff) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userVersions = userVersions;
+        this.recentStatusCache = recentStatusCache;
+        this.recentHistoryCache = recentHistoryCache;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxRetryBackoffNanos = maxRetryBackoff.toNanos();
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+
+        this.flusher = new Thread(this::run, "notification-status-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public void enqueue(Notification notification) {
+
+        StatusUpdate update = new StatusUpdate(notification.getId(), notification.getUserId(), notification.getCreatedOn(), notification.getStatus(),
+                notification.getAttempts(), notification.getFailureClass(), notification.getFailureReason());
+        unflushed.merge(update.id(), 1, Integer::sum);
+        recentStatusCache.put(notification);
+        recentHistoryCache.update(notification);
+
+        while (!buffer.offer(update)) {
+            // buffer is full - the producer pays for the flush, which slows it down to the database speed, and waits
+            // while the writer backs off from a failing database
+            if (!drain(false)) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    // Not buffered - the row has to be SENDING before the network call, or a crash during it would leave no trace.
+    // False when the row has left the status it was read with, e.g. another instance claimed it first; the
+    // notification is left unchanged then and must not be sent.
+    public boolean claimForSending(Notification notification) {
+
+        LocalDateTime attemptOn = LocalDateTime.now();
+        LocalDateTime createdOn = notification.getCreatedOn();
+        int updated = jdbcTemplate.update(CLAIM_FOR_SENDING, NotificationStatus.SENDING.name(), attemptOn, JdbcKeys.toBytes(notification.getId()),
+                JdbcKeys.createdOnFrom(createdOn), JdbcKeys.createdOnTo(createdOn), notification.getStatus().name());
+        if (updated != 1) {
+            return false;
+        }
+
+        notification.setStatus(NotificationStatus.SENDING);
+        notification.setLastAttemptOn(attemptOn);
+        recentStatusCache.put(notification);
+        recentHistoryCache.update(notification);
+        return true;
+    }
+
+    public boolean hasUnflushedUpdate(UUID notificationId) {
+        return unflushed.containsKey(notificationId);
+    }
+
+    public int getBacklog() {
+        return buffer.size();
+    }
+
+    // Writes everything buffered so far, retrying a rejected batch right away. Updates stay buffered until they are
+    // written under this lock, so a caller returning from flush() while the database is up knows every earlier
+    // enqueue has reached it.
+    public void flush() {
+        drain(true);
+    }
+
+    // False when a batch was rejected and is waiting for its retry.
+    private synchronized boolean drain(boolean ignoreBackoff) {
+
+        if (!failed.isEmpty()) {
+            if (!ignoreBackoff && System.nanoTime() - retryAtNanos < 0) {
+                return false;
+            }
+            if (!write(failed)) {
+                backOff(failed.size());
+                return false;
+            }
+            failed.clear();
+        }
+
+        List<StatusUpdate> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            if (!write(batch)) {
+                failed.addAll(batch);
+                backOff(batch.size());
+                return false;
+            }
+            batch.clear();
+        }
+        retryBackoffNanos = 0;
+        return true;
+    }
+
+    private void backOff(int size) {
+
+        retryBackoffNanos = retryBackoffNanos == 0 ? flushIntervalNanos : Math.min(retryBackoffNanos * 2, maxRetryBackoffNanos);
+        retryAtNanos = System.nanoTime() + retryBackoffNanos;
+        log.warn("Retrying {} notification status updates in {} ms.", size, TimeUnit.NANOSECONDS.toMillis(retryBackoffNanos));
+    }
+
+    // Wakes up every flush interval, or earlier when enqueue sees a full batch.
+    private void run() {
+
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            try {
+                drain(false);
+            } catch (Exception e) {
+                log.error("Status writer flush failed due to {}.", e.getMessage());
+            }
+        }
+    }
+
+    private boolean write(List<StatusUpdate> batch) {
+
+        NotificationPersistEvent persistEvent = new NotificationPersistEvent();
+        persistEvent.begin();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_STATUS, batch, batch.size(), (statement, update) -> {
+                    statement.setString(1, update.status().name());
+                    statement.setInt(2, update.attempts());
+                    statement.setString(3, update.failureClass());
+                    statement.setString(4, update.failureReason());
+                    statement.setBytes(5, JdbcKeys.toBytes(update.id()));
+                    statement.setObject(6, JdbcKeys.createdOnFrom(update.createdOn()));
+                    statement.setObject(7, JdbcKeys.createdOnTo(update.createdOn()));
+                });
+                userVersions.bump(batch.stream().map(StatusUpdate::userId).toList());
+            });
+
+            persistEvent.finish(null, "BATCH_" + batch.size());
+        } catch (DataAccessException e) {
+            // the rows stay SENDING and the updates stay unflushed until a retry writes them
+            log.error("Could not write {} notification status updates due to {}.", batch.size(), e.getMessage());
+            persistEvent.finish(null, "FAILED");
+            return false;
+        }
+
+        // a newer update for the same id may be buffered behind this batch
+        batch.forEach(update -> unflushed.computeIfPresent(update.id(), (id, count) -> count == 1 ? null : count - 1));
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) * 2);
+        flush();
+    }
+
+    private record StatusUpdate(UUID id, UUID userId, LocalDateTime createdOn, NotificationStatus status, int attempts, String failureClass, String failureReason) {
+    }
+}
@@ -0,0 +1,325 @@
+package app.service;
+
+import app.model.Notification;
+import app.web.dto.NotificationResponse;
+import app.web.mapper.DtoMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * The newest notifications of recently active users, newest first, so the first page of a hot user's history is
+ * answered without a database read. Each user holds a ring of at most {@code entriesPerUser} responses that is loaded
+ * once from the database and then kept up to date by every change this process makes. Users are evicted least
+ * recently used first once the estimated size of all rings is over the byte budget.
+ * <p>
+ * Changes made by other instances never reach this cache; the time to live bounds how long a ring can be stale.
+ * <p>
+ * Every ring carries a version that changes with every change to it, so a page answered from the cache comes with its
+ * own ETag and a conditional GET for it needs no database read either. The ETag is this process's own: a client that
+ * reaches another instance gets the page again.
+ */
+@Component
+public class RecentHistoryCache {
+
+    private static final int STRIPES = 1024;
+    // rough retained size of one response (object, UUID, LocalDateTime, enums, String header) and of one user's ring
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final long USER_OVERHEAD_BYTES = 200;
+
+    private final int entriesPerUser;
+    private final long maxBytes;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+
+    // access ordered, so the eldest user is the least recently read or written
+    private final LinkedHashMap<UUID, UserHistory> users = new LinkedHashMap<>(16, 0.75f, true);
+    // bumped by every change, so a load that raced with a change is not installed; guarded by users like the rest
+    private final long[] stamps = new long[STRIPES];
+    private long bytes;
+    // source of ring versions, unique within this process; the nonce keeps them apart from other processes'
+    private final long nonce = ThreadLocalRandom.current().nextLong() >>> 1;
+    private long versions;
+
+    @Autowired
+    public RecentHistoryCache(@Value("${notification.history-cache.entries-per-user:20}") int entriesPerUser,
+                              @Value("${notification.history-cache.max-size:64MB}") DataSize maxSize,
+                              @Value("${notification.history-cache.time-to-live:60s}") Duration timeToLive) {
+        this(entriesPerUser, maxSize, timeToLive, System::nanoTime);
+    }
+
+    RecentHistoryCache(int entriesPerUser, DataSize maxSize, Duration timeToLive, LongSupplier nanoClock) {
+        this.entriesPerUser = entriesPerUser;
+        this.maxBytes = maxSize.toBytes();
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public int getEntriesPerUser() {
+        return entriesPerUser;
+    }
+
+    // Empty when the user's ring is missing, expired or too short to answer the whole page.
+    public Optional<List<NotificationResponse>> get(UUID userId, int limit) {
+        return page(userId, limit).map(Page::entries);
+    }
+
+    // As get, with the ETag of the ring the page was read from.
+    public Optional<Page> page(UUID userId, int limit) {
+
+        synchronized (users) {
+            UserHistory history = users.get(userId);
+            if (history == null) {
+                return Optional.empty();
+            }
+            if (nanoClock.getAsLong() - history.expiresAt > 0) {
+                remove(userId);
+                return Optional.empty();
+            }
+            if (limit > history.size && !history.complete) {
+                return Optional.empty();
+            }
+            return Optional.of(new Page(history.newest(limit), "\"c-" + nonce + "-" + history.version + "\""));
+        }
+    }
+
+    // Read before loading a user from the database and handed back to load().
+    public long stamp(UUID userId) {
+
+        synchronized (users) {
+            return stamps[stripe(userId)];
+        }
+    }
+
+    // Installs the user's newest rows as read from the database, newest first, unless a change came in meanwhile.
+    public void load(UUID userId, long stamp, List<NotificationResponse> newest) {
+
+        synchronized (users) {
+            if (stamps[stripe(userId)] != stamp) {
+                return;
+            }
+
+            remove(userId);
+            UserHistory history = new UserHistory(entriesPerUser, nanoClock.getAsLong() + timeToLiveNanos);
+            newest.stream().limit(entriesPerUser).forEach(history::addLast);
+            history.complete = newest.size() < entriesPerUser;
+            history.version = ++versions;
+
+            users.put(userId, history);
+            bytes += USER_OVERHEAD_BYTES + history.bytes;
+            trim();
+        }
+    }
+
+    // A new notification or a new status of one; rows older than the ring are left to the database.
+    public void update(Notification notification) {
+
+        if (notification.getId() == null) {
+            return;
+        }
+
+        UUID userId = notification.getUserId();
+        synchronized (users) {
+            stamps[stripe(userId)]++;
+
+            UserHistory history = users.get(userId);
+            if (history == null) {
+                return;
+            }
+            if (notification.isDeleted()) {
+                remove(userId);
+                return;
+            }
+
+            long before = history.bytes;
+            history.upsert(DtoMapper.fromNotification(notification));
+            history.version = ++versions;
+            bytes += history.bytes - before;
+            trim();
+        }
+    }
+
+    // Removes a notification that no longer exists. The ring may be one short afterwards, and only answers pages it
+    // still covers until it is loaded again.
+    public void evict(UUID userId, UUID notificationId) {
+        evict(userId, List.of(notificationId), false);
+    }
+
+    // The cleared notifications were all the user had, so whatever the ring still holds is complete.
+    public void clear(UUID userId, Collection<UUID> clearedIds) {
+        evict(userId, clearedIds, true);
+    }
+
+    private void evict(UUID userId, Collection<UUID> notificationIds, boolean complete) {
+
+        synchronized (users) {
+            stamps[stripe(userId)]++;
+
+            UserHistory history = users.get(userId);
+            if (history == null) {
+                return;
+            }
+
+            long before = history.bytes;
+            history.removeAll(notificationIds);
+            history.complete |= complete;
+            history.version = ++versions;
+            bytes += history.bytes - before;
+        }
+    }
+
+    public long getEstimatedBytes() {
+
+        synchronized (users) {
+            return bytes;
+        }
+    }
+
+    private void trim() {
+
+        Iterator<UserHistory> eldest = users.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= USER_OVERHEAD_BYTES + eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    private void remove(UUID userId) {
+
+        UserHistory removed = users.remove(userId);
+        if (removed != null) {
+            bytes -= USER_OVERHEAD_BYTES + removed.bytes;
+        }
+    }
+
+    public record Page(List<NotificationResponse> entries, String eTag) {
+    }
+
+    private static int stripe(UUID userId) {
+        return userId.hashCode() & (STRIPES - 1);
+    }
+
+    private static long sizeOf(NotificationResponse response) {
+        return ENTRY_OVERHEAD_BYTES + (response.getSubject() == null ? 0 : 2L * response.getSubject().length());
+    }
+
+    // A fixed ring, newest first. New notifications go to the head and push the oldest out in O(1).
+    private static final class UserHistory {
+
+        private final NotificationResponse[] slots;
+        private final long expiresAt;
+        private int head;
+        private int size;
+        private long bytes;
+        // true while the ring holds every notification the user has, not only the newest ones
+        private boolean complete;
+        private long version;
+
+        private UserHistory(int capacity, long expiresAt) {
+            this.slots = new NotificationResponse[capacity];
+            this.expiresAt = expiresAt;
+        }
+
+        private NotificationResponse at(int index) {
+            return slots[(head + index) % slots.length];
+        }
+
+        private void set(int index, NotificationResponse response) {
+            slots[(head + index) % slots.length] = response;
+        }
+
+        private List<NotificationResponse> newest(int limit) {
+
+            List<NotificationResponse> newest = new ArrayList<>(Math.min(limit, size));
+            for (int i = 0; i < size && i < limit; i++) {
+                newest.add(at(i));
+            }
+            return newest;
+        }
+
+        private void addLast(NotificationResponse response) {
+            set(size++, response);
+            bytes += sizeOf(response);
+        }
+
+        private void upsert(NotificationResponse response) {
+
+            for (int i = 0; i < size; i++) {
+                if (at(i).getId().equals(response.getId())) {
+                    bytes += sizeOf(response) - sizeOf(at(i));
+                    set(i, response);
+                    return;
+                }
+            }
+
+            int position = 0;
+            while (position < size && isOlder(response, at(position))) {
+                position++;
+            }
+            if (position == size && !complete) {
+                // older than everything in the ring - rows in between may only be in the database
+                return;
+            }
+            insert(position, response);
+        }
+
+        private void insert(int position, NotificationResponse response) {
+
+            if (size == slots.length) {
+                complete = false;
+                if (position == size) {
+                    return;
+                }
+                bytes -= sizeOf(at(size - 1));
+                size--;
+            }
+
+            if (position == 0) {
+                head = (head - 1 + slots.length) % slots.length;
+            } else {
+                for (int i = size; i > position; i--) {
+                    set(i, at(i - 1));
+                }
+            }
+            set(position, response);
+            size++;
+            bytes += sizeOf(response);
+        }
+
+        private void removeAll(Collection<UUID> notificationIds) {
+
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                NotificationResponse response = at(i);
+                if (notificationIds.contains(response.getId())) {
+                    bytes -= sizeOf(response);
+                } else {
+                    set(kept++, response);
+                }
+            }
+            for (int i = kept; i < size; i++) {
+                set(i, null);
+            }
+            size = kept;
+        }
+
+        private static boolean isOlder(NotificationResponse response, NotificationResponse other) {
+
+            LocalDateTime createdOn = response.getCreatedOn();
+            return createdOn != null && other.getCreatedOn() != null && createdOn.isBefore(other.getCreatedOn());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package app.service;
+
+import app.model.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Latest known state of recently accepted or delivered notifications, so clients polling right after a 202 are
+ * answered without a database read. Every status change made by this process is put here, including the ones still
+ * waiting in the write-behind buffer, so the cache can be ahead of the database but not behind it.
+ * <p>
+ * Changes made by other instances never reach this cache; the time to live bounds how long such an entry can be stale.
+ */
+@Component
+public class RecentStatusCache {
+
+    private final int capacity;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+
+    // access ordered, so the eldest entry is the least recently read or written
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    @Autowired
+    public RecentStatusCache(@Value("${notification.status-cache.capacity:10000}") int capacity,
+                             @Value("${notification.status-cache.time-to-live:10s}") Duration timeToLive) {
+        this(capacity, timeToLive, System::nanoTime);
+    }
+
+    RecentStatusCache(int capacity, Duration timeToLive, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    // Stores a copy - the caller keeps changing its notification while it is delivered.
+    public void put(Notification notification) {
+
+        if (notification.getId() == null) {
+            return;
+        }
+
+        Notification snapshot = Notification.builder()
+                .id(notification.getId())
+                .userId(notification.getUserId())
+                .subject(notification.getSubject())
+                .createdOn(notification.getCreatedOn())
+                .status(notification.getStatus())
+                .type(notification.getType())
+                .isDeleted(notification.isDeleted())
+                .build();
+
+        synchronized (entries) {
+            entries.put(snapshot.getId(), new Entry(snapshot, nanoClock.getAsLong() + timeToLiveNanos));
+        }
+    }
+
+    public Optional<Notification> get(UUID notificationId) {
+
+        synchronized (entries) {
+            Entry entry = entries.get(notificationId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (nanoClock.getAsLong() - entry.expiresAt() > 0) {
+                entries.remove(notificationId);
+                return Optional.empty();
+            }
+            return Optional.of(entry.notification());
+        }
+    }
+
+    public void evict(UUID notificationId) {
+
+        synchronized (entries) {
+            entries.remove(notificationId);
+        }
+    }
+
+    private record Entry(Notification notification, long expiresAt) {
+    }
+}
@@ -0,0 +1,128 @@
+package app.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+// Owns at most one JFR recording of the send pipeline events. The recording is bounded by age and size,
+// so leaving it running does not fill the disk. Every dump of a recording replaces the same file, which is deleted
+// when the next recording starts and at shutdown.
+@Slf4j
+@Service
+public class RecordingService {
+
+    private static final String[] PIPELINE_EVENTS = {
+            "app.notification.PreferenceLookup",
+            "app.notification.MessageBuild",
+            "app.notification.SmtpSend",
+            "app.notification.NotificationPersist"
+    };
+
+    private Recording recording;
+    private Path dumpFile;
+
+    public synchronized Recording startRecording(Duration maxAge, long maxSizeBytes) {
+
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A recording is already running.");
+        }
+
+        closeRecording();
+        dumpFile = createDumpFile();
+
+        recording = new Recording();
+        recording.setName("notification-pipeline");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        for (String event : PIPELINE_EVENTS) {
+            recording.enable(event).withThreshold(Duration.ZERO);
+        }
+        recording.start();
+
+        log.info("Started JFR recording {} (max age {}, max size {} bytes).", recording.getId(), maxAge, maxSizeBytes);
+        return recording;
+    }
+
+    public synchronized Recording stopRecording() {
+
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("There is no running recording.");
+        }
+
+        recording.stop();
+        dump(recording);
+
+        log.info("Stopped JFR recording {}, dumped to {}.", recording.getId(), dumpFile);
+        return recording;
+    }
+
+    // A running recording is dumped as a snapshot, a stopped one returns its final dump.
+    public synchronized Path getRecordingFile() {
+
+        if (recording == null) {
+            throw new IllegalStateException("No recording was started.");
+        }
+
+        if (recording.getState() == RecordingState.RUNNING) {
+            dump(recording);
+        }
+        return dumpFile;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeRecording();
+    }
+
+    // Written next to the dump file and moved over it, so a download still streaming the previous dump keeps reading
+    // the file it opened.
+    private void dump(Recording source) {
+
+        try {
+            Path snapshot = Files.createTempFile(dumpFile.getParent(), "notification-pipeline-", ".jfr.tmp");
+            try {
+                source.dump(snapshot);
+                Files.move(snapshot, dumpFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(snapshot);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path createDumpFile() {
+
+        try {
+            return Files.createTempFile("notification-pipeline-", ".jfr");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeRecording() {
+
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        if (dumpFile != null) {
+            try {
+                Files.deleteIfExists(dumpFile);
+            } catch (IOException e) {
+                log.warn("Could not delete the JFR dump {} due to {}.", dumpFile, e.getMessage());
+            }
+            dumpFile = null;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package app.service;
+
+import app.model.Suppression;
+import app.repository.SuppressionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recipients that must not be contacted again. The table is loaded at startup into a Bloom filter in front of an
+ * exact in-memory set: almost every address is not suppressed, and the filter rules those out with a few bit reads.
+ * A filter hit is confirmed against the set, so false positives never suppress a real recipient.
+ * <p>
+ * Removed addresses stay in the filter and are only dropped from the set. The filter is rebuilt from the set with
+ * double the capacity once it holds more entries than it was sized for.
+ * <p>
+ * Other instances change the table too. The row count and the newest createdOn are checked on an interval, and the
+ * set and the filter are loaded again whenever either moved, so an address suppressed or removed elsewhere takes
+ * effect here within one interval.
+ */
+@Slf4j
+@Service
+public class SuppressionService {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final SuppressionRepository suppressionRepository;
+    private final double falsePositiveRate;
+    private final int batchSize;
+
+    private volatile Set<String> suppressed = ConcurrentHashMap.newKeySet();
+    private volatile BloomFilter filter;
+    private volatile int filterCapacity;
+    // the table as of the last load
+    private volatile Version version;
+    // addresses suppressed here while a load runs, the loaded rows may predate them; guarded by this
+    private Set<String> addedDuringLoad;
+
+    @Autowired
+    public SuppressionService(SuppressionRepository suppressionRepository,
+                              @Value("${notification.suppression.expected-entries:100000}") int expectedEntries,
+                              @Value("${notification.suppression.false-positive-rate:0.01}") double falsePositiveRate,
+                              @Value("${notification.suppression.batch-size:1000}") int batchSize) {
+        this.suppressionRepository = suppressionRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        this.batchSize = batchSize;
+        this.filterCapacity = expectedEntries;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void loadSuppressions() {
+
+        // read before the rows, so a change made during the load is picked up by the next check
+        Version loadedVersion = currentVersion();
+        synchronized (this) {
+            addedDuringLoad = ConcurrentHashMap.newKeySet();
+        }
+
+        Set<String> loaded = ConcurrentHashMap.newKeySet();
+        UUID lastId = FIRST_ID;
+        while (true) {
+            List<Suppression> batch = suppressionRepository.findAllAfter(lastId, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            batch.forEach(suppression -> loaded.add(suppression.getEmail()));
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        synchronized (this) {
+            loaded.addAll(addedDuringLoad);
+            addedDuringLoad = null;
+
+            int capacity = filterCapacity;
+            while (loaded.size() > capacity) {
+                capacity *= 2;
+            }
+            BloomFilter loadedFilter = new BloomFilter(capacity, falsePositiveRate);
+            loaded.forEach(loadedFilter::put);
+
+            // the filter first: until the set follows, a removed address is at most checked against the old set
+            filter = loadedFilter;
+            filterCapacity = capacity;
+            suppressed = loaded;
+            version = loadedVersion;
+        }
+
+        log.info("Loaded {} suppressed recipients.", loaded.size());
+    }
+
+    @Scheduled(fixedDelayString = "${notification.suppression.reload-check-interval:30s}", initialDelayString = "${notification.suppression.reload-check-interval:30s}")
+    public void reloadIfChanged() {
+
+        try {
+            if (!currentVersion().equals(version)) {
+                loadSuppressions();
+            }
+        } catch (DataAccessException e) {
+            // checked again on the next interval
+            log.warn("Could not check the suppression list for changes due to {}.", e.getMessage());
+        }
+    }
+
+    public boolean isSuppressed(String email) {
+
+        if (email == null) {
+            return false;
+        }
+
+        String key = normalize(email);
+        return filter.mightContain(key) && suppressed.contains(key);
+    }
+
+    public Suppression suppress(String email, String reason) {
+
+        String key = normalize(email);
+        Suppression suppression = suppressionRepository.findByEmail(key).orElse(null);
+
+        if (suppression == null) {
+            try {
+                suppression = suppressionRepository.save(Suppression.builder()
+                        .email(key)
+                        .reason(reason)
+                        .createdOn(LocalDateTime.now())
+                        .build());
+                log.info("Recipient {} was added to the suppression list due to {}.", key, reason);
+            } catch (DataIntegrityViolationException e) {
+                // suppressed concurrently by another send or instance
+                suppression = suppressionRepository.findByEmail(key).orElseThrow(() -> e);
+            }
+        }
+
+        add(key);
+        return suppression;
+    }
+
+    public List<Suppression> getSuppressions(String email) {
+
+        if (email == null) {
+            return suppressionRepository.findTop100ByOrderByCreatedOnDesc();
+        }
+
+        return suppressionRepository.findByEmail(normalize(email)).stream().toList();
+    }
+
+    @Transactional
+    public void removeSuppression(String email) {
+
+        String key = normalize(email);
+        suppressionRepository.deleteByEmail(key);
+        synchronized (this) {
+            suppressed.remove(key);
+            if (addedDuringLoad != null) {
+                addedDuringLoad.remove(key);
+            }
+        }
+    }
+
+    private synchronized void add(String key) {
+
+        if (addedDuringLoad != null) {
+            addedDuringLoad.add(key);
+        }
+        if (suppressed.add(key)) {
+            filter.put(key);
+            if (suppressed.size() > filterCapacity) {
+                rebuildFilter();
+            }
+        }
+    }
+
+    private synchronized void rebuildFilter() {
+
+        if (suppressed.size() <= filterCapacity) {
+            return;
+        }
+
+        int capacity = filterCapacity * 2;
+        BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveRate);
+        suppressed.forEach(rebuilt::put);
+
+        filter = rebuilt;
+        filterCapacity = capacity;
+        // an address added while the copy ran may be missing from it
+        suppressed.forEach(rebuilt::put);
+    }
+
+    private Version currentVersion() {
+        return new Version(suppressionRepository.count(), suppressionRepository.findNewestCreatedOn().orElse(null));
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Any insert moves the newest createdOn and any delete the count.
+    private record Version(long count, LocalDateTime newest) {
+    }
+}
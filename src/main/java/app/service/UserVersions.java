@@ -0,0 +1,81 @@
+package app.service;
+
+import app.repository.JdbcKeys;
+import app.retention.NotificationRetention;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-user version stamps used as ETags for the preference and history reads. Every write bumps the user's row in
+ * user_version after the write has been stored (in the same transaction where there is one), so every instance
+ * answers conditional GETs from the same versions.
+ * <p>
+ * Partition drops change the history of many users at once and bump the shared all-users row instead, which history
+ * ETags include. A version only grows, so the sum of the two does too, and an ETag is never issued again after a
+ * change. History ETags also carry the start of the retention window, which moves with the month and the archive
+ * without any write. A conditional GET costs one primary key read instead of the full read and render.
+ */
+@Component
+public class UserVersions {
+
+    static final UUID ALL_USERS = new UUID(0, 0);
+
+    // MySQL syntax, also understood by H2 in MySQL mode
+    private static final String BUMP = "INSERT INTO user_version (user_id, version) VALUES (?, 1) ON DUPLICATE KEY UPDATE version = version + 1";
+    private static final String VERSION = "SELECT COALESCE(SUM(version), 0) FROM user_version WHERE user_id IN (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationRetention retention;
+
+    @Autowired
+    public UserVersions(JdbcTemplate jdbcTemplate, NotificationRetention retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+    }
+
+    public void bump(UUID userId) {
+
+        if (userId != null) {
+            jdbcTemplate.update(BUMP, (Object) JdbcKeys.toBytes(userId));
+        }
+    }
+
+    // One batch; sorted, so two concurrent batches lock the rows in the same order.
+    public void bump(Collection<UUID> userIds) {
+
+        List<byte[]> ids = userIds.stream()
+                .filter(userId -> userId != null)
+                .distinct()
+                .sorted()
+                .map(JdbcKeys::toBytes)
+                .toList();
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate(BUMP, ids, ids.size(), (statement, id) -> statement.setBytes(1, id));
+        }
+    }
+
+    // For changes to the history of every user, e.g. a dropped partition.
+    public void bumpAllUsers() {
+        bump(ALL_USERS);
+    }
+
+    // The preference is not archived or partitioned, only the user's own version counts.
+    public String preferenceETag(UUID userId) {
+        return "\"p-" + version(userId, userId) + "\"";
+    }
+
+    public String historyETag(UUID userId) {
+        return "\"h-" + version(userId, ALL_USERS) + "-" + retention.retainedSince().toLocalDate() + "\"";
+    }
+
+    private long version(UUID userId, UUID alsoCounted) {
+
+        Long version = jdbcTemplate.queryForObject(VERSION, Long.class, JdbcKeys.toBytes(userId), JdbcKeys.toBytes(alsoCounted));
+        return version == null ? 0 : version;
+    }
+}
@@ -0,0 +1,9 @@
+package app.spool;
+
+import app.web.dto.NotificationRequest;
+
+import java.time.LocalDateTime;
+
+// One accepted request read back from the journal; next is where the record after it starts.
+public record JournalEntry(NotificationRequest request, LocalDateTime acceptedOn, JournalPosition next) {
+}
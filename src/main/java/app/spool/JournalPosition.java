@@ -0,0 +1,12 @@
+package app.spool;
+
+// A place in the journal: the segment number and the byte offset of the next record in it.
+public record JournalPosition(long segment, long offset) implements Comparable<JournalPosition> {
+
+    @Override
+    public int compareTo(JournalPosition other) {
+
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Long.compare(offset, other.offset);
+    }
+}
@@ -0,0 +1,424 @@
+package app.spool;
+
+import app.model.NotificationPriority;
+import app.web.dto.NotificationRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of notification requests accepted while the database is down, in numbered segment files.
+ * <p>
+ * Callers hand their record to a single writer thread and wait. The writer writes everything waiting, forces the file
+ * once and only then releases the callers, so one fsync covers a whole batch and a request is never acknowledged
+ * before it is on disk. A segment is closed, forced, and a new one started once it reaches the segment size.
+ * <pre>
+ * record = payloadLength:int crc32c:int payload
+ * </pre>
+ * The replayer reads from the checkpoint up to the last forced byte and commits a new checkpoint after each batch;
+ * segments before the checkpoint are deleted. A record torn by a crash fails its checksum and ends its segment.
+ */
+@Slf4j
+@Component
+public class NotificationJournal {
+
+    private static final String SUFFIX = ".journal";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    // 2 added the caller; records of format 1 are still read
+    private static final byte FORMAT = 2;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxBatch;
+
+    private final BlockingQueue<PendingAppend> queue;
+    private final AtomicLong pending = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // everything before this position is forced; segments before its segment are complete
+    private volatile JournalPosition durable;
+    private JournalPosition checkpoint;
+
+    // owned by the writer thread
+    private FileChannel active;
+
+    @Autowired
+    public NotificationJournal(@Value("${notification.spool.directory:spool}") String directory,
+                               @Value("${notification.spool.segment-size:64MB}") DataSize segmentSize,
+                               @Value("${notification.spool.max-batch:1000}") int maxBatch,
+                               @Value("${notification.spool.capacity:10000}") int capacity) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentSize.toBytes();
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        TreeSet<Long> segments = segments();
+        long next = segments.isEmpty() ? 1 : segments.last() + 1;
+        // appends after a restart start a new segment, so a torn tail of the old one is never written after
+        this.durable = new JournalPosition(next, 0);
+        this.checkpoint = readCheckpoint().orElse(new JournalPosition(segments.isEmpty() ? next : segments.first(), 0));
+        this.pending.set(countFrom(checkpoint));
+        if (pending.get() > 0) {
+            log.warn("Notification journal holds {} requests that were not replayed yet.", pending.get());
+        }
+
+        this.writer = new Thread(this::run, "notification-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Returns once the request is forced to disk.
+    public void append(NotificationRequest request) throws IOException {
+
+        if (!running) {
+            throw new IOException("The notification journal is closed.");
+        }
+
+        PendingAppend append = new PendingAppend(encode(request, LocalDateTime.now()), new CompletableFuture<>());
+        try {
+            queue.put(append);
+            append.done().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while appending to the notification journal.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    // Requests appended but not committed by the replayer yet.
+    public long getPending() {
+        return pending.get();
+    }
+
+    public synchronized JournalPosition getCheckpoint() {
+        return checkpoint;
+    }
+
+    // Up to max entries from the given position, stopping at the last forced byte.
+    public List<JournalEntry> read(JournalPosition from, int max) throws IOException {
+
+        JournalPosition end = durable;
+        List<JournalEntry> entries = new ArrayList<>();
+        long segment = from.segment();
+        long offset = from.offset();
+
+        while (entries.size() < max && segment <= end.segment()) {
+            Path file = segmentPath(segment);
+            if (!Files.exists(file)) {
+                if (segment == end.segment()) {
+                    break;
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long limit = segment < end.segment() ? channel.size() : Math.min(end.offset(), channel.size());
+                while (entries.size() < max) {
+                    byte[] payload = readRecord(channel, offset, limit);
+                    if (payload == null) {
+                        break;
+                    }
+                    offset += HEADER_BYTES + payload.length;
+                    entries.add(decode(payload, new JournalPosition(segment, offset)));
+                }
+
+                if (entries.size() == max || segment == end.segment()) {
+                    break;
+                }
+                if (offset < channel.size()) {
+                    log.warn("Skipping the torn end of notification journal segment {} at offset {}.", segment, offset);
+                }
+            }
+            segment++;
+            offset = 0;
+        }
+
+        return entries;
+    }
+
+    // Records that everything before the position was replayed, and deletes the segments it has passed.
+    public synchronized void commit(JournalPosition position, int replayed) throws IOException {
+
+        Files.createDirectories(directory);
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(2 * Long.BYTES).putLong(position.segment()).putLong(position.offset()).flip());
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        checkpoint = position;
+        pending.addAndGet(-replayed);
+        for (long segment : segments().headSet(position.segment())) {
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+
+    private void run() {
+
+        List<PendingAppend> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+
+                write(batch);
+                pending.addAndGet(batch.size());
+                batch.forEach(append -> append.done().complete(null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("Could not write {} requests to the notification journal due to {}.", batch.size(), e.getMessage());
+                batch.forEach(append -> append.done().completeExceptionally(e));
+                closeActive();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingAppend> batch) throws IOException {
+
+        for (PendingAppend append : batch) {
+            if (active == null || (active.position() > 0 && active.position() + append.record().length > segmentBytes)) {
+                rotate();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(append.record());
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+        }
+
+        // one fsync for the whole batch
+        active.force(false);
+        durable = new JournalPosition(durable.segment(), active.position());
+    }
+
+    private void rotate() throws IOException {
+
+        long next = durable.segment();
+        if (active != null) {
+            active.force(false);
+            active.close();
+            next++;
+        }
+
+        Files.createDirectories(directory);
+        while (Files.exists(segmentPath(next))) {
+            // a segment left behind by a failed write is complete as far as it goes
+            next++;
+        }
+        active = FileChannel.open(segmentPath(next), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        durable = new JournalPosition(next, 0);
+    }
+
+    private void closeActive() {
+
+        try {
+            if (active != null) {
+                active.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close the notification journal segment due to {}.", e.getMessage());
+        }
+        active = null;
+    }
+
+    // null at the end of the readable part or at a torn record
+    private static byte[] readRecord(FileChannel channel, long offset, long limit) throws IOException {
+
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, offset);
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || offset + HEADER_BYTES + length > limit) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        while (payload.hasRemaining() && channel.read(payload, offset + HEADER_BYTES + payload.position()) >= 0) {
+            // a positional read can return fewer bytes than asked for
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        return (int) crc.getValue() == checksum ? payload.array() : null;
+    }
+
+    private long countFrom(JournalPosition from) throws IOException {
+
+        long count = 0;
+        List<JournalEntry> entries;
+        JournalPosition position = from;
+        while (!(entries = read(position, 1000)).isEmpty()) {
+            count += entries.size();
+            position = entries.get(entries.size() - 1).next();
+        }
+        return count;
+    }
+
+    private Optional<JournalPosition> readCheckpoint() throws IOException {
+
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        return Optional.of(new JournalPosition(buffer.getLong(), buffer.getLong()));
+    }
+
+    private TreeSet<Long> segments() throws IOException {
+
+        TreeSet<Long> segments = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%012d%s", segment, SUFFIX));
+    }
+
+    static byte[] encode(NotificationRequest request, LocalDateTime acceptedOn) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeByte(FORMAT);
+        writeDateTime(out, acceptedOn);
+        out.writeLong(request.getUserId().getMostSignificantBits());
+        out.writeLong(request.getUserId().getLeastSignificantBits());
+        writeString(out, request.getSubject());
+        writeString(out, request.getBody());
+        out.writeBoolean(request.getSendAt() != null);
+        if (request.getSendAt() != null) {
+            writeDateTime(out, request.getSendAt());
+        }
+        writeString(out, request.getPriority() == null ? null : request.getPriority().name());
+        writeString(out, request.getCaller());
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int length = record.capacity() - HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(0, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static JournalEntry decode(byte[] payload, JournalPosition next) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte format = in.readByte();
+        if (format < 1 || format > FORMAT) {
+            throw new IOException("Unknown notification journal record format " + format + ".");
+        }
+
+        LocalDateTime acceptedOn = readDateTime(in);
+        NotificationRequest.NotificationRequestBuilder request = NotificationRequest.builder()
+                .userId(new UUID(in.readLong(), in.readLong()))
+                .subject(readString(in))
+                .body(readString(in));
+        if (in.readBoolean()) {
+            request.sendAt(readDateTime(in));
+        }
+        String priority = readString(in);
+        request.priority(priority == null ? null : NotificationPriority.valueOf(priority));
+        if (format >= 2) {
+            request.caller(readString(in));
+        }
+
+        return new JournalEntry(request.build(), acceptedOn, next);
+    }
+
+    // length-prefixed instead of writeUTF, which stops at 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        closeActive();
+    }
+
+    private record PendingAppend(byte[] record, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,174 @@
+package app.spool;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.service.NotificationDispatcher;
+import app.service.NotificationService;
+import app.web.dto.NotificationRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps accepting notifications while the database is unreachable.
+ * <p>
+ * When a send fails because the database is down, the request goes to the {@link NotificationJournal} and the caller
+ * gets 202. From then on new requests go straight to the journal until the replayer has drained it, so requests are
+ * stored in the order they were accepted. The replayer stores and dispatches journaled requests oldest first and
+ * commits its progress after each batch; it stops at the first request the database still cannot take and tries again
+ * on the next run.
+ * <p>
+ * Replay is at least once: a crash between storing a batch and committing it stores that batch again.
+ */
+@Slf4j
+@Service
+public class NotificationSpool {
+
+    private final NotificationJournal journal;
+    private final NotificationService notificationService;
+    private final NotificationDispatcher notificationDispatcher;
+    private final int batchSize;
+
+    // set by the first spooled request, cleared once the replayer has found the journal empty
+    private volatile boolean degraded;
+
+    @Autowired
+    public NotificationSpool(NotificationJournal journal,
+                             NotificationService notificationService,
+                             NotificationDispatcher notificationDispatcher,
+                             @Value("${notification.spool.replay-batch-size:100}") int batchSize) {
+        this.journal = journal;
+        this.notificationService = notificationService;
+        this.notificationDispatcher = notificationDispatcher;
+        this.batchSize = batchSize;
+    }
+
+    // True for failures that mean the database is unreachable, not that the request is wrong.
+    public static boolean isOutage(Throwable failure) {
+
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(failure);
+        return failure instanceof DataAccessResourceFailureException
+                || failure instanceof TransientDataAccessResourceException
+                || failure instanceof QueryTimeoutException
+                || failure instanceof CannotCreateTransactionException
+                || cause instanceof ConnectException
+                || cause instanceof SQLTransientConnectionException
+                || cause instanceof SQLNonTransientConnectionException;
+    }
+
+    // While true new requests are journaled instead of stored, so they cannot overtake the ones waiting for replay.
+    public boolean isDegraded() {
+        return degraded || journal.getPending() > 0;
+    }
+
+    // Returns once the request is on disk. The notification has no id yet; it gets one when it is replayed.
+    public Notification spool(NotificationRequest notificationRequest) {
+
+        try {
+            journal.append(notificationRequest);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The notification could not be stored or journaled.", e);
+        }
+        degraded = true;
+
+        return Notification.builder()
+                .userId(notificationRequest.getUserId())
+                .subject(notificationRequest.getSubject())
+                .body(notificationRequest.getBody())
+                .status(NotificationStatus.QUEUED)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${notification.spool.replay-interval:5s}")
+    public void replay() {
+
+        if (journal.getPending() == 0) {
+            degraded = false;
+            return;
+        }
+
+        int replayed = 0;
+        try {
+            while (true) {
+                JournalPosition position = journal.getCheckpoint();
+                List<JournalEntry> entries = journal.read(position, batchSize);
+                if (entries.isEmpty()) {
+                    break;
+                }
+
+                int stored = 0;
+                try {
+                    for (JournalEntry entry : entries) {
+                        store(entry);
+                        position = entry.next();
+                        stored++;
+                    }
+                } finally {
+                    // whatever was stored before a failure is not replayed again
+                    if (stored > 0) {
+                        journal.commit(position, stored);
+                        replayed += stored;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (isOutage(e)) {
+                log.info("Notification replay paused after {} requests, the database is still unavailable.", replayed);
+            } else {
+                log.error("Notification replay stopped after {} requests due to {}.", replayed, e.getMessage());
+            }
+            return;
+        }
+
+        degraded = journal.getPending() > 0;
+        log.info("Replayed {} journaled notifications.", replayed);
+    }
+
+    private void store(JournalEntry entry) throws InterruptedException {
+
+        Notification notification;
+        try {
+            notification = notificationService.queueNotification(entry.request());
+        } catch (NullPointerException | IllegalArgumentException e) {
+            // e.g. the user has no preference - the request would have been rejected had the database been up
+            log.warn("Dropping the notification for user {} accepted on {}: {}", entry.request().getUserId(), entry.acceptedOn(), e.getMessage());
+            return;
+        }
+
+        if (notification.getStatus() == NotificationStatus.QUEUED) {
+            dispatch(notification);
+        }
+    }
+
+    private void dispatch(Notification notification) throws InterruptedException {
+
+        while (true) {
+            try {
+                notificationDispatcher.dispatch(notification.getId(), notification.getCaller());
+                return;
+            } catch (TaskRejectedException e) {
+                // dispatcher queue is full - wait for it to drain, the row stays QUEUED either way
+                Thread.sleep(100);
+            }
+        }
+    }
+}
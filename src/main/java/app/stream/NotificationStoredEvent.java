@@ -0,0 +1,10 @@
+package app.stream;
+
+import app.web.dto.NotificationResponse;
+
+import java.util.UUID;
+
+// Published by NotificationService whenever a notification is stored or its delivery outcome is recorded, so
+// connected clients of the user get it pushed instead of polling the history.
+public record NotificationStoredEvent(UUID userId, NotificationResponse notification) {
+}
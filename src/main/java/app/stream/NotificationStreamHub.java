@@ -0,0 +1,269 @@
+package app.stream;
+
+import app.exception.TooManyRequestsException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of stored notifications to the Server-Sent Events streams of their user.
+ * <p>
+ * An idle subscriber is an async request parked in Tomcat plus a small bounded buffer - no thread. Publishing only
+ * offers the event to the buffers of the user's subscribers; a few sender threads write them to the sockets. A
+ * subscriber whose buffer is full is not keeping up and is closed, so one slow client cannot hold back the others
+ * or grow memory. Clients reconnect and catch up from the history endpoint.
+ * <p>
+ * A write to a client that stopped reading blocks its sender thread until the socket times out. A subscriber whose
+ * write has been blocked for longer than send-timeout is closed as well, and the pool gets a thread for every blocked
+ * one, up to max-sender-threads, so the other subscribers keep being served meanwhile.
+ * <p>
+ * Subscriptions are per process: a client only sees notifications stored by the instance it is connected to.
+ */
+@Slf4j
+@Component
+public class NotificationStreamHub {
+
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // subscribers with a write in progress, to find the stuck ones
+    private final Set<Subscriber> writing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+    private final int senderThreads;
+    private final int maxSenderThreads;
+    private final long sendTimeoutNanos;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final int maxSubscribersPerUser;
+    private final long timeoutMillis;
+
+    @Autowired
+    public NotificationStreamHub(@Value("${notification.stream.buffer-size:32}") int bufferSize,
+                                 @Value("${notification.stream.max-subscribers:50000}") int maxSubscribers,
+                                 @Value("${notification.stream.max-subscribers-per-user:5}") int maxSubscribersPerUser,
+                                 @Value("${notification.stream.timeout:30m}") Duration timeout,
+                                 @Value("${notification.stream.sender-threads:4}") int senderThreads,
+                                 @Value("${notification.stream.max-sender-threads:32}") int maxSenderThreads,
+                                 @Value("${notification.stream.send-timeout:5s}") Duration sendTimeout) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.maxSubscribersPerUser = maxSubscribersPerUser;
+        this.timeoutMillis = timeout.toMillis();
+        this.senderThreads = senderThreads;
+        this.maxSenderThreads = Math.max(senderThreads, maxSenderThreads);
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "notification-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(UUID userId) {
+        return subscribe(userId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(UUID userId, SseEmitter emitter) {
+
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManyRequestsException("Too many open notification streams, please retry later.", RETRY_AFTER_SECONDS);
+        }
+
+        Subscriber subscriber = new Subscriber(userId, emitter, bufferSize);
+        Set<Subscriber> userSubscribers = subscribers.compute(userId, (id, existing) -> {
+            Set<Subscriber> updated = existing == null ? ConcurrentHashMap.newKeySet() : existing;
+            updated.add(subscriber);
+            return updated;
+        });
+
+        if (userSubscribers.size() > maxSubscribersPerUser) {
+            // e.g. a client reconnecting in a loop without closing - the user's other streams make room
+            userSubscribers.stream()
+                    .filter(other -> other != subscriber)
+                    .limit(userSubscribers.size() - maxSubscribersPerUser)
+                    .toList()
+                    .forEach(this::close);
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        return emitter;
+    }
+
+    @EventListener
+    public void onNotificationStored(NotificationStoredEvent event) {
+
+        Set<Subscriber> userSubscribers = subscribers.get(event.userId());
+        if (userSubscribers == null) {
+            return;
+        }
+
+        for (Subscriber subscriber : userSubscribers) {
+            offer(subscriber, SseEmitter.event()
+                    .id(String.valueOf(event.notification().getId()))
+                    .name("notification")
+                    .data(event.notification()));
+        }
+    }
+
+    // Keeps proxies from closing idle streams and finds clients that went away without closing the connection.
+    @Scheduled(fixedDelayString = "${notification.stream.heartbeat-interval:30s}")
+    public void heartbeat() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> offer(subscriber, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    // Closes the subscribers whose write has not returned within send-timeout and makes up for the sender threads
+    // they still hold.
+    @Scheduled(fixedDelayString = "${notification.stream.stuck-check-interval:1s}")
+    public void evictStuckSubscribers() {
+
+        long now = System.nanoTime();
+        int stuck = 0;
+        for (Subscriber subscriber : writing) {
+            if (now - subscriber.sendStartedNanos < sendTimeoutNanos) {
+                continue;
+            }
+            stuck++;
+            if (remove(subscriber)) {
+                log.info("Closing notification stream of user {} because a write has been blocked for more than {} ms.",
+                        subscriber.userId, TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                // lets the container close the connection, which also ends the blocked write
+                subscriber.emitter.completeWithError(new IOException("Notification stream write timed out."));
+            }
+        }
+
+        resizeSenders(Math.min(senderThreads + stuck, maxSenderThreads));
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void offer(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+
+        if (!subscriber.buffer.offer(event)) {
+            log.info("Closing notification stream of user {} because it does not keep up.", subscriber.userId);
+            close(subscriber);
+            return;
+        }
+
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // At most one sender per subscriber, so events leave in the order they were published.
+    private void drain(Subscriber subscriber) {
+
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.buffer.poll()) != null) {
+                subscriber.sendStartedNanos = System.nanoTime();
+                writing.add(subscriber);
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // the client is gone or the stream is already complete
+                    remove(subscriber);
+                    return;
+                } finally {
+                    writing.remove(subscriber);
+                }
+                if (subscriber.removed.get()) {
+                    // evicted while the write was blocked
+                    return;
+                }
+            }
+
+            subscriber.sending.set(false);
+            if (subscriber.buffer.isEmpty() || !subscriber.sending.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    // New threads start right away when tasks are queued; surplus threads stop once idle.
+    private void resizeSenders(int poolSize) {
+
+        if (poolSize == senders.getCorePoolSize()) {
+            return;
+        }
+        if (poolSize > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(poolSize);
+            senders.setCorePoolSize(poolSize);
+        } else {
+            senders.setCorePoolSize(poolSize);
+            senders.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+
+        if (remove(subscriber)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    // Called from the close paths and the emitter callbacks - only the first call counts.
+    private boolean remove(Subscriber subscriber) {
+
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return false;
+        }
+
+        subscribers.computeIfPresent(subscriber.userId, (userId, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+        subscriberCount.decrementAndGet();
+        subscriber.buffer.clear();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(this::close));
+        senders.shutdown();
+    }
+
+    private static final class Subscriber {
+
+        private final UUID userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+
+        private Subscriber(UUID userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
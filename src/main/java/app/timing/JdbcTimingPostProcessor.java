@@ -0,0 +1,112 @@
+package app.timing;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+// Adds the time of JDBC work outside the repositories to the request's db stage: JdbcTemplate statements, waiting for
+// a pooled connection, and transaction commits and rollbacks. Wraps every DataSource bean; statements run inside a
+// repository call are already counted by RepositoryTimingInterceptor and are not counted again.
+public class JdbcTimingPostProcessor implements BeanPostProcessor {
+
+    private static final Set<String> TIMED_CONNECTION_METHODS = Set.of("commit", "rollback");
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource && !(bean instanceof TimingDataSource) ? new TimingDataSource(dataSource) : bean;
+    }
+
+    static final class TimingDataSource extends DelegatingDataSource {
+
+        TimingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connection(timed(() -> obtainTargetDataSource().getConnection()));
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return connection(timed(() -> obtainTargetDataSource().getConnection(username, password)));
+        }
+
+        private static Connection connection(Connection target) {
+
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (TIMED_CONNECTION_METHODS.contains(method.getName())) {
+                    return timed(() -> invoke(target, method, args));
+                }
+
+                Object result = invoke(target, method, args);
+                if (result instanceof CallableStatement statement) {
+                    return statement(statement, CallableStatement.class);
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return statement(statement, PreparedStatement.class);
+                }
+                if (result instanceof Statement statement) {
+                    return statement(statement, Statement.class);
+                }
+                return result;
+            });
+        }
+
+        private static Object statement(Statement target, Class<? extends Statement> type) {
+
+            InvocationHandler handler = (proxy, method, args) -> method.getName().startsWith("execute")
+                    ? timed(() -> invoke(target, method, args))
+                    : invoke(target, method, args);
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws SQLException {
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static <T> T timed(JdbcCall<T> call) throws SQLException {
+
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null || timing.isRunning()) {
+                return call.run();
+            }
+
+            timing.begin(RequestTiming.Stage.DB);
+            try {
+                return call.run();
+            } finally {
+                timing.end();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface JdbcCall<T> {
+        T run() throws SQLException;
+    }
+}
@@ -0,0 +1,37 @@
+package app.timing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+// Adds the time of every Spring Data repository call to the request's db stage. Installed on the repository factory
+// beans before they create their proxies, so the repositories themselves are not wrapped a second time.
+public class RepositoryTimingInterceptor implements MethodInterceptor, BeanPostProcessor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null || timing.isRunning()) {
+            return invocation.proceed();
+        }
+
+        timing.begin(RequestTiming.Stage.DB);
+        try {
+            return invocation.proceed();
+        } finally {
+            timing.end();
+        }
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(this)));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,128 @@
+package app.timing;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * Time one request spends in each stage, collected on the request thread while ServerTimingFilter is installed.
+ * Without the filter nothing is collected: {@link #time} finds no timing for the thread and only runs the work.
+ * <p>
+ * Work on other threads is not attributed to the request directly - a send on a channel thread counts as the
+ * time the request thread waits for it.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt;
+    private final long[] nanos = new long[Stage.values().length];
+    private final int[] counts = new int[Stage.values().length];
+    // start of the stage in progress, so a repository call inside another stage is not counted twice
+    private Stage running;
+    private long runningSince;
+
+    private RequestTiming(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    static RequestTiming start() {
+
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T time(Stage stage, Supplier<T> work) {
+
+        RequestTiming timing = CURRENT.get();
+        if (timing == null || timing.isRunning()) {
+            return work.get();
+        }
+
+        timing.begin(stage);
+        try {
+            return work.get();
+        } finally {
+            timing.end();
+        }
+    }
+
+    boolean isRunning() {
+        return running != null;
+    }
+
+    void begin(Stage stage) {
+        running = stage;
+        runningSince = System.nanoTime();
+    }
+
+    void end() {
+
+        if (running != null) {
+            nanos[running.ordinal()] += System.nanoTime() - runningSince;
+            counts[running.ordinal()]++;
+            running = null;
+        }
+    }
+
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public int getCount(Stage stage) {
+        return counts[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    // e.g. db;dur=3.2;desc="2 calls", mail;dur=412.7, json;dur=0.1, total;dur=418.5 - stages the request did not
+    // enter are left out
+    public String toHeader() {
+
+        StringJoiner header = new StringJoiner(", ");
+        for (Stage stage : Stage.values()) {
+            int count = counts[stage.ordinal()];
+            if (count > 0) {
+                String metric = stage.metric + ";dur=" + millis(nanos[stage.ordinal()]);
+                header.add(count > 1 ? metric + ";desc=\"" + count + " calls\"" : metric);
+            }
+        }
+        header.add("total;dur=" + millis(getTotalNanos()));
+        return header.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    public enum Stage {
+
+        // Spring Data repository calls, JdbcTemplate statements, waiting for a connection and commits
+        DB("db"),
+        // the request thread waiting for the channel, i.e. for SMTP on email
+        MAIL("mail"),
+        // writing the response body
+        JSON("json");
+
+        private final String metric;
+
+        Stage(String metric) {
+            this.metric = metric;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package app.timing;
+
+import app.config.ServerTimingProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reports where a request spent its time - repository calls, waiting for the mail channel and writing the body - in
+ * a Server-Timing response header, and for a sample of requests in a log line with one key per stage. Requests
+ * slower than log-slower-than are always logged.
+ * <p>
+ * The body is buffered until the request is done, since the header has to go out before it. Requests the handler
+ * turns asynchronous, e.g. event streams, are left alone: they outlive the filter, so from then on writes go straight
+ * to the client and the request is neither timed nor logged.
+ */
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+
+    private final double logSampleRate;
+    private final long logSlowerThanNanos;
+
+    public ServerTimingFilter(ServerTimingProperties properties) {
+        this.logSampleRate = properties.getLogSampleRate();
+        this.logSlowerThanNanos = properties.getLogSlowerThan().toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+
+        BufferedUntilAsync buffered = new BufferedUntilAsync(request, response);
+        RequestTiming timing = RequestTiming.start();
+        try {
+            chain.doFilter(request, buffered);
+        } finally {
+            // the json stage started by SerializationTimingAdvice, if a body was written
+            timing.end();
+            RequestTiming.clear();
+
+            if (!request.isAsyncStarted()) {
+                buffered.setHeader(HEADER, timing.toHeader());
+                buffered.copyBodyToResponse();
+                logSampled(request, response.getStatus(), timing);
+            }
+        }
+    }
+
+    private void logSampled(HttpServletRequest request, int status, RequestTiming timing) {
+
+        long totalNanos = timing.getTotalNanos();
+        if (totalNanos < logSlowerThanNanos && ThreadLocalRandom.current().nextDouble() >= logSampleRate) {
+            return;
+        }
+
+        LoggingEventBuilder event = log.atInfo()
+                .addKeyValue("method", request.getMethod())
+                .addKeyValue("path", request.getRequestURI())
+                .addKeyValue("status", status)
+                .addKeyValue("total_ms", RequestTiming.millis(totalNanos));
+        for (RequestTiming.Stage stage : RequestTiming.Stage.values()) {
+            event = event.addKeyValue(stage.getMetric() + "_ms", RequestTiming.millis(timing.getNanos(stage)))
+                    .addKeyValue(stage.getMetric() + "_calls", timing.getCount(stage));
+        }
+        event.log("{} {} answered {} in {} ms: {}", request.getMethod(), request.getRequestURI(), status, RequestTiming.millis(totalNanos), timing.toHeader());
+    }
+
+    // Buffers like its parent until the request goes async; nothing would copy what is written after that.
+    private static final class BufferedUntilAsync extends ContentCachingResponseWrapper {
+
+        private final HttpServletRequest request;
+
+        private BufferedUntilAsync(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return request.isAsyncStarted() ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return request.isAsyncStarted() ? getResponse().getWriter() : super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+
+            if (request.isAsyncStarted()) {
+                // anything written before the request went async goes first
+                copyBodyToResponse(false);
+                getResponse().flushBuffer();
+            } else {
+                super.flushBuffer();
+            }
+        }
+    }
+}
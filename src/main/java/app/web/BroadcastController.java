@@ -0,0 +1,48 @@
+package app.web;
+
+import app.service.BroadcastJob;
+import app.service.BroadcastService;
+import app.web.dto.BroadcastJobResponse;
+import app.web.dto.BroadcastRequest;
+import app.web.mapper.DtoMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/notifications/broadcast")
+public class BroadcastController {
+
+    private final BroadcastService broadcastService;
+
+    @Autowired
+    public BroadcastController(BroadcastService broadcastService) {
+        this.broadcastService = broadcastService;
+    }
+
+    // The broadcast runs in the background - the caller polls the returned job id for progress.
+    @PostMapping
+    public ResponseEntity<BroadcastJobResponse> startBroadcast(@RequestBody BroadcastRequest broadcastRequest,
+                                                               @RequestHeader(name = CallerId.HEADER, required = false) String caller) {
+
+        broadcastRequest.setCaller(CallerId.of(caller));
+        BroadcastJob job = broadcastService.startBroadcast(broadcastRequest);
+
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(DtoMapper.fromBroadcastJob(job));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BroadcastJobResponse> getBroadcastJob(@PathVariable UUID jobId) {
+
+        BroadcastJob job = broadcastService.getBroadcastJob(jobId);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromBroadcastJob(job));
+    }
+}
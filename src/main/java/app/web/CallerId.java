@@ -0,0 +1,26 @@
+package app.web;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// The X-Caller-Id header names the upstream service or team a notification is sent for. Each caller gets its own
+// share of the dispatcher and channel queues, weighted by notification.fairness.weights.<caller>.
+final class CallerId {
+
+    static final String HEADER = "X-Caller-Id";
+
+    private static final Pattern VALID = Pattern.compile("[a-z0-9][a-z0-9._-]{0,63}");
+
+    private CallerId() {
+    }
+
+    // Lower-cased; null when the header is missing or not a valid id, which sends the request as the default caller.
+    static String of(String header) {
+
+        if (header == null) {
+            return null;
+        }
+        String caller = header.trim().toLowerCase(Locale.ROOT);
+        return VALID.matcher(caller).matches() ? caller : null;
+    }
+}
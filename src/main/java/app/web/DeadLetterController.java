@@ -0,0 +1,32 @@
+package app.web;
+
+import app.service.DeadLetterService;
+import app.web.dto.DeadLetterReplayRequest;
+import app.web.dto.DeadLetterReplayResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/admin/dead-letters")
+public class DeadLetterController {
+
+    private final DeadLetterService deadLetterService;
+
+    @Autowired
+    public DeadLetterController(DeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    // Returns once every matching dead letter is QUEUED again and handed to the dispatcher.
+    @PostMapping("/replay")
+    public ResponseEntity<DeadLetterReplayResponse> replayDeadLetters(@RequestBody DeadLetterReplayRequest replayRequest) {
+
+        long replayed = deadLetterService.replay(replayRequest);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DeadLetterReplayResponse.builder().replayed(replayed).build());
+    }
+}
@@ -1,20 +1,38 @@
 package app.web;
 
+import app.exception.NotificationStoredException;
 import app.model.Notification;
 import app.model.NotificationPreference;
+import app.service.AdmissionLimiter;
+import app.service.AsyncNotificationService;
 import app.service.NotificationService;
+import app.service.RecentHistoryCache;
+import app.service.UserVersions;
+import app.spool.NotificationSpool;
+import app.stream.NotificationStreamHub;
 import app.web.dto.NotificationPreferenceResponse;
 import app.web.dto.NotificationRequest;
 import app.web.dto.NotificationResponse;
 import app.web.dto.UpsertNotificationPreference;
 import app.web.mapper.DtoMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.MailSender;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -22,11 +40,20 @@ import java.util.UUID;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final AsyncNotificationService asyncNotificationService;
+    private final UserVersions userVersions;
+    private final AdmissionLimiter admissionLimiter;
+    private final NotificationStreamHub notificationStreamHub;
+    private final NotificationSpool notificationSpool;
 
     @Autowired
-    public NotificationController(NotificationService notificationService, MailSender mailSender) {
+    public NotificationController(NotificationService notificationService, AsyncNotificationService asyncNotificationService, MailSender mailSender, UserVersions userVersions, AdmissionLimiter admissionLimiter, NotificationStreamHub notificationStreamHub, NotificationSpool notificationSpool) {
         this.notificationService = notificationService;
-
+        this.asyncNotificationService = asyncNotificationService;
+        this.userVersions = userVersions;
+        this.admissionLimiter = admissionLimiter;
+        this.notificationStreamHub = notificationStreamHub;
+        this.notificationSpool = notificationSpool;
     }
 
     //1. Receive JSON @RequestBody
@@ -50,7 +77,19 @@ public class NotificationController {
     }
 
     @GetMapping("/preferences")
-    public ResponseEntity<NotificationPreferenceResponse> getUserNotificationPreference(@RequestParam(name = "userId") UUID userId) {
+    public ResponseEntity<NotificationPreferenceResponse> getUserNotificationPreference(@RequestParam(name = "userId") UUID userId,
+                                                                                        @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                                        WebRequest webRequest,
+                                                                                        HttpServletResponse httpResponse) {
+
+        // The version is read before the database, so a concurrent write can only make the ETag older than the body.
+        String eTag = Representation.eTag(userVersions.preferenceETag(userId), accept);
+        // also on the 304, which is written before the ResponseEntity
+        httpResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (webRequest.checkNotModified(eTag)) {
+            // 304 is already written - nothing changed since the client's copy
+            return null;
+        }
 
         NotificationPreference notificationPreference = notificationService.getPreferenceByUserId(userId);
 
@@ -59,14 +98,45 @@ public class NotificationController {
 
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .eTag(eTag)
                 .body(responseDto);
     }
 
     @PostMapping
-    public ResponseEntity<NotificationResponse> sendNotification(@RequestBody NotificationRequest notificationRequest) {
+    public ResponseEntity<NotificationResponse> sendNotification(@RequestBody NotificationRequest notificationRequest,
+                                                                 @RequestHeader(name = CallerId.HEADER, required = false) String caller) {
+
+        notificationRequest.setCaller(CallerId.of(caller));
+
+        // while journaled requests wait for the database, new ones queue up behind them
+        if (notificationSpool.isDegraded()) {
+            return spooled(notificationRequest);
+        }
+
+        // rejects with 429 + Retry-After before any work is done when the service is saturated
+        AdmissionLimiter.Permit permit = admissionLimiter.acquire();
 
         // Entity
-        Notification notification = notificationService.sendNotification(notificationRequest);
+        Notification notification;
+        try {
+            notification = notificationService.sendNotification(notificationRequest);
+        } catch (DataAccessException | TransactionException e) {
+            // nothing was stored yet, e.g. the preference lookup or the first insert failed
+            permit.drop();
+            if (NotificationSpool.isOutage(e)) {
+                return spooled(notificationRequest);
+            }
+            throw e;
+        } catch (NotificationStoredException e) {
+            // spooling would send it again - recovery resolves the stored row, its status is at the Location
+            permit.drop();
+            return ResponseEntity
+                    .accepted()
+                    .location(URI.create("/api/v1/notifications/" + e.getNotification().getId()))
+                    .body(DtoMapper.fromNotification(e.getNotification()));
+        } finally {
+            permit.release();
+        }
 
        // DTO
         NotificationResponse response = DtoMapper.fromNotification(notification);
@@ -76,16 +146,114 @@ public class NotificationController {
                 .body(response);
     }
 
-    @GetMapping
-    public ResponseEntity<List<NotificationResponse>> getNotificationHistory(@RequestParam(name = "userId") UUID userId) {
+    // Returns as soon as the notification is stored - the Location header points at the status of the delivery.
+    @PostMapping("/async")
+    public ResponseEntity<NotificationResponse> sendNotificationAsync(@RequestBody NotificationRequest notificationRequest,
+                                                                      @RequestHeader(name = CallerId.HEADER, required = false) String caller) {
+
+        notificationRequest.setCaller(CallerId.of(caller));
+
+        if (notificationSpool.isDegraded()) {
+            return spooled(notificationRequest);
+        }
+
+        // only the backlog limits it: the request just stores the row, the dispatcher queue is where its work waits
+        admissionLimiter.checkBacklog();
+
+        Notification notification;
+        try {
+            notification = asyncNotificationService.acceptNotification(notificationRequest);
+        } catch (DataAccessException | TransactionException e) {
+            if (NotificationSpool.isOutage(e)) {
+                return spooled(notificationRequest);
+            }
+            throw e;
+        }
+
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/api/v1/notifications/" + notification.getId()))
+                .body(DtoMapper.fromNotification(notification));
+    }
+
+    // The database is unavailable - the request is journaled and stored later, so there is no id to point at yet.
+    private ResponseEntity<NotificationResponse> spooled(NotificationRequest notificationRequest) {
 
-        List<NotificationResponse> notificationHistory = notificationService.getNotificationHistory(userId)
-                .stream()
-                .map(DtoMapper::fromNotification)
-                .toList();
+        Notification notification = notificationSpool.spool(notificationRequest);
+
+        return ResponseEntity
+                .accepted()
+                .body(DtoMapper.fromNotification(notification));
+    }
+
+    // Pushes the user's notifications as they are stored; an idle stream holds no thread while it waits.
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(@RequestParam(name = "userId") UUID userId) {
+        return notificationStreamHub.subscribe(userId);
+    }
+
+    @GetMapping("/{notificationId}")
+    public ResponseEntity<NotificationResponse> getNotification(@PathVariable UUID notificationId) {
+
+        Notification notification = notificationService.getNotification(notificationId);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromNotification(notification));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<NotificationResponse>> getNotificationHistory(@RequestParam(name = "userId") UUID userId,
+                                                                             @RequestParam(name = "limit", required = false) Integer limit,
+                                                                             @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                             @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                             @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                             WebRequest webRequest,
+                                                                             HttpServletResponse httpResponse) {
+
+        httpResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        // a hot user's first page comes from the recent history cache with the ring's own ETag - no database read,
+        // not even for the version
+        if (from == null && to == null && limit != null) {
+            Optional<RecentHistoryCache.Page> cached = notificationService.getCachedRecentHistory(userId, limit);
+            if (cached.isPresent()) {
+                String eTag = Representation.eTag(cached.get().eTag(), accept);
+                if (webRequest.checkNotModified(eTag)) {
+                    return null;
+                }
+                return ResponseEntity
+                        .status(HttpStatus.OK)
+                        .eTag(eTag)
+                        .body(cached.get().entries());
+            }
+        }
+
+        String eTag = Representation.eTag(userVersions.historyETag(userId), accept);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        // with a limit only the newest notifications are returned, which hot users get from the recent history cache
+        List<NotificationResponse> notificationHistory;
+        if (from != null || to != null) {
+            // a range that reaches back before the retention window is answered from the archive as well
+            notificationHistory = notificationService.getNotificationHistory(userId, from, to)
+                    .stream()
+                    .map(DtoMapper::fromNotification)
+                    .toList();
+        } else if (limit != null) {
+            notificationHistory = notificationService.getRecentNotificationHistory(userId, limit);
+        } else {
+            notificationHistory = notificationService.getNotificationHistory(userId)
+                    .stream()
+                    .map(DtoMapper::fromNotification)
+                    .toList();
+        }
 
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .eTag(eTag)
                 .body(notificationHistory);
     }
 
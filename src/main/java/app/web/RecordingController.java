@@ -0,0 +1,62 @@
+package app.web;
+
+import app.service.RecordingService;
+import app.web.dto.RecordingResponse;
+import app.web.mapper.DtoMapper;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/v1/admin/recordings")
+public class RecordingController {
+
+    private final RecordingService recordingService;
+
+    @Autowired
+    public RecordingController(RecordingService recordingService) {
+        this.recordingService = recordingService;
+    }
+
+    @PostMapping
+    public ResponseEntity<RecordingResponse> startRecording(@RequestParam(name = "maxAge", defaultValue = "10m") Duration maxAge,
+                                                            @RequestParam(name = "maxSizeMb", defaultValue = "64") long maxSizeMb) {
+
+        Recording recording = recordingService.startRecording(maxAge, maxSizeMb * 1024 * 1024);
+
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .body(DtoMapper.fromRecording(recording));
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<RecordingResponse> stopRecording() {
+
+        Recording recording = recordingService.stopRecording();
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromRecording(recording));
+    }
+
+    // Open the downloaded file with JDK Mission Control or `jfr print --events app.notification.* <file>`.
+    @GetMapping
+    public ResponseEntity<Resource> downloadRecording() {
+
+        FileSystemResource file = new FileSystemResource(recordingService.getRecordingFile());
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFilename() + "\"")
+                .body(file);
+    }
+}
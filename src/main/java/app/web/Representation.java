@@ -0,0 +1,38 @@
+package app.web;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+
+// The same version is rendered as JSON or CBOR depending on the Accept header, so a cache keyed on the URL alone would
+// hand one format to a client that asked for the other. ETags carry the representation and responses vary by Accept.
+final class Representation {
+
+    private Representation() {
+    }
+
+    // Mirrors the content negotiation: highest quality first, ties in header order, JSON when nothing decides.
+    static String eTag(String versionETag, String accept) {
+
+        if (versionETag == null || accept == null || !isCbor(accept)) {
+            return versionETag;
+        }
+        return versionETag.substring(0, versionETag.length() - 1) + "-cbor\"";
+    }
+
+    private static boolean isCbor(String accept) {
+
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                    .filter(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON) || type.isCompatibleWith(MediaType.APPLICATION_CBOR))
+                    .findFirst()
+                    .map(type -> !type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    .orElse(false);
+        } catch (InvalidMediaTypeException e) {
+            // negotiation rejects the request anyway
+            return false;
+        }
+    }
+}
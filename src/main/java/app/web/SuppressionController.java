@@ -0,0 +1,56 @@
+package app.web;
+
+import app.model.Suppression;
+import app.service.SuppressionService;
+import app.web.dto.SuppressionRequest;
+import app.web.dto.SuppressionResponse;
+import app.web.mapper.DtoMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/suppressions")
+public class SuppressionController {
+
+    private final SuppressionService suppressionService;
+
+    @Autowired
+    public SuppressionController(SuppressionService suppressionService) {
+        this.suppressionService = suppressionService;
+    }
+
+    // Without an email the 100 most recent suppressions are returned.
+    @GetMapping
+    public ResponseEntity<List<SuppressionResponse>> getSuppressions(@RequestParam(name = "email", required = false) String email) {
+
+        List<SuppressionResponse> responseDto = suppressionService.getSuppressions(email).stream().map(DtoMapper::fromSuppression).toList();
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(responseDto);
+    }
+
+    @PostMapping
+    public ResponseEntity<SuppressionResponse> addSuppression(@RequestBody SuppressionRequest suppressionRequest) {
+
+        Suppression suppression = suppressionService.suppress(suppressionRequest.getEmail(), suppressionRequest.getReason());
+
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .body(DtoMapper.fromSuppression(suppression));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> removeSuppression(@RequestParam(name = "email") String email) {
+
+        suppressionService.removeSuppression(email);
+
+        return ResponseEntity
+                .status(HttpStatus.NO_CONTENT)
+                .build();
+    }
+}
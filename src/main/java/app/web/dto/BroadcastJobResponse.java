@@ -0,0 +1,33 @@
+package app.web.dto;
+
+import app.service.BroadcastJob;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@Getter
+@Setter
+public class BroadcastJobResponse {
+
+    private UUID jobId;
+
+    private BroadcastJob.State state;
+
+    private long queued;
+
+    private long succeeded;
+
+    private long suppressed;
+
+    private long failed;
+
+    private LocalDateTime startedOn;
+
+    private LocalDateTime completedOn;
+}
@@ -0,0 +1,25 @@
+package app.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+@Data
+@Builder
+@Getter
+@Setter
+public class BroadcastRequest {
+
+    @NotBlank
+    private String subject;
+
+    @NotBlank
+    private String body;
+
+    // taken from the X-Caller-Id header, never from the body
+    @JsonIgnore
+    private String caller;
+}
@@ -0,0 +1,27 @@
+package app.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Every filter is optional - an empty request replays all dead letters.
+@Data
+@Builder
+@Getter
+@Setter
+public class DeadLetterReplayRequest {
+
+    // createdOn range of the notifications, from inclusive and to exclusive
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    // recipient domain, e.g. example.com
+    private String domain;
+
+    // simple class name of the last delivery error, e.g. MailSendException
+    private String errorClass;
+}
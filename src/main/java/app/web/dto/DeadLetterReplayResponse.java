@@ -0,0 +1,15 @@
+package app.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+@Data
+@Builder
+@Getter
+@Setter
+public class DeadLetterReplayResponse {
+
+    private long replayed;
+}
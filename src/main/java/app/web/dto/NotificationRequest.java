@@ -1,5 +1,7 @@
 package app.web.dto;
 
+import app.model.NotificationPriority;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
@@ -7,6 +9,7 @@ import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
@@ -23,4 +26,14 @@ public class NotificationRequest {
 
     @NotBlank
     private String body;
+
+    // optional - when set in the future the notification is stored as SCHEDULED and delivered later
+    private LocalDateTime sendAt;
+
+    // optional - HIGH lets the SMTP router hedge the send to a second relay
+    private NotificationPriority priority;
+
+    // taken from the X-Caller-Id header, never from the body
+    @JsonIgnore
+    private String caller;
 }
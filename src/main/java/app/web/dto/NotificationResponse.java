@@ -8,6 +8,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @Builder
@@ -15,6 +16,8 @@ import java.time.LocalDateTime;
 @Setter
 public class NotificationResponse {
 
+    private UUID id;
+
     private String subject;
 
     private LocalDateTime createdOn;
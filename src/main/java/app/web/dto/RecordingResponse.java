@@ -0,0 +1,28 @@
+package app.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Data
+@Builder
+@Getter
+@Setter
+public class RecordingResponse {
+
+    private long id;
+
+    private String state;
+
+    private Instant startTime;
+
+    private Instant stopTime;
+
+    private Duration maxAge;
+
+    private long maxSize;
+}
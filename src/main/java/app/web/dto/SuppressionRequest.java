@@ -0,0 +1,21 @@
+package app.web.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+@Data
+@Builder
+@Getter
+@Setter
+public class SuppressionRequest {
+
+    @NotBlank
+    @Email
+    private String email;
+
+    private String reason;
+}
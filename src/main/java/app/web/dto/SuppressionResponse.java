@@ -0,0 +1,21 @@
+package app.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@Getter
+@Setter
+public class SuppressionResponse {
+
+    private String email;
+
+    private String reason;
+
+    private LocalDateTime createdOn;
+}
@@ -3,9 +3,15 @@ package app.web.mapper;
 import app.model.Notification;
 import app.model.NotificationPreference;
 import app.model.NotificationType;
+import app.model.Suppression;
+import app.service.BroadcastJob;
+import app.web.dto.BroadcastJobResponse;
 import app.web.dto.NotificationPreferenceResponse;
 import app.web.dto.NotificationResponse;
 import app.web.dto.NotificationTypeRequest;
+import app.web.dto.RecordingResponse;
+import app.web.dto.SuppressionResponse;
+import jdk.jfr.Recording;
 import lombok.experimental.UtilityClass;
 
 @UtilityClass
@@ -16,6 +22,8 @@ public class DtoMapper {
     public static NotificationType fromNotificationTypeRequest(NotificationTypeRequest notificationTypeRequest) {
         return switch (notificationTypeRequest) {
             case EMAIL -> NotificationType.EMAIL;
+            case SMS -> NotificationType.SMS;
+            case MOBILE -> NotificationType.MOBILE;
         };
     }
 
@@ -37,10 +45,46 @@ public class DtoMapper {
     public static NotificationResponse fromNotification(Notification entity) {
 
         return NotificationResponse.builder()
+                .id(entity.getId())
                 .subject(entity.getSubject())
                 .status(entity.getStatus())
                 .createdOn(entity.getCreatedOn())
                 .type(entity.getType())
                 .build();
     }
+
+    public static BroadcastJobResponse fromBroadcastJob(BroadcastJob job) {
+
+        return BroadcastJobResponse.builder()
+                .jobId(job.getId())
+                .state(job.getState())
+                .queued(job.getQueued().get())
+                .succeeded(job.getSucceeded().get())
+                .suppressed(job.getSuppressed().get())
+                .failed(job.getFailed().get())
+                .startedOn(job.getStartedOn())
+                .completedOn(job.getCompletedOn())
+                .build();
+    }
+
+    public static RecordingResponse fromRecording(Recording recording) {
+
+        return RecordingResponse.builder()
+                .id(recording.getId())
+                .state(recording.getState().name())
+                .startTime(recording.getStartTime())
+                .stopTime(recording.getStopTime())
+                .maxAge(recording.getMaxAge())
+                .maxSize(recording.getMaxSize())
+                .build();
+    }
+
+    public static SuppressionResponse fromSuppression(Suppression suppression) {
+
+        return SuppressionResponse.builder()
+                .email(suppression.getEmail())
+                .reason(suppression.getReason())
+                .createdOn(suppression.getCreatedOn())
+                .build();
+    }
 }
@@ -0,0 +1,42 @@
+-- Schema as of the switch from ddl-auto=update to migrations. Databases created by ddl-auto=update already have
+-- these tables; they are baselined at this version (spring.flyway.baseline-on-migrate) and start with V2.
+
+create table notification (
+    attempts integer not null,
+    is_deleted bit not null,
+    type tinyint,
+    created_on datetime(6) not null,
+    send_at datetime(6),
+    id binary(16) not null,
+    user_id binary(16),
+    body varchar(255) not null,
+    failure_class varchar(255),
+    failure_reason varchar(255),
+    subject varchar(255) not null,
+    priority enum ('HIGH','NORMAL'),
+    status enum ('DEAD','FAILED','QUEUED','SCHEDULED','SUCCEEDED','SUPPRESSED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_notification_status_send_at on notification (status, send_at);
+
+create table notification_preference (
+    enabled bit not null,
+    created_on datetime(6) not null,
+    updated_on datetime(6) not null,
+    id binary(16) not null,
+    user_id binary(16),
+    contact_info varchar(255),
+    type enum ('EMAIL','MOBILE','SMS') not null,
+    primary key (id),
+    constraint uk_notification_preference_user_id unique (user_id)
+) engine=InnoDB;
+
+create table suppression (
+    created_on datetime(6) not null,
+    id binary(16) not null,
+    email varchar(255) not null,
+    reason varchar(255),
+    primary key (id),
+    constraint uk_suppression_email unique (email)
+) engine=InnoDB;
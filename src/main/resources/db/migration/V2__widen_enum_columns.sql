@@ -0,0 +1,6 @@
+-- ddl-auto=update adds missing columns but never alters existing ones, so databases it created can hold enum columns
+-- without the values added later. A no-op on databases created by V1.
+
+alter table notification modify column status enum ('DEAD','FAILED','QUEUED','SCHEDULED','SUCCEEDED','SUPPRESSED') not null;
+alter table notification modify column priority enum ('HIGH','NORMAL');
+alter table notification_preference modify column type enum ('EMAIL','MOBILE','SMS') not null;
@@ -0,0 +1,2 @@
+alter table notification modify column status enum ('DEAD','FAILED','QUEUED','SCHEDULED','SENDING','SUCCEEDED','SUPPRESSED') not null;
+alter table notification add column last_attempt_on datetime(6);
@@ -0,0 +1,3 @@
+-- History reads filter on the user and a createdOn bound and sort by createdOn.
+
+create index idx_notification_user_created_on on notification (user_id, created_on);
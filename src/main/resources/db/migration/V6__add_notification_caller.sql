@@ -0,0 +1,4 @@
+-- The X-Caller-Id a notification was accepted for, so recovered and scheduled rows keep their caller's share of the
+-- dispatcher. Existing rows stay null and belong to the default caller.
+
+alter table notification add column caller varchar(64);
@@ -0,0 +1,6 @@
+-- ETag versions shared by all instances, see UserVersions
+create table user_version (
+    user_id binary(16) not null,
+    version bigint not null,
+    primary key (user_id)
+) engine=InnoDB;
@@ -0,0 +1,17 @@
+-- Every instance keeps its own archive on local disk, but partition drops are global: each instance records how far
+-- it has archived, and partitions are only dropped below the lowest of the instances seen lately, see
+-- NotificationArchive
+create table archive_watermark (
+    instance_id varchar(64) not null,
+    archived_until date,
+    last_seen_on datetime(6) not null,
+    primary key (instance_id)
+) engine=InnoDB;
+
+-- Archive segments are immutable, so a user clearing the history after a month was archived is recorded here and
+-- applied to archive reads
+create table notification_tombstone (
+    user_id binary(16) not null,
+    cleared_before datetime(6) not null,
+    primary key (user_id)
+) engine=InnoDB;
@@ -0,0 +1,50 @@
+package app;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Boots the whole application against H2 with the default settings (ddl-auto=update, eager beans) and with the prod
+// profile (migrations, ddl-auto=validate, lazy beans), and logs how long each took to refresh.
+@Slf4j
+public class StartupTimeITest {
+
+    @Test
+    void givenProdProfile_whenStart_thenMigrateValidateAndReportStartupTime() {
+
+        // Given - a first boot loads the classes both measured boots need, so neither pays for it
+        start("warmup", "test").close();
+
+        // When
+        long defaultMillis;
+        long prodMillis;
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = start("startup-default", "test")) {
+            defaultMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(context.getBeansOfType(Flyway.class).isEmpty());
+        }
+
+        start = System.nanoTime();
+        try (ConfigurableApplicationContext context = start("startup-prod", "test", "prod")) {
+            prodMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Then - the migrations ran and Hibernate accepted the schema they created
+            assertEquals(8, context.getBean(Flyway.class).info().applied().length);
+        }
+
+        log.info("Startup with ddl-auto=update and eager beans: {} ms, with migrations, validate and lazy beans: {} ms.", defaultMillis, prodMillis);
+    }
+
+    private static ConfigurableApplicationContext start(String database, String... profiles) {
+
+        return new SpringApplicationBuilder(Application.class)
+                .profiles(profiles)
+                .properties("spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MYSQL", "server.port=0",
+                        "notification.archive.directory=target/" + database + "-archive")
+                .run();
+    }
+}
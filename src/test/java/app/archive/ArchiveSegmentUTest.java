@@ -0,0 +1,118 @@
+package app.archive;
+
+import app.model.Notification;
+import app.model.NotificationPriority;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveSegmentUTest {
+
+    private static final LocalDateTime MONTH = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void givenUsersSpreadOverManyBlocks_whenRead_thenReturnOnlyTheUsersRowsInRange() throws IOException {
+
+        // Given - 50 users with 20 rows each in blocks of 16 rows, so most users span two blocks
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add(UUID.randomUUID());
+        }
+        users.sort(ArchiveSegmentUTest::compareUnsigned);
+
+        Path file = directory.resolve("segment.seg");
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, 16)) {
+            for (UUID userId : users) {
+                for (int day = 0; day < 20; day++) {
+                    writer.append(aNotification(userId, MONTH.plusDays(day)));
+                }
+            }
+            writer.finish();
+        }
+        ArchiveSegment segment = ArchiveSegment.open(file);
+
+        // When
+        UUID userId = users.get(17);
+        List<Notification> rows = segment.read(userId, MONTH.plusDays(5), MONTH.plusDays(15));
+
+        // Then
+        assertEquals(63, segment.getBlockCount());
+        assertEquals(10, rows.size());
+        assertTrue(rows.stream().allMatch(row -> row.getUserId().equals(userId)));
+        assertEquals(MONTH.plusDays(5), rows.get(0).getCreatedOn());
+        assertEquals(MONTH.plusDays(14), rows.get(9).getCreatedOn());
+        assertEquals(List.of(), segment.read(UUID.randomUUID(), MONTH, MONTH.plusMonths(1)));
+    }
+
+    @Test
+    void givenArchivedNotification_whenRead_thenEveryFieldSurvives() throws IOException {
+
+        // Given
+        Notification notification = aNotification(UUID.randomUUID(), MONTH.plusHours(5).plusNanos(123_000));
+        notification.setPriority(NotificationPriority.HIGH);
+        notification.setFailureClass("MailSendException");
+        notification.setFailureReason("421 Service not available");
+        notification.setSendAt(MONTH.plusHours(6));
+        notification.setDeleted(true);
+
+        Path file = directory.resolve("segment.seg");
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, 16)) {
+            writer.append(notification);
+            writer.finish();
+        }
+
+        // When
+        List<Notification> rows = ArchiveSegment.open(file).read(notification.getUserId(), MONTH, MONTH.plusMonths(1));
+
+        // Then
+        assertEquals(List.of(notification), rows);
+    }
+
+    @Test
+    void givenSegmentWithoutFooter_whenOpen_thenReject() throws IOException {
+
+        // Given - a writer that never finished
+        Path file = directory.resolve("segment.seg");
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, 16)) {
+            writer.append(aNotification(UUID.randomUUID(), MONTH));
+        }
+        Files.write(file, new byte[]{1, 2, 3});
+
+        // When & Then
+        assertThrows(IOException.class, () -> ArchiveSegment.open(file));
+    }
+
+    private static Notification aNotification(UUID userId, LocalDateTime createdOn) {
+
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Payment processed")
+                .body("Your payment of 42.00 EUR was processed.")
+                .createdOn(createdOn)
+                .status(NotificationStatus.SUCCEEDED)
+                .type(NotificationType.EMAIL)
+                .attempts(1)
+                .build();
+    }
+
+    private static int compareUnsigned(UUID first, UUID second) {
+
+        int byHigh = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+}
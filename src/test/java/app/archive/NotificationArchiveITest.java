@@ -0,0 +1,126 @@
+package app.archive;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import app.repository.NotificationRepository;
+import app.retention.PartitionMaintenance;
+import app.service.NotificationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "notification.archive.enabled=true",
+        "notification.retention.months=2",
+        "spring.datasource.url=jdbc:h2:mem:archive;MODE=MYSQL"
+})
+@ActiveProfiles("test")
+public class NotificationArchiveITest {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) {
+        registry.add("notification.archive.directory", () -> archiveDirectory.toString());
+    }
+
+    @Autowired
+    private NotificationArchiver archiver;
+
+    @Autowired
+    private NotificationArchive archive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Test
+    void givenOldNotifications_whenArchivedAndDropped_thenHistoryRangeStillReturnsThem() {
+
+        // Given - one row from five months ago, past the two months of retention, and one from today
+        LocalDate today = LocalDate.now();
+        UUID userId = UUID.randomUUID();
+        Notification old = aNotification(userId, today.withDayOfMonth(1).minusMonths(5).atTime(9, 30));
+        aNotification(UUID.randomUUID(), old.getCreatedOn().plusMinutes(1));
+        Notification recent = aNotification(userId, LocalDateTime.now());
+
+        // When - nothing is dropped before it is archived, here and by another live instance sharing the database
+        assertTrue(partitionMaintenance.run(today).toDrop().isEmpty());
+        assertEquals(4, archiver.archiveBefore(YearMonth.from(today).minusMonths(1)));
+        jdbcTemplate.update("INSERT INTO archive_watermark (instance_id, archived_until, last_seen_on) VALUES ('other', ?, ?)",
+                old.getCreatedOn().toLocalDate().withDayOfMonth(1), LocalDateTime.now());
+        assertTrue(partitionMaintenance.run(today).toDrop().isEmpty());
+        // neither an instance gone for longer than stale-after nor one that has archived nothing holds drops
+        jdbcTemplate.update("UPDATE archive_watermark SET last_seen_on = ? WHERE instance_id = 'other'", LocalDateTime.now().minusDays(1));
+        jdbcTemplate.update("INSERT INTO archive_watermark (instance_id, archived_until, last_seen_on) VALUES ('new', NULL, ?)", LocalDateTime.now());
+        partitionMaintenance.run(today);
+
+        // Then
+        assertTrue(notificationRepository.findById(old.getId()).isEmpty());
+
+        List<Notification> history = notificationService.getNotificationHistory(userId, old.getCreatedOn().minusDays(1), null);
+        assertEquals(List.of(old.getId(), recent.getId()), history.stream().map(Notification::getId).toList());
+        assertEquals(old.getSubject(), history.get(0).getSubject());
+    }
+
+    @Test
+    void givenArchivedNotification_whenHistoryCleared_thenHistoryRangeNoLongerReturnsIt() throws IOException {
+
+        // Given - a month archived long ago, its rows no longer in the table
+        UUID userId = UUID.randomUUID();
+        Notification archived = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(LocalDateTime.of(2001, 1, 15, 9, 30))
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED)
+                .build();
+        archive.write(YearMonth.of(2001, 1), writer -> writer.append(archived));
+        assertEquals(1, notificationService.getNotificationHistory(userId, archived.getCreatedOn().minusDays(1), null).size());
+
+        // When
+        notificationService.clearNotifications(userId);
+
+        // Then - the segment still holds it as not deleted
+        assertTrue(notificationService.getNotificationHistory(userId, archived.getCreatedOn().minusDays(1), null).isEmpty());
+    }
+
+    private Notification aNotification(UUID userId, LocalDateTime createdOn) {
+
+        return notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(createdOn)
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED)
+                .build());
+    }
+}
@@ -0,0 +1,177 @@
+package app.autoscale;
+
+import app.config.AutoscaleProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PoolAutoscalerUTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong smtpLatency = new AtomicLong();
+    private final AtomicInteger smtpLimit = new AtomicInteger(Integer.MAX_VALUE);
+
+    @Test
+    void givenLaggingPool_whenAdjust_thenResizeFromTheMeasuredTaskTimeAndRecordIt() {
+
+        // Given - 8 busy threads finished 40 tasks in 5s, i.e. 1s per task; 4 tasks queued for 2s
+        TestPool dispatch = new TestPool("dispatch", 8);
+        PoolAutoscaler autoscaler = autoscaler(List.of(dispatch), "dispatch");
+        dispatch.active = 8;
+        dispatch.completed = 40;
+        dispatch.queued = 4;
+        dispatch.oldestWaitNanos = 2 * SECOND;
+        clock.addAndGet(5 * SECOND);
+
+        // When
+        autoscaler.adjust();
+
+        // Then - 8 busy plus 4 * 1s / 1s
+        assertEquals(12, dispatch.size);
+        assertEquals(1.0, meterRegistry.get("notification.autoscale.decisions").tag("pool", "dispatch").tag("direction", "up").counter().count());
+        assertEquals(12.0, meterRegistry.get("notification.autoscale.pool.size").tag("pool", "dispatch").gauge().value());
+        assertEquals(2.0, meterRegistry.get("notification.autoscale.oldest.wait").tag("pool", "dispatch").timeGauge().value(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenSlowSmtp_whenEmailPoolLags_thenHoldItButGrowTheOthers() {
+
+        // Given
+        TestPool email = new TestPool("email", 8);
+        TestPool sms = new TestPool("sms", 8);
+        PoolAutoscaler autoscaler = autoscaler(List.of(email, sms), "email", "sms");
+        for (TestPool pool : List.of(email, sms)) {
+            pool.active = 8;
+            pool.queued = 100;
+            pool.oldestWaitNanos = 10 * SECOND;
+        }
+        smtpLatency.set(8 * SECOND);
+        clock.addAndGet(5 * SECOND);
+
+        // When
+        autoscaler.adjust();
+
+        // Then
+        assertEquals(8, email.size);
+        assertEquals(16, sms.size);
+    }
+
+    @Test
+    void givenSmtpConcurrencyLimit_whenEmailPoolLags_thenGrowItOnlyUpToTheLimit() {
+
+        // Given - SMTP is fast, but the relays take only 10 sends at once
+        TestPool email = new TestPool("email", 8);
+        PoolAutoscaler autoscaler = autoscaler(List.of(email), "email");
+        email.active = 8;
+        email.queued = 100;
+        email.oldestWaitNanos = 10 * SECOND;
+        smtpLatency.set(SECOND / 10);
+        smtpLimit.set(10);
+        clock.addAndGet(5 * SECOND);
+
+        // When
+        autoscaler.adjust();
+        clock.addAndGet(5 * SECOND);
+        autoscaler.adjust();
+
+        // Then - doubling would make 16; the second interval holds it
+        assertEquals(10, email.size);
+
+        // And when the limit grows, the pool may grow with it
+        smtpLimit.set(14);
+        clock.addAndGet(5 * SECOND);
+        autoscaler.adjust();
+        assertEquals(14, email.size);
+    }
+
+    @Test
+    void givenPoolNotConfigured_whenAdjust_thenLeaveItAlone() {
+
+        // Given
+        TestPool mobile = new TestPool("mobile", 8);
+        PoolAutoscaler autoscaler = autoscaler(List.of(mobile), "dispatch");
+        mobile.queued = 100;
+        mobile.oldestWaitNanos = 10 * SECOND;
+        clock.addAndGet(5 * SECOND);
+
+        // When
+        autoscaler.adjust();
+
+        // Then
+        assertEquals(8, mobile.size);
+    }
+
+    private PoolAutoscaler autoscaler(List<TestPool> pools, String... scaled) {
+
+        AutoscaleProperties properties = new AutoscaleProperties();
+        properties.setEnabled(true);
+        properties.setMaxSmtpLatency(Duration.ofSeconds(5));
+        for (String name : scaled) {
+            AutoscaleProperties.Pool settings = new AutoscaleProperties.Pool();
+            settings.setMinSize(2);
+            settings.setMaxSize(64);
+            properties.getPools().put(name, settings);
+        }
+        return new PoolAutoscaler(pools, smtpLatency::get, smtpLimit::get, properties, meterRegistry, clock::get);
+    }
+
+    private static final class TestPool implements ScalablePool {
+
+        private final String name;
+        private int size;
+        private int active;
+        private int queued;
+        private long completed;
+        private long oldestWaitNanos;
+
+        private TestPool(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        @Override
+        public String getPoolName() {
+            return name;
+        }
+
+        @Override
+        public int getPoolSize() {
+            return size;
+        }
+
+        @Override
+        public int getActiveCount() {
+            return active;
+        }
+
+        @Override
+        public int getQueueSize() {
+            return queued;
+        }
+
+        @Override
+        public long getCompletedCount() {
+            return completed;
+        }
+
+        @Override
+        public long getOldestWaitNanos() {
+            return oldestWaitNanos;
+        }
+
+        @Override
+        public void setPoolSize(int poolSize) {
+            this.size = poolSize;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package app.autoscale;
+
+import app.config.AutoscaleProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScalingPolicyUTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void givenLaggingPool_whenDecide_thenGrowToClearTheQueueWithinTheTargetWait() {
+
+        // Given - 8 busy threads, 20 queued tasks of 200ms each, the oldest waiting 3s; 1s target
+        ScalingPolicy policy = policy(2, 64, 6);
+
+        // When
+        int size = policy.decide(new PoolSample(8, 8, 20, 3 * SECOND, SECOND / 5, false));
+
+        // Then - 8 busy plus 20 * 0.2s / 1s = 4 to clear the queue
+        assertEquals(12, size);
+    }
+
+    @Test
+    void givenLaggingPool_whenDecide_thenAtMostDoubleAndStayWithinBounds() {
+
+        ScalingPolicy policy = policy(2, 20, 6);
+
+        // a thousand queued tasks would need far more, one interval doubles at most
+        assertEquals(16, policy.decide(new PoolSample(8, 8, 1000, 3 * SECOND, SECOND, false)));
+        // tasks slower than the interval have no measured time yet
+        assertEquals(20, policy.decide(new PoolSample(16, 16, 1000, 3 * SECOND, 0, false)));
+    }
+
+    @Test
+    void givenHeldPool_whenLagging_thenKeepTheSize() {
+
+        ScalingPolicy policy = policy(2, 64, 6);
+
+        assertEquals(8, policy.decide(new PoolSample(8, 8, 1000, 10 * SECOND, SECOND, true)));
+    }
+
+    @Test
+    void givenQuietPool_whenDecide_thenShrinkOnlyAfterScaleDownAfterIntervals() {
+
+        // Given
+        ScalingPolicy policy = policy(2, 64, 3);
+        PoolSample quiet = new PoolSample(16, 2, 0, 0, SECOND / 10, false);
+
+        // When & Then - two quiet intervals, one busy one, then three quiet ones
+        assertEquals(16, policy.decide(quiet));
+        assertEquals(16, policy.decide(quiet));
+        assertEquals(16, policy.decide(new PoolSample(16, 12, 0, 0, SECOND / 10, false)));
+        assertEquals(16, policy.decide(quiet));
+        assertEquals(16, policy.decide(quiet));
+        assertEquals(12, policy.decide(quiet));
+    }
+
+    @Test
+    void givenQuietPool_whenShrinking_thenKeepTwiceTheBusyThreadsAndTheMinimum() {
+
+        ScalingPolicy policy = policy(4, 64, 1);
+
+        assertEquals(14, policy.decide(new PoolSample(16, 7, 0, 0, SECOND, false)));
+        assertEquals(4, policy.decide(new PoolSample(4, 0, 0, 0, 0, false)));
+    }
+
+    @Test
+    void givenSizeOutsideTheBounds_whenDecide_thenClampIt() {
+
+        ScalingPolicy policy = policy(4, 32, 6);
+
+        assertEquals(32, policy.decide(new PoolSample(1000, 500, 0, 0, SECOND, false)));
+        assertEquals(4, policy.decide(new PoolSample(1, 1, 0, 0, SECOND, false)));
+    }
+
+    private static ScalingPolicy policy(int minSize, int maxSize, int scaleDownAfter) {
+
+        AutoscaleProperties.Pool settings = new AutoscaleProperties.Pool();
+        settings.setMinSize(minSize);
+        settings.setMaxSize(maxSize);
+        settings.setTargetWait(Duration.ofSeconds(1));
+        settings.setScaleDownAfter(scaleDownAfter);
+        return new ScalingPolicy(settings);
+    }
+}
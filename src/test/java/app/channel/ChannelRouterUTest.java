@@ -0,0 +1,185 @@
+package app.channel;
+
+import app.config.ChannelProperties;
+import app.exception.ChannelRejectedException;
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelRouterUTest {
+
+    private final CountDownLatch smsGatewayDown = new CountDownLatch(1);
+    private ChannelRouter router;
+
+    @AfterEach
+    void tearDown() {
+
+        smsGatewayDown.countDown();
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    void givenSmsChannelStalled_whenSendEmail_thenEmailIsDeliveredWithoutWaiting() {
+
+        // Given
+        RecordingSender email = new RecordingSender(NotificationType.EMAIL, null);
+        router = new ChannelRouter(List.of(email, new RecordingSender(NotificationType.SMS, smsGatewayDown)), properties(Duration.ofSeconds(30)));
+
+        CompletableFuture<Void> stalledSms = router.send(aNotification(NotificationType.SMS), aPreference());
+
+        // When
+        router.send(aNotification(NotificationType.EMAIL), aPreference()).orTimeout(1, TimeUnit.SECONDS).join();
+
+        // Then
+        assertEquals(1, email.sent.get());
+        assertFalse(stalledSms.isDone());
+    }
+
+    @Test
+    void givenSmsBulkheadFull_whenSendSms_thenRejectWithoutBlocking() {
+
+        // Given - one thread and one queue slot, both taken by the stalled gateway
+        router = new ChannelRouter(List.of(new RecordingSender(NotificationType.SMS, smsGatewayDown)), properties(Duration.ofSeconds(30)));
+        router.send(aNotification(NotificationType.SMS), aPreference());
+        router.send(aNotification(NotificationType.SMS), aPreference());
+
+        // When
+        CompletableFuture<Void> rejected = router.send(aNotification(NotificationType.SMS), aPreference());
+
+        // Then
+        CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(ChannelRejectedException.class, exception.getCause());
+    }
+
+    @Test
+    void givenSmsGatewayTooSlow_whenSendSms_thenTimeOutOnlyTheQueuedSendAndNeverStartIt() {
+
+        // Given - the only thread is stuck in the gateway
+        RecordingSender sms = new RecordingSender(NotificationType.SMS, smsGatewayDown);
+        router = new ChannelRouter(List.of(sms), properties(Duration.ofMillis(100)));
+        CompletableFuture<Void> running = router.send(aNotification(NotificationType.SMS), aPreference());
+
+        // When
+        CompletableFuture<Void> queued = router.send(aNotification(NotificationType.SMS), aPreference());
+
+        // Then - the started send may still reach the gateway, so only the queued one fails
+        CompletionException exception = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(ChannelRejectedException.class, exception.getCause());
+        assertFalse(running.isDone());
+
+        smsGatewayDown.countDown();
+        running.orTimeout(1, TimeUnit.SECONDS).join();
+        assertEquals(0, router.getBulkhead(NotificationType.SMS).getQueueSize());
+        assertEquals(1, sms.sent.get());
+    }
+
+    @Test
+    void givenNoSenderForChannel_whenSend_thenFail() {
+
+        // Given
+        router = new ChannelRouter(List.of(new RecordingSender(NotificationType.EMAIL, null)), properties(Duration.ofSeconds(30)));
+
+        // When
+        CompletableFuture<Void> failed = router.send(aNotification(NotificationType.MOBILE), aPreference());
+
+        // Then
+        CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void givenTwoSendersForSameChannel_whenCreateRouter_thenFail() {
+
+        // Given
+        List<ChannelSender> senders = List.of(new RecordingSender(NotificationType.SMS, null), new RecordingSender(NotificationType.SMS, null));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> new ChannelRouter(senders, properties(Duration.ofSeconds(30))));
+    }
+
+    @Test
+    void givenVirtualThreads_whenChooseThreads_thenKeepEmailOnPlatformThreadsBeforeJdk24() {
+
+        // When & Then - SMTPTransport would pin the carrier during the whole send
+        assertFalse(ChannelRouter.runsOnVirtualThreads(NotificationType.EMAIL, true, 21));
+        assertTrue(ChannelRouter.runsOnVirtualThreads(NotificationType.EMAIL, true, 24));
+        assertTrue(ChannelRouter.runsOnVirtualThreads(NotificationType.SMS, true, 21));
+        assertFalse(ChannelRouter.runsOnVirtualThreads(NotificationType.SMS, false, 24));
+    }
+
+    private static ChannelProperties properties(Duration timeout) {
+
+        ChannelProperties.Bulkhead bulkhead = new ChannelProperties.Bulkhead();
+        bulkhead.setMaxConcurrency(1);
+        bulkhead.setQueueCapacity(1);
+        bulkhead.setTimeout(timeout);
+
+        ChannelProperties properties = new ChannelProperties();
+        properties.getBulkheads().put(NotificationType.SMS, bulkhead);
+        return properties;
+    }
+
+    private static Notification aNotification(NotificationType type) {
+
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .type(type)
+                .build();
+    }
+
+    private static NotificationPreference aPreference() {
+
+        return NotificationPreference.builder()
+                .contactInfo("user@example.com")
+                .enabled(true)
+                .build();
+    }
+
+    private static class RecordingSender implements ChannelSender {
+
+        private final NotificationType type;
+        private final CountDownLatch gate;
+        private final AtomicInteger sent = new AtomicInteger();
+
+        RecordingSender(NotificationType type, CountDownLatch gate) {
+            this.type = type;
+            this.gate = gate;
+        }
+
+        @Override
+        public NotificationType getType() {
+            return type;
+        }
+
+        @Override
+        public void send(Notification notification, NotificationPreference userPreference) {
+
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.incrementAndGet();
+        }
+    }
+}
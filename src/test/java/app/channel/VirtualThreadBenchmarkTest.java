@@ -0,0 +1,113 @@
+package app.channel;
+
+import app.mail.SmtpStub;
+import app.model.NotificationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Sends real SMTP conversations to a local stub that answers DATA after 100ms, through the email bulkhead: once on
+// platform threads at the size production grows the email pool to, once on virtual threads at a concurrency no
+// platform pool would be given. Every send blocks on a socket read inside Jakarta Mail, as in production. Needs JDK
+// 21; the printed throughput of both runs is the benchmark output.
+//
+// Before JDK 24 the virtual run is pinned - SMTPTransport reads inside synchronized methods, so only as many sends
+// progress as there are carrier threads - which is why ChannelRouter keeps email on platform threads there. From
+// JDK 24 on the virtual run is bounded by its own concurrency instead, and should beat the platform pool by about
+// the ratio of the two.
+public class VirtualThreadBenchmarkTest {
+
+    private static final int SENDS = 5_000;
+    // notification.autoscale.pools.email.max-size in application-prod.properties
+    private static final int PLATFORM_CONCURRENCY = 128;
+    private static final int VIRTUAL_CONCURRENCY = 1_000;
+    private static final Duration PROVIDER_LATENCY = Duration.ofMillis(100);
+
+    private SmtpStub smtp;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // every virtual send can be connecting at once
+        smtp = new SmtpStub(PROVIDER_LATENCY, 2 * VIRTUAL_CONCURRENCY);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void blockingSmtpSends_platformPoolAgainstThousandVirtualThreads() {
+
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need JDK 21");
+
+        double platform = measure(new ChannelBulkhead(NotificationType.EMAIL, PLATFORM_CONCURRENCY, SENDS, Duration.ofMinutes(5), false));
+        double virtual = measure(new ChannelBulkhead(NotificationType.EMAIL, VIRTUAL_CONCURRENCY, SENDS, Duration.ofMinutes(5), true));
+
+        System.out.printf("%d SMTP sends, %d ms provider latency, %d carrier threads%n",
+                SENDS, PROVIDER_LATENCY.toMillis(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("platform threads, %4d concurrent: %.0f sends/s (bound %.0f)%n", PLATFORM_CONCURRENCY, platform, bound(PLATFORM_CONCURRENCY));
+        System.out.printf("virtual threads,  %4d concurrent: %.0f sends/s (bound %.0f)%n", VIRTUAL_CONCURRENCY, virtual, bound(VIRTUAL_CONCURRENCY));
+
+        // warm-up and measured run, twice
+        assertEquals(2 * (SENDS / 10 + SENDS), smtp.getReceived());
+        assertTrue(platform > bound(PLATFORM_CONCURRENCY) / 2, "platform=" + platform);
+        if (Runtime.version().feature() >= ChannelRouter.UNPINNED_MONITORS_JDK) {
+            assertTrue(virtual > platform, "virtual=" + virtual + " platform=" + platform);
+        }
+    }
+
+    // each send holds its slot for at least the provider latency
+    private static double bound(int concurrency) {
+        return concurrency / (PROVIDER_LATENCY.toMillis() / 1_000.0);
+    }
+
+    private double measure(ChannelBulkhead bulkhead) {
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.getPort());
+
+        try {
+            // warm-up, also starts the pool threads
+            run(bulkhead, mailSender, SENDS / 10);
+
+            long start = System.nanoTime();
+            run(bulkhead, mailSender, SENDS);
+            return SENDS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
+    private static void run(ChannelBulkhead bulkhead, JavaMailSenderImpl mailSender, int sends) {
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(sends);
+        for (int i = 0; i < sends; i++) {
+            futures.add(bulkhead.submit(() -> mailSender.send(aMessage())));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static SimpleMailMessage aMessage() {
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("service@example.com");
+        message.setTo("user@example.com");
+        message.setSubject("Payment processed");
+        message.setText("Your payment was processed.");
+        return message;
+    }
+}
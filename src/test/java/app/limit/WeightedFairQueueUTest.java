@@ -0,0 +1,149 @@
+package app.limit;
+
+import app.config.FairnessProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeightedFairQueueUTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void givenWeightedCallers_whenPolled_thenEachStartsUpToItsWeightPerTurn() {
+
+        // Given - billing weighs 2, the noisy marketing caller has the default weight of 1
+        FairnessProperties fairness = new FairnessProperties();
+        fairness.getWeights().put("billing", 2);
+        WeightedFairQueue queue = new WeightedFairQueue("test", 100, fairness, meterRegistry);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(aTask("marketing", "m" + i));
+        }
+        for (int i = 0; i < 4; i++) {
+            queue.offer(aTask("billing", "b" + i));
+        }
+
+        // When
+        List<String> order = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            order.add(((Named) ((WeightedFairQueue.Task) task).runnable()).name);
+        }
+
+        // Then - billing is not stuck behind the six tasks marketing queued first
+        assertEquals(List.of("m0", "b0", "b1", "m1", "b2", "b3", "m2", "m3", "m4", "m5"), order);
+        assertEquals(6, queue.getStarted("marketing"));
+    }
+
+    @Test
+    void givenCallerAtItsShare_whenOffer_thenRejectOnlyThatCaller() {
+
+        // Given - one caller may fill half of the queue
+        WeightedFairQueue queue = new WeightedFairQueue("test", 4, new FairnessProperties(), meterRegistry);
+        assertTrue(queue.offer(aTask("marketing", "m0")));
+        assertTrue(queue.offer(aTask("marketing", "m1")));
+
+        // When & Then
+        assertFalse(queue.offer(aTask("marketing", "m2")));
+        assertTrue(queue.offer(aTask("billing", "b0")));
+        assertTrue(queue.offer(() -> { }));
+        assertEquals(2, queue.getDepth("marketing"));
+        assertEquals(1, queue.getDepth(WeightedFairQueue.DEFAULT_CALLER));
+        assertEquals(1.0, meterRegistry.get("notification.fairness.rejected").tag("caller", "marketing").functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("notification.fairness.queue.depth").tag("caller", "marketing").gauge().value());
+    }
+
+    @Test
+    void givenMoreCallersThanTracked_whenOffer_thenShareTheOtherQueue() {
+
+        // Given
+        FairnessProperties fairness = new FairnessProperties();
+        fairness.setMaxCallers(2);
+        WeightedFairQueue queue = new WeightedFairQueue("test", 100, fairness, meterRegistry);
+
+        // When
+        queue.offer(aTask("a", "a0"));
+        queue.offer(aTask("b", "b0"));
+        queue.offer(aTask("c", "c0"));
+        queue.offer(aTask("d", "d0"));
+
+        // Then
+        assertEquals(2, queue.getDepth(WeightedFairQueue.OTHER_CALLER));
+        assertEquals(0, queue.getDepth("c"));
+    }
+
+    @Test
+    void givenNoisyCallerBacklog_whenQuietCallerSubmits_thenItRunsBeforeTheBacklog() throws InterruptedException {
+
+        // Given - one thread, busy with the first of 50 queued noisy tasks
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new WeightedFairQueue("test", 1000, new FairnessProperties(), meterRegistry));
+        CountDownLatch busy = new CountDownLatch(1);
+        List<String> completed = new CopyOnWriteArrayList<>();
+        WeightedFairQueue.forCaller(executor, "marketing").execute(() -> awaitQuietly(busy));
+        for (int i = 0; i < 50; i++) {
+            String name = "m" + i;
+            WeightedFairQueue.forCaller(executor, "marketing").execute(() -> completed.add(name));
+        }
+
+        // When
+        CountDownLatch quietDone = new CountDownLatch(1);
+        WeightedFairQueue.forCaller(executor, "billing").execute(() -> {
+            completed.add("billing");
+            quietDone.countDown();
+        });
+        busy.countDown();
+
+        // Then - billing waits for one noisy task at most, not for fifty
+        assertTrue(quietDone.await(5, TimeUnit.SECONDS));
+        assertTrue(completed.indexOf("billing") <= 1, "billing finished at " + completed.indexOf("billing"));
+        executor.shutdown();
+    }
+
+    @Test
+    void givenQueuedTasks_whenOldestWaitRead_thenReportTheLongestWaitingOne() throws InterruptedException {
+
+        // Given
+        WeightedFairQueue queue = new WeightedFairQueue("test", 100, new FairnessProperties(), meterRegistry);
+        assertEquals(0, queue.getOldestWaitNanos());
+        queue.offer(aTask("marketing", "m0"));
+        Thread.sleep(50);
+        queue.offer(aTask("billing", "b0"));
+
+        // When & Then - marketing's task has waited longest
+        long oldest = queue.getOldestWaitNanos();
+        assertTrue(oldest >= TimeUnit.MILLISECONDS.toNanos(50));
+        queue.poll();
+        assertTrue(queue.getOldestWaitNanos() < oldest);
+        queue.poll();
+        assertEquals(0, queue.getOldestWaitNanos());
+    }
+
+    private static WeightedFairQueue.Task aTask(String caller, String name) {
+        return new WeightedFairQueue.Task(caller, new Named(name));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Named(String name) implements Runnable {
+
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package app.mail;
+
+import app.exception.CircuitOpenException;
+import app.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CircuitBreakerMailSenderUTest {
+
+    @Mock
+    private MailSender delegate;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerMailSender breaker;
+
+    @BeforeEach
+    void setUp() {
+
+        meterRegistry = new SimpleMeterRegistry();
+        breaker = new CircuitBreakerMailSender("primary", delegate, 10, 4, 0.5, Duration.ofSeconds(30), 2, meterRegistry, clock::get);
+    }
+
+    @Test
+    void givenFailureRateReached_whenSend_thenOpenAndFailFastWithoutCallingRelay() {
+
+        // Given
+        doThrow(new MailSendException("connect timed out")).when(delegate).send(any(SimpleMailMessage[].class));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(MailSendException.class, () -> breaker.send(new SimpleMailMessage()));
+        }
+        clearInvocations(delegate);
+
+        // When & Then
+        assertEquals(CircuitBreakerMailSender.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, () -> breaker.send(new SimpleMailMessage()));
+        verifyNoInteractions(delegate);
+        assertEquals(1, meterRegistry.get("notification.smtp.circuit.rejected").counter().count());
+    }
+
+    @Test
+    void givenFailuresBelowMinimumCalls_whenSend_thenStayClosed() {
+
+        // Given
+        doThrow(new MailSendException("connect timed out")).when(delegate).send(any(SimpleMailMessage[].class));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThrows(MailSendException.class, () -> breaker.send(new SimpleMailMessage()));
+        }
+
+        // Then
+        assertEquals(CircuitBreakerMailSender.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void givenLocalConcurrencyLimitReached_whenSend_thenStayClosed() {
+
+        // Given - the limiter inside the breaker gave up waiting for a slot
+        doThrow(new ConcurrencyLimitExceededException("SMTP concurrency limit of 10 reached on relay primary."))
+                .when(delegate).send(any(SimpleMailMessage[].class));
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertThrows(ConcurrencyLimitExceededException.class, () -> breaker.send(new SimpleMailMessage()));
+        }
+
+        // Then - the relay itself was never asked
+        assertEquals(CircuitBreakerMailSender.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void givenOpenDurationElapsed_whenTrialsSucceed_thenClose() {
+
+        // Given
+        openBreaker();
+        doNothing().when(delegate).send(any(SimpleMailMessage[].class));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        // When
+        breaker.send(new SimpleMailMessage());
+        assertEquals(CircuitBreakerMailSender.State.HALF_OPEN, breaker.getState());
+        breaker.send(new SimpleMailMessage());
+
+        // Then
+        assertEquals(CircuitBreakerMailSender.State.CLOSED, breaker.getState());
+        assertEquals(1, meterRegistry.get("notification.smtp.circuit.state").tag("state", "closed").gauge().value());
+        assertEquals(1, meterRegistry.get("notification.smtp.circuit.transitions").tag("from", "half_open").tag("to", "closed").counter().count());
+    }
+
+    @Test
+    void givenHalfOpen_whenTrialFails_thenOpenAgain() {
+
+        // Given
+        openBreaker();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        // When
+        assertThrows(MailSendException.class, () -> breaker.send(new SimpleMailMessage()));
+
+        // Then
+        assertEquals(CircuitBreakerMailSender.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, () -> breaker.send(new SimpleMailMessage()));
+    }
+
+    private void openBreaker() {
+
+        doThrow(new MailSendException("connect timed out")).when(delegate).send(any(SimpleMailMessage[].class));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(MailSendException.class, () -> breaker.send(new SimpleMailMessage()));
+        }
+        assertEquals(CircuitBreakerMailSender.State.OPEN, breaker.getState());
+    }
+}
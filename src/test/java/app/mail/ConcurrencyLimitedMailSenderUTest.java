@@ -0,0 +1,89 @@
+package app.mail;
+
+import app.exception.ConcurrencyLimitExceededException;
+import app.limit.GradientLimit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+@ExtendWith(MockitoExtension.class)
+public class ConcurrencyLimitedMailSenderUTest {
+
+    @Mock
+    private MailSender delegate;
+
+    @Test
+    void givenRelayThrottling_whenSend_thenLimitShrinksAndErrorPropagates() {
+
+        // Given
+        doThrow(new MailSendException("421 Too many connections")).when(delegate).send(any(SimpleMailMessage[].class));
+        ConcurrencyLimitedMailSender mailSender = new ConcurrencyLimitedMailSender("primary", delegate, new GradientLimit(10, 1, 100, 1.5), Duration.ofSeconds(1), new SimpleMeterRegistry());
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertThrows(MailSendException.class, () -> mailSender.send(new SimpleMailMessage()));
+        }
+
+        // Then
+        assertTrue(mailSender.getLimit() < 10);
+        assertEquals(0, mailSender.getInFlight());
+    }
+
+    @Test
+    void givenLimitReached_whenSend_thenWaitUpToMaxWaitAndFail() throws Exception {
+
+        // Given
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch relayBlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            relayBlocked.await();
+            return null;
+        }).when(delegate).send(any(SimpleMailMessage[].class));
+        ConcurrencyLimitedMailSender mailSender = new ConcurrencyLimitedMailSender("primary", delegate, new GradientLimit(1, 1, 100, 1.5), Duration.ofMillis(50), new SimpleMeterRegistry());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> mailSender.send(new SimpleMailMessage()));
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+            // When & Then
+            assertThrows(ConcurrencyLimitExceededException.class, () -> mailSender.send(new SimpleMailMessage()));
+            assertEquals(1, mailSender.getInFlight());
+        } finally {
+            relayBlocked.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void whenCreated_thenLimitInFlightAndRttAreExposedAsMetrics() {
+
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        // When
+        new ConcurrencyLimitedMailSender("primary", delegate, new GradientLimit(10, 1, 100, 1.5), Duration.ofSeconds(1), meterRegistry);
+
+        // Then
+        assertEquals(10, meterRegistry.get("notification.smtp.concurrency.limit").tag("relay", "primary").gauge().value());
+        assertEquals(0, meterRegistry.get("notification.smtp.concurrency.in-flight").gauge().value());
+        assertNotNull(meterRegistry.get("notification.smtp.rtt").timeGauge());
+    }
+}
@@ -0,0 +1,178 @@
+package app.mail;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the router against local SMTP stubs with different injected latencies.
+public class RelayRouterITest {
+
+    private final List<SmtpStub> stubs = new ArrayList<>();
+    private RelayRouter router;
+
+    @AfterEach
+    void tearDown() throws IOException {
+
+        if (router != null) {
+            router.shutdown();
+        }
+        for (SmtpStub stub : stubs) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void givenFastAndSlowRelay_whenSendMany_thenFastRelayTakesMostTraffic() throws IOException {
+
+        // Given
+        SmtpStub fast = stub(Duration.ZERO);
+        SmtpStub slow = stub(Duration.ofMillis(100));
+        router = new RelayRouter(List.of(relay("fast", fast.getPort(), 1), relay("slow", slow.getPort(), 1)), Duration.ofSeconds(1));
+
+        // When
+        for (int i = 0; i < 40; i++) {
+            router.send(aMessage());
+        }
+
+        // Then
+        assertEquals(40, fast.getReceived() + slow.getReceived());
+        assertTrue(fast.getReceived() > slow.getReceived() * 3, "fast=" + fast.getReceived() + " slow=" + slow.getReceived());
+    }
+
+    @Test
+    void givenRelayDown_whenSend_thenFailOverToHealthyRelay() throws IOException {
+
+        // Given
+        SmtpStub healthy = stub(Duration.ZERO);
+        router = new RelayRouter(List.of(relay("down", unusedPort(), 100), relay("healthy", healthy.getPort(), 1)), Duration.ofSeconds(1));
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            router.send(aMessage());
+        }
+
+        // Then
+        assertEquals(10, healthy.getReceived());
+        assertTrue(router.getRelays().get(0).getErrorRate() > 0);
+    }
+
+    @Test
+    void givenAllRelaysDown_whenSend_thenThrowMailException() throws IOException {
+
+        // Given
+        router = new RelayRouter(List.of(relay("first", unusedPort(), 1), relay("second", unusedPort(), 1)), Duration.ofSeconds(1));
+
+        // When & Then
+        assertThrows(MailSendException.class, () -> router.send(aMessage()));
+    }
+
+    @Test
+    void givenZeroWeight_whenCreateRelay_thenRejectIt() {
+
+        // When & Then - a zero weight would leave nothing to pick from once every relay scores 0
+        assertThrows(IllegalArgumentException.class, () -> relay("off", 25, 0));
+    }
+
+    @Test
+    void givenRecipientRejected_whenSend_thenDoNotFailOverAndReportPermanentFailure() throws IOException {
+
+        // Given
+        SmtpStub first = stub(Duration.ZERO);
+        SmtpStub second = stub(Duration.ZERO);
+        first.rejectRecipient("user@example.com");
+        second.rejectRecipient("user@example.com");
+        router = new RelayRouter(List.of(relay("first", first.getPort(), 1_000_000), relay("second", second.getPort(), 1)), Duration.ofSeconds(1));
+
+        // When
+        MailSendException exception = assertThrows(MailSendException.class, () -> router.send(aMessage()));
+
+        // Then
+        assertTrue(SmtpFailures.isRecipientRejected(exception));
+        assertEquals(0, router.getRelays().get(0).getErrorRate());
+        assertEquals(0, router.getRelays().get(1).getLatencyMillis());
+    }
+
+    @Test
+    void givenSlowPreferredRelay_whenSendHighPriority_thenHedgeToSecondRelay() throws IOException {
+
+        // Given
+        SmtpStub slow = stub(Duration.ofSeconds(2));
+        SmtpStub fast = stub(Duration.ZERO);
+        // the weight makes the slow relay the first pick while nothing is known about latency yet
+        router = new RelayRouter(List.of(relay("slow", slow.getPort(), 1_000_000), relay("fast", fast.getPort(), 1)), Duration.ofMillis(100));
+
+        SimpleMailMessage message = new HighPriorityMailMessage();
+        message.setTo("user@example.com");
+        message.setSubject("Login code");
+        message.setText("123456");
+
+        // When
+        long start = System.nanoTime();
+        router.send(message);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        assertTrue(elapsedMillis < 1_500, "took " + elapsedMillis + "ms");
+        assertEquals(1, fast.getReceived());
+    }
+
+    @Test
+    void givenSlowPreferredRelay_whenSendNormalPriority_thenWaitForFirstRelay() throws IOException {
+
+        // Given
+        SmtpStub slow = stub(Duration.ofMillis(300));
+        SmtpStub fast = stub(Duration.ZERO);
+        router = new RelayRouter(List.of(relay("slow", slow.getPort(), 1_000_000), relay("fast", fast.getPort(), 1)), Duration.ofMillis(50));
+
+        // When
+        router.send(aMessage());
+
+        // Then
+        assertEquals(1, slow.getReceived());
+        assertEquals(0, fast.getReceived());
+    }
+
+    private SmtpStub stub(Duration latency) throws IOException {
+
+        SmtpStub stub = new SmtpStub(latency);
+        stubs.add(stub);
+        return stub;
+    }
+
+    private static RelayRouter.Relay relay(String name, int port, int weight) {
+
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        sender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        sender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        return new RelayRouter.Relay(name, sender, weight);
+    }
+
+    private static int unusedPort() throws IOException {
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static SimpleMailMessage aMessage() {
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("notifications@example.com");
+        message.setTo("user@example.com");
+        message.setSubject("Payment processed");
+        message.setText("Your payment was processed.");
+        return message;
+    }
+}
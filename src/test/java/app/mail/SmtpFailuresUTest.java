@@ -0,0 +1,43 @@
+package app.mail;
+
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpFailuresUTest {
+
+    @Test
+    void givenUnknownMailbox_whenClassify_thenRecipientRejected() throws AddressException {
+
+        // Given - wrapped the way JavaMailSender reports it
+        MailSendException failure = new MailSendException("Failed messages", rejected(550, "550 5.1.1 <user@example.com>: User unknown"));
+
+        // When & Then
+        assertTrue(SmtpFailures.isRecipientRejected(failure));
+    }
+
+    @Test
+    void givenRelayPolicyRejection_whenClassify_thenNotRecipientRejected() throws AddressException {
+
+        // When & Then - the relay refuses to relay for us, another relay may accept the same recipient
+        assertFalse(SmtpFailures.isRecipientRejected(rejected(550, "550 5.7.1 Relaying denied")));
+        assertFalse(SmtpFailures.isRecipientRejected(rejected(554, "554 5.7.1 Client host rejected: access denied")));
+    }
+
+    @Test
+    void givenPermanentReplyWithoutMailboxDetail_whenClassify_thenNotRecipientRejected() throws AddressException {
+
+        // When & Then
+        assertFalse(SmtpFailures.isRecipientRejected(rejected(552, "552 5.2.2 Mailbox full")));
+        assertFalse(SmtpFailures.isRecipientRejected(rejected(550, "550 Requested action not taken")));
+        assertFalse(SmtpFailures.isRecipientRejected(rejected(450, "450 4.1.1 Try again later")));
+    }
+
+    private static SMTPAddressFailedException rejected(int code, String reply) throws AddressException {
+        return new SMTPAddressFailedException(new InternetAddress("user@example.com"), "RCPT TO", code, reply);
+    }
+}
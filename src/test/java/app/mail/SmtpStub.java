@@ -0,0 +1,111 @@
+package app.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Minimal SMTP server for tests. Accepts every message, except for rejected recipients, and waits the injected latency
+// before confirming it.
+public class SmtpStub implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final Duration latency;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger received = new AtomicInteger();
+    private final Set<String> rejectedRecipients = ConcurrentHashMap.newKeySet();
+
+    public SmtpStub(Duration latency) throws IOException {
+        this(latency, 50);
+    }
+
+    // backlog bounds the connections waiting to be accepted, above it the OS refuses them
+    public SmtpStub(Duration latency, int backlog) throws IOException {
+        this.latency = latency;
+        this.serverSocket = new ServerSocket(0, backlog, InetAddress.getLoopbackAddress());
+        executor.submit(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // answers RCPT TO for this address with a permanent 550
+    public void rejectRecipient(String address) {
+        rejectedRecipients.add(address.toLowerCase());
+    }
+
+    public int getReceived() {
+        return received.get();
+    }
+
+    private void acceptLoop() {
+
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+
+            reply(out, "220 stub ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 stub");
+                } else if (command.startsWith("RCPT TO") && rejectedRecipients.stream().anyMatch(line.toLowerCase()::contains)) {
+                    reply(out, "550 5.1.1 User unknown");
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 end with <CRLF>.<CRLF>");
+                    while (!".".equals(in.readLine())) {
+                        // message content is not needed
+                    }
+                    Thread.sleep(latency.toMillis());
+                    received.incrementAndGet();
+                    reply(out, "250 queued");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 bye");
+                    return;
+                } else {
+                    reply(out, "250 ok");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,71 @@
+package app.retention;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import app.repository.NotificationRepository;
+import app.service.NotificationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// H2 has no partitions, so this runs against SimulatedPartitionOperations; the plan is the same one MySQL executes.
+@SpringBootTest(properties = {
+        "notification.retention.months=2",
+        "spring.datasource.url=jdbc:h2:mem:retention;MODE=MYSQL"
+})
+@ActiveProfiles("test")
+public class PartitionMaintenanceITest {
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Test
+    void givenNotificationsOlderThanRetention_whenMaintenanceRuns_thenDropTheirMonthsAndKeepTheRest() {
+
+        // Given - retention keeps this month and the two before it
+        LocalDate today = LocalDate.now();
+        UUID userId = UUID.randomUUID();
+        Notification expired = aNotification(userId, today.withDayOfMonth(1).minusMonths(3).atTime(12, 0));
+        Notification lastRetained = aNotification(userId, today.withDayOfMonth(1).minusMonths(2).atStartOfDay());
+        Notification current = aNotification(userId, LocalDateTime.now());
+
+        // When
+        PartitionPlan plan = partitionMaintenance.run(today);
+
+        // Then
+        assertEquals(1, plan.toDrop().size());
+        assertTrue(notificationRepository.findById(expired.getId()).isEmpty());
+        assertTrue(notificationRepository.findById(lastRetained.getId()).isPresent());
+
+        List<UUID> history = notificationService.getNotificationHistory(userId).stream().map(Notification::getId).toList();
+        assertEquals(2, history.size());
+        assertTrue(history.containsAll(List.of(lastRetained.getId(), current.getId())));
+    }
+
+    private Notification aNotification(UUID userId, LocalDateTime createdOn) {
+
+        return notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(createdOn)
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED)
+                .build());
+    }
+}
@@ -0,0 +1,80 @@
+package app.retention;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionPlanUTest {
+
+    private final NotificationRetention retention = new NotificationRetention(12);
+    private final LocalDate today = LocalDate.of(2026, 10, 19);
+
+    @Test
+    void givenFreshlyPartitionedTable_whenPlan_thenCreateMonthsAheadAndKeepHistory() {
+
+        // Given - the partitions V5 creates
+        List<NotificationPartition> existing = List.of(
+                new NotificationPartition("p_history", LocalDate.of(2026, 11, 1)),
+                new NotificationPartition("p_future", null));
+
+        // When
+        PartitionPlan plan = PartitionPlan.of(existing, today, 3, retention.cutoff(today));
+
+        // Then
+        assertEquals(List.of(YearMonth.of(2026, 11), YearMonth.of(2026, 12), YearMonth.of(2027, 1)), plan.toCreate());
+        assertTrue(plan.toDrop().isEmpty());
+    }
+
+    @Test
+    void givenPartitionsPastRetention_whenPlan_thenDropOnlyThoseWhollyBeforeTheCutoff() {
+
+        // Given - the cutoff is 2025-10-01, the current month plus twelve before it are kept
+        List<NotificationPartition> existing = List.of(
+                new NotificationPartition("p202508", LocalDate.of(2025, 9, 1)),
+                new NotificationPartition("p202509", LocalDate.of(2025, 10, 1)),
+                new NotificationPartition("p202510", LocalDate.of(2025, 11, 1)),
+                new NotificationPartition("p202701", LocalDate.of(2027, 2, 1)),
+                new NotificationPartition("p_future", null));
+
+        // When
+        PartitionPlan plan = PartitionPlan.of(existing, today, 3, retention.cutoff(today));
+
+        // Then
+        assertEquals(List.of("p202508", "p202509"), plan.toDrop().stream().map(NotificationPartition::name).toList());
+        assertTrue(plan.toCreate().isEmpty());
+    }
+
+    @Test
+    void givenRetentionOff_whenPlan_thenNeverDrop() {
+
+        // Given
+        List<NotificationPartition> existing = List.of(
+                new NotificationPartition("p200001", LocalDate.of(2000, 2, 1)),
+                new NotificationPartition("p_future", null));
+
+        // When
+        PartitionPlan plan = PartitionPlan.of(existing, today, 0, new NotificationRetention(0).cutoff(today));
+
+        // Then
+        assertTrue(plan.toDrop().isEmpty());
+        assertEquals(YearMonth.of(2000, 2), plan.toCreate().get(0));
+        assertEquals(YearMonth.of(2026, 10), plan.toCreate().get(plan.toCreate().size() - 1));
+    }
+
+    @Test
+    void givenUnpartitionedTable_whenPlan_thenDoNothing() {
+        assertTrue(PartitionPlan.of(List.of(), today, 3, retention.cutoff(today)).isEmpty());
+    }
+
+    @Test
+    void givenMySqlPartitionDescriptions_whenParse_thenReadTheUpperBound() {
+
+        assertEquals(LocalDate.of(2026, 11, 1), MySqlPartitionOperations.parseBound("'2026-11-01 00:00:00'"));
+        assertEquals(LocalDate.of(2026, 11, 1), MySqlPartitionOperations.parseBound("'2026-11-01'"));
+        assertNull(MySqlPartitionOperations.parseBound("MAXVALUE"));
+    }
+}
@@ -0,0 +1,81 @@
+package app.scheduler;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.NotificationRepository;
+import app.service.NotificationDispatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationSchedulerUTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    @Test
+    void givenMoreDueRowsThanOneBatch_whenLoadHorizon_thenPageByTheLastId() {
+
+        // Given - batches of two
+        NotificationScheduler scheduler = scheduler(2);
+        Notification first = aScheduledNotification(new UUID(0, 1));
+        Notification second = aScheduledNotification(new UUID(0, 2));
+        Notification third = aScheduledNotification(new UUID(0, 3));
+        when(notificationRepository.findAllDueBefore(eq(NotificationStatus.SCHEDULED), any(), eq(new UUID(0, 0)), any(Limit.class))).thenReturn(List.of(first, second));
+        when(notificationRepository.findAllDueBefore(eq(NotificationStatus.SCHEDULED), any(), eq(second.getId()), any(Limit.class))).thenReturn(List.of(third));
+
+        // When
+        scheduler.loadHorizon();
+
+        // Then - the second page starts after the last row seen, whatever left SCHEDULED in between
+        verify(notificationRepository, times(2)).findAllDueBefore(eq(NotificationStatus.SCHEDULED), any(), any(), any(Limit.class));
+    }
+
+    @Test
+    void givenDispatchThrows_whenTick_thenKeepTickingAndDispatchTheRest() throws InterruptedException {
+
+        // Given - two rows already due
+        NotificationScheduler scheduler = scheduler(10);
+        UUID failing = new UUID(0, 1);
+        UUID next = new UUID(0, 2);
+        scheduler.onNotificationScheduled(new NotificationScheduledEvent(failing, LocalDateTime.now(), null));
+        scheduler.onNotificationScheduled(new NotificationScheduledEvent(next, LocalDateTime.now(), null));
+        when(notificationDispatcher.dispatch(eq(failing), any())).thenThrow(new IllegalStateException("boom"));
+        when(notificationDispatcher.dispatch(eq(next), any())).thenReturn(CompletableFuture.completedFuture(null));
+        Thread.sleep(50);
+
+        // When
+        scheduler.fireExpired();
+
+        // Then
+        verify(notificationDispatcher).dispatch(eq(next), any());
+    }
+
+    private NotificationScheduler scheduler(int batchSize) {
+        return new NotificationScheduler(notificationRepository, notificationDispatcher, Duration.ofMillis(10), 64, Duration.ofMinutes(2), batchSize);
+    }
+
+    private static Notification aScheduledNotification(UUID id) {
+
+        return Notification.builder()
+                .id(id)
+                .status(NotificationStatus.SCHEDULED)
+                .sendAt(LocalDateTime.now().plusSeconds(30))
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package app.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelUTest {
+
+    @Test
+    void givenTaskWithinFirstRevolution_whenAdvancePastDeadline_thenTaskExpiresOnce() {
+
+        // Given
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("task", 350);
+
+        // When & Then
+        assertTrue(wheel.advance(300).isEmpty());
+        assertEquals(List.of("task"), wheel.advance(400));
+        assertTrue(wheel.advance(1_000).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void givenDeadlineSeveralRevolutionsAway_whenAdvance_thenTaskDoesNotFireEarly() {
+
+        // Given - 8 ticks of 100ms per revolution, deadline is 2.5 revolutions away
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("late", 2_000);
+        wheel.schedule("early", 200);
+
+        // When & Then
+        assertEquals(List.of("early"), wheel.advance(1_000));
+        assertTrue(wheel.advance(1_900).isEmpty());
+        assertEquals(List.of("late"), wheel.advance(2_000));
+    }
+
+    @Test
+    void givenOverdueTask_whenAdvance_thenTaskFiresOnNextTick() {
+
+        // Given
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.advance(500);
+
+        // When
+        wheel.schedule("overdue", 100);
+
+        // Then
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("overdue"), wheel.advance(600));
+    }
+}
@@ -0,0 +1,129 @@
+package app.service;
+
+import app.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AdmissionLimiterUTest {
+
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    @Test
+    void givenLimitReached_whenAcquire_thenRejectWithRetryAfter() {
+
+        // Given
+        AdmissionLimiter admissionLimiter = new AdmissionLimiter(notificationDispatcher, 2, 1, 10, 1.5, 100);
+        admissionLimiter.acquire();
+        admissionLimiter.acquire();
+
+        // When & Then
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class, admissionLimiter::acquire);
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+    }
+
+    @Test
+    void givenFullBacklog_whenAcquire_thenRetryAfterTheTimeToWorkItOff() {
+
+        // Given - the dispatcher completes 200 notifications a second
+        AtomicLong clock = new AtomicLong();
+        AdmissionLimiter admissionLimiter = new AdmissionLimiter(notificationDispatcher, 10, 4, 200, 1.5, 100, clock::get);
+        when(notificationDispatcher.getCompletedCount()).thenReturn(200L);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        admissionLimiter.acquire().release();
+
+        // When - 1000 waiting
+        when(notificationDispatcher.getQueueSize()).thenReturn(1_000);
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class, admissionLimiter::checkBacklog);
+
+        // Then
+        assertEquals(5, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    void givenReleasedPermit_whenAcquire_thenSlotIsReused() {
+
+        // Given
+        AdmissionLimiter admissionLimiter = new AdmissionLimiter(notificationDispatcher, 1, 1, 10, 1.5, 100);
+        AdmissionLimiter.Permit permit = admissionLimiter.acquire();
+
+        // When
+        permit.release();
+        permit.release();
+
+        // Then
+        assertEquals(0, admissionLimiter.getInFlight());
+        assertNotNull(admissionLimiter.acquire());
+    }
+
+    @Test
+    void givenDroppedRequests_whenRelease_thenLimitBacksOff() {
+
+        // Given
+        AdmissionLimiter admissionLimiter = new AdmissionLimiter(notificationDispatcher, 20, 4, 200, 1.5, 100);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            AdmissionLimiter.Permit permit = admissionLimiter.acquire();
+            permit.drop();
+            permit.release();
+        }
+
+        // Then
+        assertTrue(admissionLimiter.getLimit() < 20);
+        assertTrue(admissionLimiter.getLimit() >= 4);
+    }
+
+    @Test
+    void givenSaturatedFastRequests_whenRelease_thenLimitGrows() {
+
+        // Given
+        AtomicLong clock = new AtomicLong();
+        AdmissionLimiter admissionLimiter = new AdmissionLimiter(notificationDispatcher, 10, 4, 200, 1.5, 100, clock::get);
+
+        // When - keep the limiter full so the samples count as load, every request takes 10ms
+        for (int round = 0; round < 20; round++) {
+            List<AdmissionLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < admissionLimiter.getLimit(); i++) {
+                permits.add(admissionLimiter.acquire());
+            }
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            permits.forEach(AdmissionLimiter.Permit::release);
+        }
+
+        // Then
+        assertTrue(admissionLimiter.getLimit() > 10);
+    }
+
+    @Test
+    void givenLatencyRisingUnderLoad_whenRelease_thenLimitShrinks() {
+
+        // Given
+        AtomicLong clock = new AtomicLong();
+        AdmissionLimiter admissionLimiter = new AdmissionLimiter(notificationDispatcher, 40, 4, 200, 1.5, 100, clock::get);
+
+        // When - each round the dependency gets slower
+        for (int round = 1; round <= 20; round++) {
+            List<AdmissionLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < admissionLimiter.getLimit(); i++) {
+                permits.add(admissionLimiter.acquire());
+            }
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10L * round));
+            permits.forEach(AdmissionLimiter.Permit::release);
+        }
+
+        // Then
+        assertTrue(admissionLimiter.getLimit() < 40);
+    }
+}
@@ -0,0 +1,78 @@
+package app.service;
+
+import app.config.FairnessProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationDispatcherUTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Test
+    void givenSendInFlight_whenShutdown_thenWaitForItToFinish() throws InterruptedException {
+
+        // Given - the channel answers 200ms after the shutdown started
+        CompletableFuture<Void> channel = new CompletableFuture<>();
+        when(notificationService.dispatchNotification(any(UUID.class))).thenReturn(channel);
+        NotificationDispatcher dispatcher = new NotificationDispatcher(notificationService, 1, 10, Duration.ofSeconds(5), false, new FairnessProperties(), new SimpleMeterRegistry());
+
+        CompletableFuture<Void> dispatched = dispatcher.dispatch(UUID.randomUUID(), null);
+        ScheduledExecutorService provider = Executors.newSingleThreadScheduledExecutor();
+        provider.schedule(() -> channel.complete(null), 200, TimeUnit.MILLISECONDS);
+
+        // When
+        dispatcher.shutdown();
+
+        // Then
+        assertTrue(dispatched.isDone());
+        assertEquals(0, dispatcher.getInFlight());
+        provider.shutdown();
+    }
+
+    @Test
+    void givenSendNeverFinishes_whenShutdown_thenGiveUpAfterDrainTimeout() throws InterruptedException {
+
+        // Given
+        when(notificationService.dispatchNotification(any(UUID.class))).thenReturn(new CompletableFuture<>());
+        NotificationDispatcher dispatcher = new NotificationDispatcher(notificationService, 1, 10, Duration.ofMillis(200), false, new FairnessProperties(), new SimpleMeterRegistry());
+        dispatcher.dispatch(UUID.randomUUID(), null);
+
+        // When
+        long start = System.nanoTime();
+        dispatcher.shutdown();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then - the row stays SENDING for recovery
+        assertTrue(elapsedMillis >= 200 && elapsedMillis < 2_000, "took " + elapsedMillis + "ms");
+        assertEquals(1, dispatcher.getInFlight());
+    }
+
+    @Test
+    void givenShutdownStarted_whenDispatch_thenReject() throws InterruptedException {
+
+        // Given
+        NotificationDispatcher dispatcher = new NotificationDispatcher(notificationService, 1, 10, Duration.ofSeconds(1), false, new FairnessProperties(), new SimpleMeterRegistry());
+        dispatcher.shutdown();
+
+        // When & Then
+        assertThrows(TaskRejectedException.class, () -> dispatcher.dispatch(UUID.randomUUID(), null));
+        verifyNoInteractions(notificationService);
+    }
+}
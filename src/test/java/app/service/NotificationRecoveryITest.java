@@ -0,0 +1,99 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationPreference;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import app.repository.NotificationRepository;
+import app.web.dto.NotificationTypeRequest;
+import app.web.dto.UpsertNotificationPreference;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:recovery;MODE=MYSQL")
+@ActiveProfiles("test")
+public class NotificationRecoveryITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private NotificationRecovery recovery;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Test
+    void givenAbandonedSend_whenResolvedTwice_thenClaimAndCountItOnce() {
+
+        // Given
+        Notification abandoned = notificationRepository.save(Notification.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(LocalDateTime.now().minusMinutes(10))
+                .lastAttemptOn(LocalDateTime.now().minusMinutes(10))
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.SENDING)
+                .attempts(0)
+                .build());
+
+        // When - e.g. two instances running the periodic check
+        recovery.resolveInterrupted(LocalDateTime.now(), false);
+        recovery.resolveInterrupted(LocalDateTime.now(), false);
+
+        // Then
+        Notification resolved = notificationRepository.findById(abandoned.getId()).orElseThrow();
+        assertEquals(NotificationStatus.QUEUED, resolved.getStatus());
+        assertEquals(1, resolved.getAttempts());
+        assertEquals(NotificationRecovery.INTERRUPTED_SEND, resolved.getFailureClass());
+    }
+
+    @Test
+    void givenQueuedRowReplayedWhileAnotherInstanceHoldsIt_whenBothDispatch_thenSendOnce() {
+
+        // Given - a live instance has read the QUEUED row and not sent it yet
+        UUID userId = UUID.randomUUID();
+        NotificationPreference preference = notificationService.upsertPreference(UpsertNotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationTypeRequest.EMAIL)
+                .notificationEnabled(true)
+                .contactInfo("user@example.com")
+                .build());
+        Notification queued = notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(LocalDateTime.now().minusMinutes(1))
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.QUEUED)
+                .attempts(0)
+                .build());
+        Notification heldByLiveInstance = notificationRepository.findById(queued.getId()).orElseThrow();
+
+        // When - a starting instance replays it, then the live one gets to its copy
+        recovery.replayQueued(LocalDateTime.now());
+        verify(mailSender, timeout(5000)).send(any(SimpleMailMessage.class));
+        notificationService.dispatchNotification(heldByLiveInstance, preference).join();
+
+        // Then
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+    }
+}
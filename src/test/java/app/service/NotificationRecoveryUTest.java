@@ -0,0 +1,126 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.NotificationRepository;
+import app.retention.NotificationRetention;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationRecoveryUTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+    @Mock
+    private UserVersions userVersions;
+
+    @Test
+    void givenInterruptedSends_whenResolveWithResend_thenRequeueAndDispatchInBatches() {
+
+        // Given - two batches, the last row has used up its attempts
+        NotificationRecovery recovery = recovery(true);
+        Notification first = aSendingNotification(new UUID(0, 1), 0);
+        Notification second = aSendingNotification(new UUID(0, 2), 1);
+        Notification exhausted = aSendingNotification(new UUID(0, 3), 2);
+
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(new UUID(0, 0)), any(Limit.class))).thenReturn(List.of(first, second));
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(second.getId()), any(Limit.class))).thenReturn(List.of(exhausted));
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(exhausted.getId()), any(Limit.class))).thenReturn(List.of());
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        // When
+        recovery.resolveInterrupted(LocalDateTime.now(), true);
+
+        // Then
+        assertEquals(NotificationStatus.QUEUED, first.getStatus());
+        assertEquals(1, first.getAttempts());
+        assertEquals(NotificationRecovery.INTERRUPTED_SEND, first.getFailureClass());
+        assertEquals(NotificationStatus.QUEUED, second.getStatus());
+        assertEquals(NotificationStatus.DEAD, exhausted.getStatus());
+
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class));
+        verify(notificationDispatcher).dispatch(first.getId(), null);
+        verify(notificationDispatcher).dispatch(second.getId(), null);
+        verify(notificationDispatcher, never()).dispatch(eq(exhausted.getId()), any());
+    }
+
+    @Test
+    void givenInterruptedSend_whenResolveWithoutResend_thenMarkDead() {
+
+        // Given
+        NotificationRecovery recovery = recovery(false);
+        Notification interrupted = aSendingNotification(new UUID(0, 1), 0);
+
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(new UUID(0, 0)), any(Limit.class))).thenReturn(List.of(interrupted));
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(interrupted.getId()), any(Limit.class))).thenReturn(List.of());
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        // When
+        recovery.resolveInterrupted(LocalDateTime.now(), true);
+
+        // Then
+        assertEquals(NotificationStatus.DEAD, interrupted.getStatus());
+        assertEquals(NotificationRecovery.INTERRUPTED_SEND, interrupted.getFailureClass());
+        verify(userVersions).bump(List.of(interrupted.getUserId()));
+        verifyNoInteractions(notificationDispatcher);
+    }
+
+    @Test
+    void givenAnotherInstanceClaimedTheRow_whenResolve_thenLeaveItAlone() {
+
+        // Given - the conditional update finds the row no longer SENDING with the attempt read
+        NotificationRecovery recovery = recovery(true);
+        Notification interrupted = aSendingNotification(new UUID(0, 1), 0);
+
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(new UUID(0, 0)), any(Limit.class))).thenReturn(List.of(interrupted));
+        when(notificationRepository.findAllByStatusAttemptedBefore(eq(NotificationStatus.SENDING), any(), any(), eq(interrupted.getId()), any(Limit.class))).thenReturn(List.of());
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        // When
+        recovery.resolveInterrupted(LocalDateTime.now(), true);
+
+        // Then
+        assertEquals(NotificationStatus.SENDING, interrupted.getStatus());
+        assertEquals(0, interrupted.getAttempts());
+        verifyNoInteractions(notificationDispatcher, userVersions);
+    }
+
+    private NotificationRecovery recovery(boolean resendInterrupted) {
+        return new NotificationRecovery(notificationRepository, jdbcTemplate, notificationDispatcher, userVersions, new RecentStatusCache(100, Duration.ofSeconds(10)), new RecentHistoryCache(20, DataSize.ofMegabytes(1), Duration.ofSeconds(60)), new NotificationRetention(0), 2, Duration.ofMinutes(5), resendInterrupted, 3);
+    }
+
+    private static Notification aSendingNotification(UUID id, int attempts) {
+
+        return Notification.builder()
+                .id(id)
+                .userId(UUID.randomUUID())
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(LocalDateTime.now().minusMinutes(10))
+                .status(NotificationStatus.SENDING)
+                .attempts(attempts)
+                .lastAttemptOn(LocalDateTime.now().minusMinutes(10))
+                .build();
+    }
+}
@@ -1,26 +1,48 @@
 package app.service;
 
+import app.archive.NotificationArchive;
+import app.channel.ChannelRouter;
+import app.channel.EmailChannelSender;
+import app.config.ChannelProperties;
+import app.exception.CircuitOpenException;
+import app.exception.NotificationNotFoundException;
+import app.exception.NotificationStoredException;
 import app.model.Notification;
 import app.model.NotificationPreference;
 import app.model.NotificationStatus;
 import app.model.NotificationType;
 import app.repository.NotificationPreferenceRepository;
 import app.repository.NotificationRepository;
+import app.retention.NotificationRetention;
+import app.scheduler.NotificationScheduledEvent;
 import app.web.dto.NotificationRequest;
+import app.web.dto.NotificationResponse;
 import app.web.dto.NotificationTypeRequest;
 import app.web.dto.UpsertNotificationPreference;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.MailSender;
 import org.springframework.mail.SimpleMailMessage;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
 
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.logging.Logger;
@@ -37,10 +59,26 @@ public class NotificationServiceUTest {
     private NotificationRepository notificationRepository;
     @Mock
     private MailSender mailSender;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private UserVersions userVersions;
+    @Mock
+    private NotificationStatusWriter statusWriter;
+    @Mock
+    private SuppressionService suppressionService;
+    @Mock
+    private NotificationArchive notificationArchive;
 
-    @InjectMocks
     private NotificationService notificationService;
 
+    @BeforeEach
+    void setUp() {
+        // this instance wins every row unless a test says otherwise
+        lenient().when(statusWriter.claimForSending(any())).thenReturn(true);
+        notificationService = new NotificationService(notificationPreferenceRepository, notificationRepository, new ChannelRouter(List.of(new EmailChannelSender(mailSender)), new ChannelProperties()), eventPublisher, userVersions, statusWriter, suppressionService, new RecentStatusCache(100, Duration.ofSeconds(10)), new RecentHistoryCache(20, DataSize.ofMegabytes(1), Duration.ofSeconds(60)), new NotificationRetention(0), notificationArchive, 3);
+    }
+
     // 1. changeNotificationPreference
     @Test
     void givenNotExistingNotificationPreference_whenChangeNotificationPreference_thenExpectException() {
@@ -149,7 +187,7 @@ public class NotificationServiceUTest {
 
         List<Notification> listOfNotifications = List.of(notificationOne, notificationTwo);
 
-        when(notificationRepository.findAllByUserIdAndDeletedIsFalse(userId)).thenReturn(listOfNotifications);
+        when(notificationRepository.findAllByUserIdAndDeletedIsFalse(eq(userId), any())).thenReturn(listOfNotifications);
 
         // When
         List<Notification> returnedListOfNotificationHistory = notificationService.getNotificationHistory(userId);
@@ -165,7 +203,92 @@ public class NotificationServiceUTest {
         assertEquals(notificationOne.getType(), firstNotification.getType());
         assertEquals(notificationOne.isDeleted(), firstNotification.isDeleted());
 
-        verify(notificationRepository, times(1)).findAllByUserIdAndDeletedIsFalse(userId);
+        verify(notificationRepository, times(1)).findAllByUserIdAndDeletedIsFalse(eq(userId), any());
+    }
+
+    @Test
+    void givenLoadedUser_whenGetRecentHistoryAgainAfterSend_thenAnswerFromCacheWithNewNotificationFirst() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification older = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Payment")
+                .createdOn(LocalDateTime.now().minusMinutes(5))
+                .status(NotificationStatus.SUCCEEDED)
+                .type(NotificationType.EMAIL)
+                .isDeleted(false)
+                .build();
+        when(notificationRepository.findNewestByUserId(eq(userId), any(), any(Limit.class))).thenReturn(List.of(older));
+        notificationService.getRecentNotificationHistory(userId, 10);
+
+        NotificationPreference preference = NotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationType.EMAIL)
+                .contactInfo("user@example.com")
+                .enabled(true)
+                .build();
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(preference));
+        when(notificationRepository.save(any())).thenAnswer(invocation -> {
+            Notification saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId(UUID.randomUUID());
+            }
+            return saved;
+        });
+        notificationService.sendNotification(NotificationRequest.builder()
+                .userId(userId)
+                .subject("Welcome")
+                .body("Hello")
+                .build());
+
+        // When
+        List<NotificationResponse> history = notificationService.getRecentNotificationHistory(userId, 10);
+
+        // Then
+        assertEquals(2, history.size());
+        assertEquals("Welcome", history.get(0).getSubject());
+        assertEquals(NotificationStatus.SUCCEEDED, history.get(0).getStatus());
+        assertEquals(older.getId(), history.get(1).getId());
+        verify(notificationRepository, times(1)).findNewestByUserId(eq(userId), any(), any(Limit.class));
+    }
+
+    @Test
+    void givenRangeReachingBeforeRetention_whenGetNotificationHistory_thenMergeArchiveAndTable() {
+
+        // Given - retention keeps the current month and the one before it
+        notificationService = new NotificationService(notificationPreferenceRepository, notificationRepository, new ChannelRouter(List.of(new EmailChannelSender(mailSender)), new ChannelProperties()), eventPublisher, userVersions, statusWriter, suppressionService, new RecentStatusCache(100, Duration.ofSeconds(10)), new RecentHistoryCache(20, DataSize.ofMegabytes(1), Duration.ofSeconds(60)), new NotificationRetention(1), notificationArchive, 3);
+        UUID userId = UUID.randomUUID();
+        LocalDateTime hotSince = LocalDate.now().withDayOfMonth(1).minusMonths(1).atStartOfDay();
+        LocalDateTime from = hotSince.minusMonths(6);
+
+        Notification archived = Notification.builder().id(UUID.randomUUID()).userId(userId).createdOn(from.plusDays(1)).build();
+        Notification archivedAndCleared = Notification.builder().id(UUID.randomUUID()).userId(userId).createdOn(from.plusDays(2)).isDeleted(true).build();
+        Notification hot = Notification.builder().id(UUID.randomUUID()).userId(userId).createdOn(hotSince.plusDays(1)).build();
+        when(notificationArchive.read(userId, from, hotSince)).thenReturn(List.of(archived, archivedAndCleared));
+        when(notificationRepository.findAllByUserIdCreatedBetween(eq(userId), eq(hotSince), any())).thenReturn(List.of(hot));
+
+        // When
+        List<Notification> history = notificationService.getNotificationHistory(userId, from, null);
+
+        // Then
+        assertEquals(List.of(archived.getId(), hot.getId()), history.stream().map(Notification::getId).toList());
+    }
+
+    @Test
+    void givenRangeInsideRetention_whenGetNotificationHistory_thenDoNotReadTheArchive() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        when(notificationRepository.findAllByUserIdCreatedBetween(eq(userId), eq(from), any())).thenReturn(List.of());
+
+        // When
+        notificationService.getNotificationHistory(userId, from, null);
+
+        // Then
+        verifyNoInteractions(notificationArchive);
     }
 
     // 4. clearNotifications
@@ -198,7 +321,7 @@ public class NotificationServiceUTest {
                 .build();
 
         List<Notification> listOfNotifications = List.of(notificationOne, notificationTwo);
-        when(notificationRepository.findAllByUserIdAndDeletedIsFalse(userId)).thenReturn(listOfNotifications);
+        when(notificationRepository.findAllByUserIdAndDeletedIsFalse(eq(userId), any())).thenReturn(listOfNotifications);
 
         // When
         notificationService.clearNotifications(userId);
@@ -211,7 +334,8 @@ public class NotificationServiceUTest {
                 notification.getId().equals(notificationTwo.getId()) && notification.isDeleted()
         ));
 
-        verify(notificationRepository, times(1)).findAllByUserIdAndDeletedIsFalse(userId);
+        verify(notificationRepository, times(1)).findAllByUserIdAndDeletedIsFalse(eq(userId), any());
+        verify(notificationArchive).recordCleared(eq(userId), any());
     }
 
     // 5. retryFailedNotifications
@@ -274,7 +398,7 @@ public class NotificationServiceUTest {
 
         List<Notification> failedNotifications = List.of(failedNotificationOne, failedNotificationTwo);
 
-        when(notificationRepository.findAllByUserIdAndStatus(userId, NotificationStatus.FAILED))
+        when(notificationRepository.findAllByUserIdAndStatus(eq(userId), eq(NotificationStatus.FAILED), any()))
                 .thenReturn(failedNotifications);
 
         NotificationPreference userPreference = NotificationPreference.builder()
@@ -290,9 +414,10 @@ public class NotificationServiceUTest {
 
         // When
         notificationService.retryFailedNotifications(userId);
-        verify(notificationRepository, times(1)).save(failedNotificationOne);
-        verify(notificationRepository, never()).save(failedNotificationTwo);
-        verify(notificationRepository, times(1)).findAllByUserIdAndStatus(userId, NotificationStatus.FAILED);
+        verify(statusWriter, times(1)).enqueue(failedNotificationOne);
+        verify(statusWriter, never()).enqueue(failedNotificationTwo);
+        verify(notificationRepository, never()).save(any());
+        verify(notificationRepository, times(1)).findAllByUserIdAndStatus(eq(userId), eq(NotificationStatus.FAILED), any());
     }
 
     @Test
@@ -321,7 +446,7 @@ public class NotificationServiceUTest {
 
         List<Notification> failedNotifications = List.of(failedNotificationOne, failedNotificationTwo);
 
-        when(notificationRepository.findAllByUserIdAndStatus(userId, NotificationStatus.FAILED)).thenReturn(failedNotifications);
+        when(notificationRepository.findAllByUserIdAndStatus(eq(userId), eq(NotificationStatus.FAILED), any())).thenReturn(failedNotifications);
 
         NotificationPreference userPreference = NotificationPreference.builder()
                 .id(UUID.randomUUID())
@@ -338,9 +463,9 @@ public class NotificationServiceUTest {
         notificationService.retryFailedNotifications(userId);
 
         // Then
-        verify(notificationRepository, times(1)).findAllByUserIdAndStatus(userId, NotificationStatus.FAILED);
-        verify(notificationRepository, times(1)).save(failedNotificationOne);
-        verify(notificationRepository, never()).save(failedNotificationTwo);
+        verify(notificationRepository, times(1)).findAllByUserIdAndStatus(eq(userId), eq(NotificationStatus.FAILED), any());
+        verify(statusWriter, times(1)).enqueue(failedNotificationOne);
+        verify(statusWriter, never()).enqueue(failedNotificationTwo);
     }
 
     // 6.sendNotification
@@ -445,14 +570,19 @@ public class NotificationServiceUTest {
                 .type(NotificationType.EMAIL)
                 .status(NotificationStatus.SUCCEEDED)
                 .build();
-        when(notificationRepository.save(any(Notification.class))).thenReturn(savedNotification);
+        List<NotificationStatus> savedStatuses = new ArrayList<>();
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> {
+            savedStatuses.add(invocation.<Notification>getArgument(0).getStatus());
+            return savedNotification;
+        });
 
         // When
         Notification notification = notificationService.sendNotification(notificationRequest);
 
-        // Then
+        // Then - the row is stored as SENDING before the send and updated with the outcome after it
+        assertEquals(List.of(NotificationStatus.SENDING, NotificationStatus.SUCCEEDED), savedStatuses);
         ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
-        verify(notificationRepository, times(1)).save(notificationCaptor.capture());
+        verify(notificationRepository, times(2)).save(notificationCaptor.capture());
 
         Notification capturedNotification = notificationCaptor.getValue();
 
@@ -465,8 +595,57 @@ public class NotificationServiceUTest {
         assertEquals(NotificationType.EMAIL, capturedNotification.getType());
         assertFalse(capturedNotification.isDeleted());
 
+        assertNotNull(capturedNotification.getLastAttemptOn());
         verify(mailSender, times(1)).send(mockMessage);
-        verify(notificationRepository, times(1)).save(any(Notification.class));
+    }
+
+    @Test
+    void givenDatabaseFailsAfterSendingRowWasStored_whenSendNotification_thenThrowNotificationStored() {
+
+        // Given - the SENDING row is stored, the update with the outcome fails
+        UUID userId = UUID.randomUUID();
+        NotificationRequest notificationRequest = NotificationRequest.builder()
+                .userId(userId)
+                .subject("subject")
+                .body("body")
+                .build();
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(anEnabledPreference(userId)));
+        UUID storedId = UUID.randomUUID();
+        when(notificationRepository.save(any(Notification.class)))
+                .thenAnswer(invocation -> {
+                    Notification stored = invocation.getArgument(0);
+                    stored.setId(storedId);
+                    return stored;
+                })
+                .thenThrow(new CannotCreateTransactionException("Connection refused"));
+
+        // When
+        NotificationStoredException thrown = assertThrows(NotificationStoredException.class, () -> notificationService.sendNotification(notificationRequest));
+
+        // Then - the message went out, recovery resolves the row
+        assertEquals(storedId, thrown.getNotification().getId());
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+    }
+
+    @Test
+    void givenFirstInsertFails_whenSendNotification_thenRethrowAndSendNothing() {
+
+        // Given - Hibernate generates the id before the insert fails
+        UUID userId = UUID.randomUUID();
+        NotificationRequest notificationRequest = NotificationRequest.builder()
+                .userId(userId)
+                .subject("subject")
+                .body("body")
+                .build();
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(anEnabledPreference(userId)));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> {
+            invocation.<Notification>getArgument(0).setId(UUID.randomUUID());
+            throw new CannotCreateTransactionException("Connection refused");
+        });
+
+        // When & Then - nothing was stored, so the caller may still store the request elsewhere
+        assertThrows(CannotCreateTransactionException.class, () -> notificationService.sendNotification(notificationRequest));
+        verifyNoInteractions(mailSender);
     }
 
     @Test
@@ -510,7 +689,7 @@ public class NotificationServiceUTest {
 
         // Then
         ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
-        verify(notificationRepository, times(1)).save(notificationCaptor.capture());
+        verify(notificationRepository, times(2)).save(notificationCaptor.capture());
 
         Notification capturedNotification = notificationCaptor.getValue();
 
@@ -522,7 +701,6 @@ public class NotificationServiceUTest {
         assertEquals(NotificationType.EMAIL, capturedNotification.getType());
         assertFalse(capturedNotification.isDeleted());
         verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
-        verify(notificationRepository, times(1)).save(any(Notification.class));
     }
 
     @Test
@@ -562,4 +740,362 @@ public class NotificationServiceUTest {
         verifyNoInteractions(notificationRepository);
     }
 
+    // 7. scheduled delivery
+    @Test
+    void givenSendAtInTheFuture_whenSendNotification_thenStoreScheduledWithoutSending() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        LocalDateTime sendAt = LocalDateTime.now().plusHours(1);
+        NotificationRequest notificationRequest = NotificationRequest.builder()
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .sendAt(sendAt)
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("test@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        Notification notification = notificationService.sendNotification(notificationRequest);
+
+        // Then
+        assertEquals(NotificationStatus.SCHEDULED, notification.getStatus());
+        assertEquals(sendAt, notification.getSendAt());
+        verify(eventPublisher, times(1)).publishEvent(any(NotificationScheduledEvent.class));
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    void givenDueScheduledNotification_whenDispatchNotification_thenSendAndMarkSucceeded() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification scheduled = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.SCHEDULED)
+                .sendAt(LocalDateTime.now())
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("test@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        when(notificationRepository.findById(scheduled.getId())).thenReturn(Optional.of(scheduled));
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+
+        // When
+        notificationService.dispatchNotification(scheduled.getId()).join();
+
+        // Then - SENDING is written before the send, the outcome goes through the write-behind buffer after it
+        assertEquals(NotificationStatus.SUCCEEDED, scheduled.getStatus());
+        InOrder inOrder = inOrder(statusWriter, mailSender);
+        inOrder.verify(statusWriter).claimForSending(scheduled);
+        inOrder.verify(mailSender).send(any(SimpleMailMessage.class));
+        inOrder.verify(statusWriter).enqueue(scheduled);
+    }
+
+    @Test
+    void givenRowClaimedByAnotherInstance_whenDispatchNotification_thenNothingIsSentOrWritten() {
+
+        // Given - both instances loaded the row while it was SCHEDULED
+        UUID userId = UUID.randomUUID();
+        Notification scheduled = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.SCHEDULED)
+                .sendAt(LocalDateTime.now())
+                .build();
+        when(notificationRepository.findById(scheduled.getId())).thenReturn(Optional.of(scheduled));
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(anEnabledPreference(userId)));
+        when(statusWriter.claimForSending(scheduled)).thenReturn(false);
+
+        // When
+        notificationService.dispatchNotification(scheduled.getId()).join();
+
+        // Then
+        assertEquals(NotificationStatus.SCHEDULED, scheduled.getStatus());
+        verifyNoInteractions(mailSender);
+        verify(statusWriter, never()).enqueue(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void givenAlreadyDeliveredNotification_whenDispatchNotification_thenNothingIsSent() {
+
+        // Given
+        Notification delivered = Notification.builder()
+                .id(UUID.randomUUID())
+                .status(NotificationStatus.SUCCEEDED)
+                .build();
+
+        when(notificationRepository.findById(delivered.getId())).thenReturn(Optional.of(delivered));
+
+        // When
+        notificationService.dispatchNotification(delivered.getId()).join();
+
+        // Then
+        verifyNoInteractions(mailSender);
+        verify(notificationRepository, never()).save(any());
+        verify(statusWriter, never()).enqueue(any());
+    }
+
+    @Test
+    void givenSuppressedRecipient_whenDispatchNotification_thenMarkSuppressedWithoutSending() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification queued = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.QUEUED)
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("bounced@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        when(suppressionService.isSuppressed("bounced@email.com")).thenReturn(true);
+
+        // When
+        notificationService.dispatchNotification(queued, userPreference).join();
+
+        // Then
+        assertEquals(NotificationStatus.SUPPRESSED, queued.getStatus());
+        verifyNoInteractions(mailSender);
+        verify(statusWriter, times(1)).enqueue(queued);
+    }
+
+    @Test
+    void givenRecipientRejectedPermanently_whenDispatchNotification_thenMarkDeadAndSuppressRecipient() throws Exception {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification queued = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.QUEUED)
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("unknown@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        SMTPAddressFailedException rejected = new SMTPAddressFailedException(new InternetAddress("unknown@email.com"), "RCPT TO", 550, "5.1.1 User unknown");
+        doThrow(new MailSendException(Map.of(new Object(), rejected))).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When
+        notificationService.dispatchNotification(queued, userPreference).join();
+
+        // Then
+        assertEquals(NotificationStatus.DEAD, queued.getStatus());
+        assertEquals("MailSendException", queued.getFailureClass());
+        assertEquals(1, queued.getAttempts());
+        verify(suppressionService, times(1)).suppress(eq("unknown@email.com"), anyString());
+    }
+
+    @Test
+    void givenTemporaryFailure_whenDispatchNotification_thenMarkFailedWithoutSuppressing() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification queued = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.QUEUED)
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("user@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        doThrow(new MailSendException("421 Service not available")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When
+        notificationService.dispatchNotification(queued, userPreference).join();
+
+        // Then
+        assertEquals(NotificationStatus.FAILED, queued.getStatus());
+        verify(suppressionService, never()).suppress(any(), any());
+    }
+
+    @Test
+    void givenLastAttemptFails_whenRetryFailedNotifications_thenMarkDead() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification failed = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.FAILED)
+                .attempts(2)
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("user@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(notificationRepository.findAllByUserIdAndStatus(eq(userId), eq(NotificationStatus.FAILED), any())).thenReturn(List.of(failed));
+        doThrow(new MailSendException("421 Service not available")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When
+        notificationService.retryFailedNotifications(userId);
+
+        // Then
+        assertEquals(NotificationStatus.DEAD, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+        assertEquals("421 Service not available", failed.getFailureReason());
+        verify(statusWriter, times(1)).enqueue(failed);
+    }
+
+    @Test
+    void givenCircuitOpen_whenDispatchNotification_thenMarkFailedWithoutUsingAnAttempt() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        Notification queued = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Reminder")
+                .body("body")
+                .status(NotificationStatus.QUEUED)
+                .attempts(2)
+                .build();
+
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("user@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        doThrow(new CircuitOpenException("SMTP relay primary is unavailable")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When
+        notificationService.dispatchNotification(queued, userPreference).join();
+
+        // Then
+        assertEquals(NotificationStatus.FAILED, queued.getStatus());
+        assertEquals(2, queued.getAttempts());
+        assertEquals("CircuitOpenException", queued.getFailureClass());
+    }
+
+    @Test
+    void givenEnabledPreference_whenQueueNotification_thenStoreQueuedWithoutSending() {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationRequest notificationRequest = NotificationRequest.builder()
+                .userId(userId)
+                .subject("subject")
+                .body("body")
+                .build();
+        NotificationPreference userPreference = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("test@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .build();
+
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> {
+            Notification saved = invocation.getArgument(0);
+            saved.setId(UUID.randomUUID());
+            return saved;
+        });
+
+        // When
+        Notification queued = notificationService.queueNotification(notificationRequest);
+
+        // Then - the status is answered from the cache, without reading the row back
+        assertEquals(NotificationStatus.QUEUED, queued.getStatus());
+        verifyNoInteractions(mailSender);
+        assertEquals(NotificationStatus.QUEUED, notificationService.getNotification(queued.getId()).getStatus());
+        verify(notificationRepository, never()).findById(any());
+    }
+
+    @Test
+    void givenNotificationNotCached_whenGetNotification_thenReadDatabaseOnce() {
+
+        // Given
+        Notification stored = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("subject")
+                .status(NotificationStatus.SUCCEEDED)
+                .build();
+        when(notificationRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        // When
+        notificationService.getNotification(stored.getId());
+        Notification notification = notificationService.getNotification(stored.getId());
+
+        // Then
+        assertEquals(NotificationStatus.SUCCEEDED, notification.getStatus());
+        verify(notificationRepository, times(1)).findById(stored.getId());
+    }
+
+    @Test
+    void givenDeletedNotification_whenGetNotification_thenThrowNullPointerException() {
+
+        // Given
+        Notification deleted = Notification.builder()
+                .id(UUID.randomUUID())
+                .status(NotificationStatus.SUCCEEDED)
+                .isDeleted(true)
+                .build();
+        when(notificationRepository.findById(deleted.getId())).thenReturn(Optional.of(deleted));
+
+        // When & Then
+        assertThrows(NotificationNotFoundException.class, () -> notificationService.getNotification(deleted.getId()));
+    }
+
+    private static NotificationPreference anEnabledPreference(UUID userId) {
+
+        return NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("test@email.com")
+                .enabled(true)
+                .type(NotificationType.EMAIL)
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build();
+    }
 }
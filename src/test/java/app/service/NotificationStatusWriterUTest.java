@@ -0,0 +1,155 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class NotificationStatusWriterUTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private UserVersions userVersions;
+    @Mock
+    private RecentStatusCache recentStatusCache;
+    @Mock
+    private RecentHistoryCache recentHistoryCache;
+
+    private NotificationStatusWriter statusWriter;
+
+    @BeforeEach
+    void setUp() {
+
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        // only explicit flushes write
+        statusWriter = new NotificationStatusWriter(jdbcTemplate, transactionTemplate, userVersions, recentStatusCache, recentHistoryCache,
+                100, Duration.ofHours(1), 100, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        reset(jdbcTemplate);
+        statusWriter.shutdown();
+    }
+
+    @Test
+    void givenDatabaseRejectsBatch_whenFlush_thenKeepTheUpdateAndWriteItOnRetry() {
+
+        // Given
+        Notification notification = aSentNotification();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[][]{{1}});
+        statusWriter.enqueue(notification);
+
+        // When
+        statusWriter.flush();
+
+        // Then - not dropped, the row must not be picked up again
+        assertTrue(statusWriter.hasUnflushedUpdate(notification.getId()));
+
+        // When - the database is back
+        statusWriter.flush();
+
+        // Then
+        assertFalse(statusWriter.hasUnflushedUpdate(notification.getId()));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void givenNewerUpdateBufferedWhileBatchIsWritten_whenBatchWritten_thenIdStaysUnflushed() {
+
+        // Given - the retry is enqueued while the first outcome is being written, and its own write fails
+        Notification notification = aSentNotification();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    notification.setStatus(NotificationStatus.SUCCEEDED);
+                    statusWriter.enqueue(notification);
+                    return new int[][]{{1}};
+                })
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        statusWriter.enqueue(notification);
+
+        // When
+        statusWriter.flush();
+
+        // Then
+        assertTrue(statusWriter.hasUnflushedUpdate(notification.getId()));
+    }
+
+    @Test
+    void givenClaim_whenSending_thenOnlyTheClaimIsWrittenAndTheVersionWaitsForTheOutcome() {
+
+        // Given
+        Notification notification = aSentNotification();
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        // When
+        boolean claimed = statusWriter.claimForSending(notification);
+
+        // Then - one round trip before the send
+        assertTrue(claimed);
+        assertEquals(NotificationStatus.SENDING, notification.getStatus());
+        verifyNoInteractions(userVersions);
+
+        // When - the outcome is written
+        notification.setStatus(NotificationStatus.SUCCEEDED);
+        statusWriter.enqueue(notification);
+        statusWriter.flush();
+
+        // Then
+        verify(userVersions).bump(anyList());
+    }
+
+    @Test
+    void givenRowClaimedElsewhere_whenClaimForSending_thenLeaveTheNotificationAsRead() {
+
+        // Given
+        Notification notification = aSentNotification();
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        // When & Then
+        assertFalse(statusWriter.claimForSending(notification));
+        assertEquals(NotificationStatus.FAILED, notification.getStatus());
+        verifyNoInteractions(recentStatusCache);
+    }
+
+    private static Notification aSentNotification() {
+
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .createdOn(LocalDateTime.now())
+                .status(NotificationStatus.FAILED)
+                .attempts(1)
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.web.dto.NotificationResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecentHistoryCacheUTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final LocalDateTime start = LocalDateTime.now();
+
+    @Test
+    void givenFullRing_whenNewNotification_thenPushOutTheOldestAndOnlyAnswerPagesItCovers() {
+
+        // Given
+        RecentHistoryCache cache = new RecentHistoryCache(3, DataSize.ofMegabytes(1), Duration.ofSeconds(60), now::get);
+        UUID userId = UUID.randomUUID();
+        cache.load(userId, cache.stamp(userId), List.of(aResponse(3), aResponse(2), aResponse(1)));
+
+        // When
+        cache.update(aNotification(userId, 4, NotificationStatus.QUEUED));
+
+        // Then
+        List<NotificationResponse> history = cache.get(userId, 3).orElseThrow();
+        assertEquals(List.of("4", "3", "2"), history.stream().map(NotificationResponse::getSubject).toList());
+        assertTrue(cache.get(userId, 4).isEmpty());
+    }
+
+    @Test
+    void givenCachedUser_whenStatusChangesAndNotificationsAreCleared_thenUpdateInPlace() {
+
+        // Given - the user has fewer notifications than the ring holds
+        RecentHistoryCache cache = new RecentHistoryCache(5, DataSize.ofMegabytes(1), Duration.ofSeconds(60), now::get);
+        UUID userId = UUID.randomUUID();
+        Notification queued = aNotification(userId, 2, NotificationStatus.QUEUED);
+        NotificationResponse older = aResponse(1);
+        cache.load(userId, cache.stamp(userId), List.of(aResponse(queued), older));
+
+        // When
+        queued.setStatus(NotificationStatus.SUCCEEDED);
+        cache.update(queued);
+
+        // Then
+        assertEquals(NotificationStatus.SUCCEEDED, cache.get(userId, 10).orElseThrow().get(0).getStatus());
+
+        // When
+        cache.clear(userId, Set.of(queued.getId(), older.getId()));
+
+        // Then - nothing left, and still answered without a load
+        assertEquals(List.of(), cache.get(userId, 10).orElseThrow());
+    }
+
+    @Test
+    void givenCachedPage_whenRingChanges_thenChangeTheETag() {
+
+        // Given
+        RecentHistoryCache cache = new RecentHistoryCache(5, DataSize.ofMegabytes(1), Duration.ofSeconds(60), now::get);
+        UUID userId = UUID.randomUUID();
+        Notification queued = aNotification(userId, 2, NotificationStatus.QUEUED);
+        cache.load(userId, cache.stamp(userId), List.of(aResponse(queued)));
+        String loaded = cache.page(userId, 5).orElseThrow().eTag();
+
+        // When
+        queued.setStatus(NotificationStatus.SUCCEEDED);
+        cache.update(queued);
+
+        // Then - a new ETag, stable until the next change
+        String updated = cache.page(userId, 5).orElseThrow().eTag();
+        assertNotEquals(loaded, updated);
+        assertEquals(updated, cache.page(userId, 5).orElseThrow().eTag());
+
+        // When
+        cache.clear(userId, Set.of(queued.getId()));
+
+        // Then
+        assertNotEquals(updated, cache.page(userId, 5).orElseThrow().eTag());
+    }
+
+    @Test
+    void givenChangeDuringLoad_whenLoad_thenDoNotInstallTheStaleRows() {
+
+        // Given
+        RecentHistoryCache cache = new RecentHistoryCache(5, DataSize.ofMegabytes(1), Duration.ofSeconds(60), now::get);
+        UUID userId = UUID.randomUUID();
+        long stamp = cache.stamp(userId);
+
+        // When - a notification is stored after the database read but before the rows are installed
+        cache.update(aNotification(userId, 2, NotificationStatus.QUEUED));
+        cache.load(userId, stamp, List.of(aResponse(1)));
+
+        // Then
+        assertTrue(cache.get(userId, 5).isEmpty());
+    }
+
+    @Test
+    void givenByteBudgetExceeded_whenLoad_thenEvictLeastRecentlyUsedUser() {
+
+        // Given - room for roughly two users with one entry each
+        RecentHistoryCache cache = new RecentHistoryCache(5, DataSize.ofBytes(800), Duration.ofSeconds(60), now::get);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        cache.load(first, cache.stamp(first), List.of(aResponse(1)));
+        cache.load(second, cache.stamp(second), List.of(aResponse(1)));
+        cache.get(first, 1);
+
+        // When
+        UUID third = UUID.randomUUID();
+        cache.load(third, cache.stamp(third), List.of(aResponse(1)));
+
+        // Then
+        assertTrue(cache.get(first, 1).isPresent());
+        assertTrue(cache.get(second, 1).isEmpty());
+        assertTrue(cache.get(third, 1).isPresent());
+        assertTrue(cache.getEstimatedBytes() <= 800);
+    }
+
+    @Test
+    void givenUserOlderThanTimeToLive_whenGet_thenMiss() {
+
+        // Given
+        RecentHistoryCache cache = new RecentHistoryCache(5, DataSize.ofMegabytes(1), Duration.ofSeconds(60), now::get);
+        UUID userId = UUID.randomUUID();
+        cache.load(userId, cache.stamp(userId), List.of(aResponse(1)));
+
+        // When
+        now.addAndGet(Duration.ofSeconds(61).toNanos());
+
+        // Then
+        assertTrue(cache.get(userId, 1).isEmpty());
+        assertEquals(0, cache.getEstimatedBytes());
+    }
+
+    // the subject doubles as the order of creation
+    private Notification aNotification(UUID userId, int minute, NotificationStatus status) {
+
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject(String.valueOf(minute))
+                .createdOn(start.plusMinutes(minute))
+                .status(status)
+                .build();
+    }
+
+    private NotificationResponse aResponse(int minute) {
+        return aResponse(aNotification(UUID.randomUUID(), minute, NotificationStatus.SUCCEEDED));
+    }
+
+    private static NotificationResponse aResponse(Notification notification) {
+
+        return NotificationResponse.builder()
+                .id(notification.getId())
+                .subject(notification.getSubject())
+                .createdOn(notification.getCreatedOn())
+                .status(notification.getStatus())
+                .build();
+    }
+}
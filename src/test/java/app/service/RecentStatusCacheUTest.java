@@ -0,0 +1,75 @@
+package app.service;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecentStatusCacheUTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void givenCachedNotification_whenChangedAfterPut_thenCacheKeepsSnapshot() {
+
+        // Given
+        RecentStatusCache cache = new RecentStatusCache(10, Duration.ofSeconds(10), now::get);
+        Notification notification = aNotification(NotificationStatus.SENDING);
+        cache.put(notification);
+
+        // When
+        notification.setStatus(NotificationStatus.SUCCEEDED);
+
+        // Then
+        assertEquals(NotificationStatus.SENDING, cache.get(notification.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void givenEntryOlderThanTimeToLive_whenGet_thenMiss() {
+
+        // Given
+        RecentStatusCache cache = new RecentStatusCache(10, Duration.ofSeconds(10), now::get);
+        Notification notification = aNotification(NotificationStatus.QUEUED);
+        cache.put(notification);
+
+        // When
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        // Then
+        assertTrue(cache.get(notification.getId()).isEmpty());
+    }
+
+    @Test
+    void givenFullCache_whenPut_thenEvictLeastRecentlyUsed() {
+
+        // Given
+        RecentStatusCache cache = new RecentStatusCache(2, Duration.ofSeconds(10), now::get);
+        Notification first = aNotification(NotificationStatus.QUEUED);
+        Notification second = aNotification(NotificationStatus.QUEUED);
+        cache.put(first);
+        cache.put(second);
+        cache.get(first.getId());
+
+        // When
+        cache.put(aNotification(NotificationStatus.QUEUED));
+
+        // Then
+        assertTrue(cache.get(first.getId()).isPresent());
+        assertTrue(cache.get(second.getId()).isEmpty());
+    }
+
+    private static Notification aNotification(NotificationStatus status) {
+
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("Payment processed")
+                .status(status)
+                .build();
+    }
+}
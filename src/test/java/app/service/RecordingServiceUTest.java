@@ -0,0 +1,80 @@
+package app.service;
+
+import app.jfr.SmtpSendEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordingServiceUTest {
+
+    private final RecordingService recordingService = new RecordingService();
+
+    @Test
+    void givenRunningRecording_whenStageEventFinishes_thenEventIsInTheDownloadedFile() throws Exception {
+
+        // Given
+        recordingService.startRecording(Duration.ofMinutes(1), 8 * 1024 * 1024);
+        UUID userId = UUID.randomUUID();
+
+        // When
+        SmtpSendEvent event = new SmtpSendEvent();
+        event.begin();
+        event.finish(userId, "SUCCEEDED");
+        recordingService.stopRecording();
+
+        // Then
+        Path file = recordingService.getRecordingFile();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent recorded = events.stream()
+                .filter(e -> e.getEventType().getName().equals("app.notification.SmtpSend"))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals("SUCCEEDED", recorded.getString("outcome"));
+        assertEquals(userId.hashCode(), recorded.getInt("userIdHash"));
+    }
+
+    @Test
+    void givenRecording_whenDumpedRepeatedlyAndRestarted_thenKeepOneFileAndDeleteIt() {
+
+        // Given
+        recordingService.startRecording(Duration.ofMinutes(1), 8 * 1024 * 1024);
+
+        // When
+        Path snapshot = recordingService.getRecordingFile();
+        recordingService.stopRecording();
+        Path dump = recordingService.getRecordingFile();
+
+        // Then - every dump of the recording replaces the same file
+        assertEquals(snapshot, dump);
+        assertTrue(Files.exists(dump));
+
+        // When
+        recordingService.startRecording(Duration.ofMinutes(1), 8 * 1024 * 1024);
+        Path next = recordingService.getRecordingFile();
+        recordingService.close();
+
+        // Then
+        assertFalse(Files.exists(dump));
+        assertFalse(Files.exists(next));
+    }
+
+    @Test
+    void givenRunningRecording_whenStartAgain_thenThrowException() {
+
+        // Given
+        recordingService.startRecording(Duration.ofMinutes(1), 8 * 1024 * 1024);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> recordingService.startRecording(Duration.ofMinutes(1), 1024));
+        recordingService.stopRecording();
+    }
+}
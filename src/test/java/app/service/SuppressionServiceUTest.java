@@ -0,0 +1,139 @@
+package app.service;
+
+import app.model.Suppression;
+import app.repository.SuppressionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SuppressionServiceUTest {
+
+    @Mock
+    private SuppressionRepository suppressionRepository;
+
+    private SuppressionService suppressionService;
+
+    @BeforeEach
+    void setUp() {
+        suppressionService = new SuppressionService(suppressionRepository, 4, 0.01, 2);
+    }
+
+    @Test
+    void givenStoredSuppressions_whenLoad_thenAllAreSuppressed() {
+
+        // Given
+        Suppression first = aSuppression("first@email.com");
+        Suppression second = aSuppression("second@email.com");
+        Suppression third = aSuppression("third@email.com");
+        when(suppressionRepository.findAllAfter(any(UUID.class), any(Limit.class)))
+                .thenReturn(List.of(first, second), List.of(third), List.of());
+
+        // When
+        suppressionService.loadSuppressions();
+
+        // Then
+        assertTrue(suppressionService.isSuppressed("first@email.com"));
+        assertTrue(suppressionService.isSuppressed("third@email.com"));
+        assertFalse(suppressionService.isSuppressed("other@email.com"));
+        verify(suppressionRepository, times(3)).findAllAfter(any(UUID.class), any(Limit.class));
+    }
+
+    @Test
+    void givenNewAddress_whenSuppress_thenStoredNormalizedAndSuppressed() {
+
+        // Given
+        when(suppressionRepository.findByEmail("user@email.com")).thenReturn(Optional.empty());
+        when(suppressionRepository.save(any(Suppression.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        Suppression suppression = suppressionService.suppress(" User@Email.com ", "550 5.1.1 User unknown");
+
+        // Then
+        assertEquals("user@email.com", suppression.getEmail());
+        assertTrue(suppressionService.isSuppressed("USER@email.com"));
+        assertFalse(suppressionService.isSuppressed(null));
+    }
+
+    @Test
+    void givenMoreSuppressionsThanExpected_whenSuppress_thenFilterGrowsAndKeepsAll() {
+
+        // Given
+        when(suppressionRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(suppressionRepository.save(any(Suppression.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            suppressionService.suppress("user" + i + "@email.com", "bounce");
+        }
+
+        // Then
+        for (int i = 0; i < 50; i++) {
+            assertTrue(suppressionService.isSuppressed("user" + i + "@email.com"));
+        }
+    }
+
+    @Test
+    void givenSuppressedAddress_whenRemove_thenNoLongerSuppressed() {
+
+        // Given
+        when(suppressionRepository.findByEmail("user@email.com")).thenReturn(Optional.empty());
+        when(suppressionRepository.save(any(Suppression.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        suppressionService.suppress("user@email.com", "bounce");
+
+        // When
+        suppressionService.removeSuppression("User@email.com");
+
+        // Then
+        assertFalse(suppressionService.isSuppressed("user@email.com"));
+        verify(suppressionRepository, times(1)).deleteByEmail("user@email.com");
+    }
+
+    @Test
+    void givenTableChangedByAnotherInstance_whenReloadIfChanged_thenApplyAdditionsAndRemovals() {
+
+        // Given
+        Suppression removed = aSuppression("removed@email.com");
+        Suppression added = aSuppression("added@email.com");
+        when(suppressionRepository.count()).thenReturn(1L);
+        when(suppressionRepository.findNewestCreatedOn()).thenReturn(Optional.of(removed.getCreatedOn()));
+        when(suppressionRepository.findAllAfter(any(UUID.class), any(Limit.class))).thenReturn(List.of(removed), List.of());
+        suppressionService.loadSuppressions();
+
+        // When - nothing changed
+        suppressionService.reloadIfChanged();
+
+        // Then
+        verify(suppressionRepository, times(2)).findAllAfter(any(UUID.class), any(Limit.class));
+
+        // When - one address removed and another one suppressed elsewhere
+        when(suppressionRepository.findNewestCreatedOn()).thenReturn(Optional.of(added.getCreatedOn().plusSeconds(1)));
+        when(suppressionRepository.findAllAfter(any(UUID.class), any(Limit.class))).thenReturn(List.of(added), List.of());
+        suppressionService.reloadIfChanged();
+
+        // Then
+        assertTrue(suppressionService.isSuppressed("added@email.com"));
+        assertFalse(suppressionService.isSuppressed("removed@email.com"));
+    }
+
+    private static Suppression aSuppression(String email) {
+
+        return Suppression.builder()
+                .id(UUID.randomUUID())
+                .email(email)
+                .reason("bounce")
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+}
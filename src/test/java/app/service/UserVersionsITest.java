@@ -0,0 +1,81 @@
+package app.service;
+
+import app.retention.NotificationRetention;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:userversions;MODE=MYSQL")
+@ActiveProfiles("test")
+public class UserVersionsITest {
+
+    @Autowired
+    private UserVersions userVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NotificationRetention retention;
+
+    @Test
+    void givenWriteForUser_whenReadETag_thenOnlyThatUsersETagChanges() {
+
+        // Given
+        UUID writtenUser = UUID.randomUUID();
+        UUID otherUser = UUID.randomUUID();
+        String writtenBefore = userVersions.historyETag(writtenUser);
+        String otherBefore = userVersions.historyETag(otherUser);
+
+        // When
+        userVersions.bump(writtenUser);
+
+        // Then
+        assertNotEquals(writtenBefore, userVersions.historyETag(writtenUser));
+        assertEquals(otherBefore, userVersions.historyETag(otherUser));
+        assertNotEquals(userVersions.historyETag(writtenUser), userVersions.preferenceETag(writtenUser));
+    }
+
+    @Test
+    void givenAnotherInstanceWrote_whenReadETag_thenThisInstanceSeesTheChange() {
+
+        // Given - a second instance shares only the database
+        UserVersions otherInstance = new UserVersions(jdbcTemplate, retention);
+        UUID userId = UUID.randomUUID();
+        String before = userVersions.preferenceETag(userId);
+
+        // When
+        otherInstance.bump(userId);
+
+        // Then
+        assertNotEquals(before, userVersions.preferenceETag(userId));
+        assertEquals(otherInstance.preferenceETag(userId), userVersions.preferenceETag(userId));
+    }
+
+    @Test
+    void givenPartitionDropped_whenReadETag_thenEveryHistoryETagChangesButNoPreferenceETag() {
+
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        userVersions.bump(List.of(first, second, first));
+        String firstBefore = userVersions.historyETag(first);
+        String secondBefore = userVersions.historyETag(second);
+        String preferenceBefore = userVersions.preferenceETag(first);
+
+        // When
+        userVersions.bumpAllUsers();
+
+        // Then
+        assertNotEquals(firstBefore, userVersions.historyETag(first));
+        assertNotEquals(secondBefore, userVersions.historyETag(second));
+        assertEquals(preferenceBefore, userVersions.preferenceETag(first));
+    }
+}
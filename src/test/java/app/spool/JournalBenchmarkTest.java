@@ -0,0 +1,90 @@
+package app.spool;
+
+import app.web.dto.NotificationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Appends requests to the journal from 1 and from 32 threads - with many callers one fsync covers a whole batch -
+// then reopens it as after a crash and reads everything back the way the replayer does. The printed numbers are the
+// benchmark output; absolute values depend on how fast the disk forces.
+public class JournalBenchmarkTest {
+
+    private static final int SINGLE_APPENDS = 500;
+    private static final int CONCURRENT_APPENDS = 20_000;
+    private static final int THREADS = 32;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void concurrentAppends_shareForcesAndRecoverQuickly() throws Exception {
+
+        NotificationJournal journal = new NotificationJournal(directory.toString(), DataSize.ofMegabytes(4), 1000, 10_000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_APPENDS; i++) {
+            journal.append(aRequest(i));
+        }
+        double single = SINGLE_APPENDS / ((System.nanoTime() - start) / 1e9);
+
+        ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        List<CompletableFuture<Void>> appends = new ArrayList<>(CONCURRENT_APPENDS);
+        start = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_APPENDS; i++) {
+            NotificationRequest request = aRequest(i);
+            appends.add(CompletableFuture.runAsync(() -> {
+                try {
+                    journal.append(request);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, callers));
+        }
+        CompletableFuture.allOf(appends.toArray(CompletableFuture[]::new)).join();
+        double concurrent = CONCURRENT_APPENDS / ((System.nanoTime() - start) / 1e9);
+        callers.shutdown();
+        journal.close();
+
+        // recovery - reopening counts what is left, then the replayer reads it in batches
+        start = System.nanoTime();
+        NotificationJournal reopened = new NotificationJournal(directory.toString(), DataSize.ofMegabytes(4), 1000, 10_000);
+        long openMillis = (System.nanoTime() - start) / 1_000_000;
+        int read = 0;
+        JournalPosition position = reopened.getCheckpoint();
+        List<JournalEntry> entries;
+        while (!(entries = reopened.read(position, 100)).isEmpty()) {
+            read += entries.size();
+            position = entries.get(entries.size() - 1).next();
+        }
+        long recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        reopened.close();
+
+        System.out.printf("1 thread:   %.0f appends/s (one fsync each)%n", single);
+        System.out.printf("%d threads: %.0f appends/s (group commit)%n", THREADS, concurrent);
+        System.out.printf("reopen %d requests: %d ms, reopen and read back: %d ms%n", read, openMillis, recoveryMillis);
+
+        assertEquals(SINGLE_APPENDS + CONCURRENT_APPENDS, read);
+        assertTrue(concurrent > single);
+    }
+
+    private static NotificationRequest aRequest(int i) {
+
+        return NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment " + i)
+                .body("Your payment of 10.00 EUR was processed.")
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package app.spool;
+
+import app.model.NotificationPriority;
+import app.web.dto.NotificationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationJournalUTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void givenAppendedRequests_whenRead_thenReturnThemInOrderWithAllFields() throws Exception {
+
+        // Given
+        NotificationJournal journal = journal(DataSize.ofMegabytes(1));
+        LocalDateTime sendAt = LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000);
+        NotificationRequest first = aRequest("first");
+        first.setSendAt(sendAt);
+        first.setPriority(NotificationPriority.HIGH);
+        journal.append(first);
+        journal.append(aRequest("second"));
+
+        // When
+        List<JournalEntry> entries = journal.read(journal.getCheckpoint(), 10);
+
+        // Then
+        assertEquals(List.of("first", "second"), entries.stream().map(entry -> entry.request().getSubject()).toList());
+        assertEquals(first, entries.get(0).request());
+        assertEquals(sendAt, entries.get(0).request().getSendAt());
+        assertNull(entries.get(1).request().getPriority());
+        assertEquals(2, journal.getPending());
+        journal.close();
+    }
+
+    @Test
+    void givenSmallSegments_whenCommitted_thenDeleteReplayedSegmentsAndKeepTheRest() throws Exception {
+
+        // Given - every record fills a segment on its own
+        NotificationJournal journal = journal(DataSize.ofBytes(64));
+        for (int i = 0; i < 5; i++) {
+            journal.append(aRequest(String.valueOf(i)));
+        }
+        assertEquals(5, segmentCount());
+
+        // When
+        List<JournalEntry> entries = journal.read(journal.getCheckpoint(), 3);
+        journal.commit(entries.get(2).next(), 3);
+
+        // Then
+        assertEquals(2, journal.getPending());
+        assertEquals(List.of("3", "4"), journal.read(journal.getCheckpoint(), 10).stream().map(entry -> entry.request().getSubject()).toList());
+        assertTrue(segmentCount() <= 3);
+        journal.close();
+    }
+
+    @Test
+    void givenRestart_whenOpened_thenContinueFromTheCheckpoint() throws Exception {
+
+        // Given
+        NotificationJournal journal = journal(DataSize.ofMegabytes(1));
+        journal.append(aRequest("replayed"));
+        journal.append(aRequest("waiting"));
+        journal.commit(journal.read(journal.getCheckpoint(), 1).get(0).next(), 1);
+        journal.close();
+
+        // When
+        NotificationJournal reopened = journal(DataSize.ofMegabytes(1));
+        reopened.append(aRequest("after restart"));
+
+        // Then
+        assertEquals(2, reopened.getPending());
+        assertEquals(List.of("waiting", "after restart"), reopened.read(reopened.getCheckpoint(), 10).stream().map(entry -> entry.request().getSubject()).toList());
+        reopened.close();
+    }
+
+    @Test
+    void givenTornRecordAtTheEnd_whenOpened_thenSkipItAndKeepEverythingBefore() throws Exception {
+
+        // Given - a crash in the middle of writing the last record
+        NotificationJournal journal = journal(DataSize.ofMegabytes(1));
+        journal.append(aRequest("complete"));
+        journal.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+        byte[] torn = NotificationJournal.encode(aRequest("torn"), LocalDateTime.now());
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(torn, 0, torn.length / 2));
+        }
+
+        // When
+        NotificationJournal reopened = journal(DataSize.ofMegabytes(1));
+
+        // Then
+        assertEquals(1, reopened.getPending());
+        assertEquals(List.of("complete"), reopened.read(reopened.getCheckpoint(), 10).stream().map(entry -> entry.request().getSubject()).toList());
+        reopened.close();
+    }
+
+    private NotificationJournal journal(DataSize segmentSize) throws IOException {
+        return new NotificationJournal(directory.toString(), segmentSize, 100, 1000);
+    }
+
+    private long segmentCount() throws IOException {
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).count();
+        }
+    }
+
+    private static NotificationRequest aRequest(String subject) {
+
+        return NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject(subject)
+                .body("body of email")
+                .build();
+    }
+}
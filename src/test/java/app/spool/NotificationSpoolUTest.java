@@ -0,0 +1,147 @@
+package app.spool;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.service.NotificationDispatcher;
+import app.service.NotificationService;
+import app.web.dto.NotificationRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationSpoolUTest {
+
+    @TempDir
+    private Path directory;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    private NotificationJournal journal;
+    private NotificationSpool spool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        journal = new NotificationJournal(directory.toString(), DataSize.ofMegabytes(1), 100, 1000);
+        spool = new NotificationSpool(journal, notificationService, notificationDispatcher, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    void givenConnectionFailures_whenClassified_thenOnlyThoseAreOutages() {
+
+        assertTrue(NotificationSpool.isOutage(new CannotCreateTransactionException("Could not open JPA EntityManager")));
+        assertTrue(NotificationSpool.isOutage(new IllegalStateException("pool", new SQLNonTransientConnectionException("Connection refused"))));
+        assertFalse(NotificationSpool.isOutage(new DataIntegrityViolationException("Duplicate entry")));
+    }
+
+    @Test
+    void givenSpooledRequests_whenReplay_thenStoreAndDispatchInOrderAndLeaveDegradedMode() {
+
+        // Given - three requests, replayed in batches of two
+        spool.spool(aRequest("1"));
+        spool.spool(aRequest("2"));
+        spool.spool(aRequest("3"));
+        assertTrue(spool.isDegraded());
+        when(notificationService.queueNotification(any())).thenAnswer(invocation -> aQueuedNotification());
+
+        // When
+        spool.replay();
+
+        // Then
+        ArgumentCaptor<NotificationRequest> stored = ArgumentCaptor.forClass(NotificationRequest.class);
+        verify(notificationService, times(3)).queueNotification(stored.capture());
+        assertEquals(List.of("1", "2", "3"), stored.getAllValues().stream().map(NotificationRequest::getSubject).toList());
+        verify(notificationDispatcher, times(3)).dispatch(any(UUID.class), any());
+        assertEquals(0, journal.getPending());
+        assertFalse(spool.isDegraded());
+    }
+
+    @Test
+    void givenDatabaseDownAgain_whenReplay_thenKeepWhatWasStoredAndRetryTheRestLater() {
+
+        // Given
+        spool.spool(aRequest("1"));
+        spool.spool(aRequest("2"));
+        when(notificationService.queueNotification(any()))
+                .thenAnswer(invocation -> aQueuedNotification())
+                .thenThrow(new CannotCreateTransactionException("Connection refused"));
+
+        // When
+        spool.replay();
+
+        // Then - the first request is committed, the second waits
+        assertEquals(1, journal.getPending());
+        assertTrue(spool.isDegraded());
+
+        // When - the database is back
+        reset(notificationService);
+        when(notificationService.queueNotification(any())).thenAnswer(invocation -> aQueuedNotification());
+        spool.replay();
+
+        // Then
+        ArgumentCaptor<NotificationRequest> stored = ArgumentCaptor.forClass(NotificationRequest.class);
+        verify(notificationService).queueNotification(stored.capture());
+        assertEquals("2", stored.getValue().getSubject());
+        assertEquals(0, journal.getPending());
+    }
+
+    @Test
+    void givenUserWithoutPreference_whenReplay_thenDropTheRequestAndContinue() {
+
+        // Given
+        spool.spool(aRequest("unknown user"));
+        spool.spool(aRequest("known user"));
+        when(notificationService.queueNotification(any()))
+                .thenThrow(new NullPointerException("Notification preference was not found."))
+                .thenAnswer(invocation -> aQueuedNotification());
+
+        // When
+        spool.replay();
+
+        // Then
+        verify(notificationDispatcher, times(1)).dispatch(any(UUID.class), any());
+        assertEquals(0, journal.getPending());
+    }
+
+    private static Notification aQueuedNotification() {
+
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .status(NotificationStatus.QUEUED)
+                .build();
+    }
+
+    private static NotificationRequest aRequest(String subject) {
+
+        return NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject(subject)
+                .body("body of email")
+                .build();
+    }
+}
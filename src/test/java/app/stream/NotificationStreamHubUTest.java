@@ -0,0 +1,178 @@
+package app.stream;
+
+import app.exception.TooManyRequestsException;
+import app.model.NotificationStatus;
+import app.web.dto.NotificationResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationStreamHubUTest {
+
+    private final CountDownLatch slowClient = new CountDownLatch(1);
+    private NotificationStreamHub hub;
+
+    @AfterEach
+    void tearDown() {
+
+        slowClient.countDown();
+        hub.shutdown();
+    }
+
+    @Test
+    void givenSubscribers_whenNotificationStored_thenPushOnlyToItsUser() throws InterruptedException {
+
+        // Given
+        hub = new NotificationStreamHub(4, 100, 5, Duration.ofMinutes(1), 2, 8, Duration.ofSeconds(5));
+        UUID userId = UUID.randomUUID();
+        RecordingEmitter subscriber = new RecordingEmitter(null, 2);
+        RecordingEmitter otherUser = new RecordingEmitter(null, 1);
+        hub.subscribe(userId, subscriber);
+        hub.subscribe(UUID.randomUUID(), otherUser);
+
+        // When
+        hub.onNotificationStored(anEvent(userId));
+        hub.onNotificationStored(anEvent(userId));
+
+        // Then
+        assertTrue(subscriber.received.await(5, TimeUnit.SECONDS));
+        assertEquals(2, subscriber.events.size());
+        assertTrue(otherUser.events.isEmpty());
+    }
+
+    @Test
+    void givenSlowSubscriber_whenBufferOverflows_thenCloseItAndKeepServingTheOthers() throws InterruptedException {
+
+        // Given - the slow client blocks its first send, so its buffer of 4 fills up
+        hub = new NotificationStreamHub(4, 100, 5, Duration.ofMinutes(1), 2, 8, Duration.ofSeconds(5));
+        UUID userId = UUID.randomUUID();
+        RecordingEmitter slow = new RecordingEmitter(slowClient, 1);
+        RecordingEmitter fast = new RecordingEmitter(null, 10);
+        hub.subscribe(userId, slow);
+        hub.subscribe(userId, fast);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            hub.onNotificationStored(anEvent(userId));
+            // lets the fast client keep up with its own small buffer
+            Thread.sleep(5);
+        }
+
+        // Then
+        assertTrue(fast.received.await(5, TimeUnit.SECONDS));
+        assertEquals(10, fast.events.size());
+        assertTrue(slow.completed);
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void givenWriteBlockedLongerThanSendTimeout_whenCheckStuck_thenCloseItAndKeepServingTheOthers() throws InterruptedException {
+
+        // Given - one sender thread, held by a client that stopped reading
+        hub = new NotificationStreamHub(4, 100, 5, Duration.ofMinutes(1), 1, 8, Duration.ofMillis(50));
+        RecordingEmitter stuck = new RecordingEmitter(slowClient, 1);
+        RecordingEmitter other = new RecordingEmitter(null, 1);
+        UUID stuckUser = UUID.randomUUID();
+        UUID otherUser = UUID.randomUUID();
+        hub.subscribe(stuckUser, stuck);
+        hub.subscribe(otherUser, other);
+        hub.onNotificationStored(anEvent(stuckUser));
+        Thread.sleep(100);
+
+        // When
+        hub.onNotificationStored(anEvent(otherUser));
+        hub.evictStuckSubscribers();
+
+        // Then - the buffer of the stuck client never filled up
+        assertTrue(other.received.await(5, TimeUnit.SECONDS));
+        assertTrue(stuck.completed);
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void givenHubFull_whenSubscribe_thenReject() {
+
+        // Given
+        hub = new NotificationStreamHub(4, 1, 5, Duration.ofMinutes(1), 1, 8, Duration.ofSeconds(5));
+        hub.subscribe(UUID.randomUUID(), new RecordingEmitter(null, 1));
+
+        // When & Then
+        assertThrows(TooManyRequestsException.class, () -> hub.subscribe(UUID.randomUUID(), new RecordingEmitter(null, 1)));
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void givenUserAtStreamLimit_whenSubscribeAgain_thenCloseAnEarlierStream() {
+
+        // Given
+        hub = new NotificationStreamHub(4, 100, 1, Duration.ofMinutes(1), 1, 8, Duration.ofSeconds(5));
+        UUID userId = UUID.randomUUID();
+        RecordingEmitter first = new RecordingEmitter(null, 1);
+        hub.subscribe(userId, first);
+
+        // When
+        hub.subscribe(userId, new RecordingEmitter(null, 1));
+
+        // Then
+        assertTrue(first.completed);
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    private static NotificationStoredEvent anEvent(UUID userId) {
+
+        return new NotificationStoredEvent(userId, NotificationResponse.builder()
+                .id(UUID.randomUUID())
+                .subject("Payment processed")
+                .status(NotificationStatus.SUCCEEDED)
+                .build());
+    }
+
+    // Stands in for the servlet response; a gate makes it block like a client that stopped reading.
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch gate;
+        private final CountDownLatch received;
+        private final List<SseEventBuilder> events = new CopyOnWriteArrayList<>();
+        private volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch gate, int expectedEvents) {
+            this.gate = gate;
+            this.received = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(builder);
+            received.countDown();
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable failure) {
+            completed = true;
+            super.completeWithError(failure);
+        }
+    }
+}
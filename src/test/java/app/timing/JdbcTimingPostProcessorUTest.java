@@ -0,0 +1,65 @@
+package app.timing;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcTimingPostProcessorUTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.clear();
+    }
+
+    @Test
+    void givenTimedRequest_whenJdbcTemplateStatementsAndCommit_thenCountThemAsDb() {
+
+        // Given
+        DataSource dataSource = (DataSource) new JdbcTimingPostProcessor().postProcessAfterInitialization(anH2DataSource(), "dataSource");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE counter (id INT PRIMARY KEY, hits INT)");
+        RequestTiming timing = RequestTiming.start();
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO counter VALUES (1, 0)");
+            jdbcTemplate.update("UPDATE counter SET hits = hits + 1 WHERE id = 1");
+        });
+        int hits = jdbcTemplate.queryForObject("SELECT hits FROM counter WHERE id = 1", Integer.class);
+
+        // Then - two connections taken, three statements and the commit
+        assertEquals(1, hits);
+        assertEquals(6, timing.getCount(RequestTiming.Stage.DB));
+        assertTrue(timing.getNanos(RequestTiming.Stage.DB) > 0);
+    }
+
+    @Test
+    void givenStageAlreadyRunning_whenStatement_thenNotCountedAgain() {
+
+        // Given
+        DataSource dataSource = (DataSource) new JdbcTimingPostProcessor().postProcessAfterInitialization(anH2DataSource(), "dataSource");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        RequestTiming timing = RequestTiming.start();
+
+        // When - as inside a repository call
+        RequestTiming.time(RequestTiming.Stage.DB, () -> jdbcTemplate.queryForObject("SELECT 1", Integer.class));
+
+        // Then
+        assertEquals(1, timing.getCount(RequestTiming.Stage.DB));
+    }
+
+    private static DataSource anH2DataSource() {
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:jdbctiming;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
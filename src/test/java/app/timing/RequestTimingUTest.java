@@ -0,0 +1,64 @@
+package app.timing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestTimingUTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.clear();
+    }
+
+    @Test
+    void givenNoTimedRequest_whenTime_thenOnlyRunTheWork() {
+
+        assertEquals("done", RequestTiming.time(RequestTiming.Stage.DB, () -> "done"));
+        assertNull(RequestTiming.current());
+    }
+
+    @Test
+    void givenNestedStages_whenTimed_thenCountOnlyTheOuterOne() {
+
+        // Given
+        RequestTiming timing = RequestTiming.start();
+
+        // When - a repository call made while waiting for the channel
+        RequestTiming.time(RequestTiming.Stage.MAIL, () -> RequestTiming.time(RequestTiming.Stage.DB, () -> sleep(20)));
+        RequestTiming.time(RequestTiming.Stage.DB, () -> sleep(5));
+        RequestTiming.time(RequestTiming.Stage.DB, () -> sleep(5));
+
+        // Then
+        assertEquals(1, timing.getCount(RequestTiming.Stage.MAIL));
+        assertEquals(2, timing.getCount(RequestTiming.Stage.DB));
+        assertTrue(timing.getNanos(RequestTiming.Stage.MAIL) >= 20_000_000);
+        assertTrue(timing.getNanos(RequestTiming.Stage.DB) < timing.getNanos(RequestTiming.Stage.MAIL));
+    }
+
+    @Test
+    void givenTimedStages_whenToHeader_thenListTheEnteredStagesAndTheTotal() {
+
+        // Given
+        RequestTiming timing = RequestTiming.start();
+        RequestTiming.time(RequestTiming.Stage.DB, () -> null);
+        RequestTiming.time(RequestTiming.Stage.DB, () -> null);
+
+        // When
+        String header = timing.toHeader();
+
+        // Then - no mail or json stage was entered
+        assertTrue(header.matches("db;dur=\\d+\\.\\d;desc=\"2 calls\", total;dur=\\d+\\.\\d"), header);
+    }
+
+    private static Object sleep(long millis) {
+
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,108 @@
+package app.timing;
+
+import app.service.NotificationService;
+import app.web.dto.NotificationRequest;
+import app.web.dto.NotificationTypeRequest;
+import app.web.dto.UpsertNotificationPreference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mail.MailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "notification.server-timing.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:servertiming;MODE=MYSQL"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ServerTimingITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void sendNotification_reportsRepositoryMailAndSerializationTime() throws Exception {
+
+        // Given
+        UUID userId = UUID.randomUUID();
+        notificationService.upsertPreference(UpsertNotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationTypeRequest.EMAIL)
+                .notificationEnabled(true)
+                .contactInfo("user@example.com")
+                .build());
+        NotificationRequest request = NotificationRequest.builder()
+                .userId(userId)
+                .subject("Payment")
+                .body("Your payment was processed.")
+                .build();
+
+        // When & Then - the preference lookup and the two saves are repository calls
+        mockMvc.perform(post("/api/v1/notifications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.subject").value("Payment"))
+                .andExpect(header().string(ServerTimingFilter.HEADER,
+                        matchesPattern("db;dur=\\d+\\.\\d;desc=\"\\d+ calls\", mail;dur=\\d+\\.\\d, json;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d")));
+    }
+
+    @Test
+    void streamNotifications_withoutEventStreamAccept_isNotBufferedOrTimed() throws Exception {
+
+        // Given - a client that sends no Accept header
+        UUID userId = UUID.randomUUID();
+        notificationService.upsertPreference(UpsertNotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationTypeRequest.EMAIL)
+                .notificationEnabled(true)
+                .contactInfo("user@example.com")
+                .build());
+        MvcResult stream = mockMvc.perform(get("/api/v1/notifications/stream").param("userId", userId.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When
+        notificationService.sendNotification(NotificationRequest.builder()
+                .userId(userId)
+                .subject("Payment")
+                .body("Your payment was processed.")
+                .build());
+
+        // Then - the event reaches the client while the stream is still open
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!stream.getResponse().getContentAsString().contains("Payment") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(stream.getResponse().getContentAsString().contains("Payment"));
+        assertNull(stream.getResponse().getHeader(ServerTimingFilter.HEADER));
+    }
+}
@@ -0,0 +1,130 @@
+package app.web;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.repository.NotificationRepository;
+import app.service.BroadcastJob;
+import app.service.BroadcastService;
+import app.service.NotificationService;
+import app.service.NotificationStatusWriter;
+import app.service.SuppressionService;
+import app.web.dto.BroadcastRequest;
+import app.web.dto.NotificationTypeRequest;
+import app.web.dto.UpsertNotificationPreference;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "notification.broadcast.batch-size=2",
+        // the dispatcher rejects most of a batch, the broadcast waits for room instead of giving up on them
+        "notification.dispatch.pool-size=1",
+        "notification.dispatch.queue-capacity=1",
+        "spring.datasource.url=jdbc:h2:mem:broadcast;MODE=MYSQL"
+})
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class BroadcastITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private BroadcastService broadcastService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationStatusWriter statusWriter;
+
+    @Autowired
+    private SuppressionService suppressionService;
+
+    @Test
+    void broadcastToEnabledUsers_happyPath() throws InterruptedException {
+
+        // Given - 5 enabled users span several keyset batches, the disabled one is skipped
+        for (int i = 0; i < 5; i++) {
+            notificationService.upsertPreference(aPreference(true));
+        }
+        notificationService.upsertPreference(aPreference(false));
+
+        // When
+        BroadcastJob job = broadcastService.startBroadcast(BroadcastRequest.builder()
+                .subject("Maintenance")
+                .body("We will be down tonight.")
+                .build());
+
+        for (int i = 0; i < 100 && job.getState() == BroadcastJob.State.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+
+        // Then
+        assertEquals(BroadcastJob.State.COMPLETED, job.getState());
+        assertEquals(5, job.getQueued().get());
+        assertEquals(5, job.getSucceeded().get());
+
+        statusWriter.flush();
+        List<Notification> notifications = notificationRepository.findAll();
+        assertThat(notifications).hasSize(5);
+        assertThat(notifications).allMatch(notification -> notification.getStatus() == NotificationStatus.SUCCEEDED);
+        verify(mailSender, times(5)).send(any(SimpleMailMessage.class));
+    }
+
+    @Test
+    void broadcastToSuppressedRecipient_countedAsSuppressedNotFailed() throws InterruptedException {
+
+        // Given
+        notificationService.upsertPreference(aPreference(true));
+        notificationService.upsertPreference(aPreference(true, "bounced@email.com"));
+        suppressionService.suppress("bounced@email.com", "550 5.1.1 User unknown");
+
+        // When
+        BroadcastJob job = broadcastService.startBroadcast(BroadcastRequest.builder()
+                .subject("Maintenance")
+                .body("We will be down tonight.")
+                .build());
+
+        for (int i = 0; i < 100 && job.getState() == BroadcastJob.State.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+
+        // Then
+        assertEquals(BroadcastJob.State.COMPLETED, job.getState());
+        assertEquals(1, job.getSucceeded().get());
+        assertEquals(1, job.getSuppressed().get());
+        assertEquals(0, job.getFailed().get());
+    }
+
+    private UpsertNotificationPreference aPreference(boolean enabled) {
+        return aPreference(enabled, "test@email.com");
+    }
+
+    private UpsertNotificationPreference aPreference(boolean enabled, String contactInfo) {
+
+        return UpsertNotificationPreference.builder()
+                .userId(UUID.randomUUID())
+                .type(NotificationTypeRequest.EMAIL)
+                .notificationEnabled(enabled)
+                .contactInfo(contactInfo)
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package app.web;
+
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import app.web.dto.NotificationResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares JSON and CBOR for a typical history page. Not a JMH harness - warm-up plus a timed loop is enough to see
+// the relative cost; the printed numbers are the benchmark output.
+public class CborPayloadBenchmarkTest {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int WARM_UP_ROUNDS = 1_000;
+    private static final int MEASURED_ROUNDS = 1_000;
+    private static final TypeReference<List<NotificationResponse>> PAGE_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+    @Test
+    void historyPage_cborIsSmallerAndRoundTripsLikeJson() throws Exception {
+
+        List<NotificationResponse> page = aHistoryPage();
+
+        Result json = measure("JSON", jsonMapper, page);
+        Result cbor = measure("CBOR", cborMapper, page);
+
+        System.out.printf("History page of %d entries%n", PAGE_SIZE);
+        System.out.println(json);
+        System.out.println(cbor);
+        System.out.printf("CBOR size is %.1f%% of JSON%n", 100.0 * cbor.bytes / json.bytes);
+
+        assertTrue(cbor.bytes < json.bytes);
+        assertEquals(page, cborMapper.readValue(cborMapper.writeValueAsBytes(page), PAGE_TYPE));
+    }
+
+    private Result measure(String format, ObjectMapper mapper, List<NotificationResponse> page) throws Exception {
+
+        byte[] encoded = mapper.writeValueAsBytes(page);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(page), PAGE_TYPE);
+        }
+
+        long encodeStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            mapper.writeValueAsBytes(page);
+        }
+        long encodeNanos = (System.nanoTime() - encodeStart) / MEASURED_ROUNDS;
+
+        long decodeStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            mapper.readValue(encoded, PAGE_TYPE);
+        }
+        long decodeNanos = (System.nanoTime() - decodeStart) / MEASURED_ROUNDS;
+
+        return new Result(format, encoded.length, encodeNanos, decodeNanos);
+    }
+
+    private List<NotificationResponse> aHistoryPage() {
+
+        List<NotificationResponse> page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(NotificationResponse.builder()
+                    .subject("Payment " + UUID.randomUUID() + " was processed")
+                    .createdOn(LocalDateTime.now().minusMinutes(i))
+                    .status(i % 10 == 0 ? NotificationStatus.FAILED : NotificationStatus.SUCCEEDED)
+                    .type(NotificationType.EMAIL)
+                    .build());
+        }
+        return page;
+    }
+
+    private record Result(String format, int bytes, long encodeNanos, long decodeNanos) {
+
+        @Override
+        public String toString() {
+            return "%s: %d bytes, encode %d us, decode %d us".formatted(format, bytes, encodeNanos / 1_000, decodeNanos / 1_000);
+        }
+    }
+}
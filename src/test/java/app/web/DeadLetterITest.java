@@ -0,0 +1,156 @@
+package app.web;
+
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.model.NotificationType;
+import app.repository.NotificationRepository;
+import app.service.DeadLetterService;
+import app.service.NotificationDispatcher;
+import app.service.NotificationService;
+import app.service.NotificationStatusWriter;
+import app.web.dto.DeadLetterReplayRequest;
+import app.web.dto.NotificationTypeRequest;
+import app.web.dto.UpsertNotificationPreference;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "notification.dead-letter.batch-size=2",
+        "notification.retention.months=2",
+        "spring.datasource.url=jdbc:h2:mem:deadletters;MODE=MYSQL"
+})
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class DeadLetterITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationStatusWriter statusWriter;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Test
+    void replayDeadLettersFilteredByDomainAndErrorClass_happyPath() {
+
+        // Given - three matching dead letters span two batches, the others differ in domain, error class or status
+        UUID exampleUser = aUser("user@example.com");
+        UUID otherUser = aUser("user@other.com");
+
+        Notification first = aNotification(exampleUser, NotificationStatus.DEAD, "MailSendException");
+        Notification second = aNotification(exampleUser, NotificationStatus.DEAD, "MailSendException");
+        Notification third = aNotification(exampleUser, NotificationStatus.DEAD, "MailSendException");
+        Notification otherClass = aNotification(exampleUser, NotificationStatus.DEAD, "MailParseException");
+        Notification otherDomain = aNotification(otherUser, NotificationStatus.DEAD, "MailSendException");
+        Notification failed = aNotification(exampleUser, NotificationStatus.FAILED, "MailSendException");
+
+        // When
+        long replayed = deadLetterService.replay(DeadLetterReplayRequest.builder()
+                .domain("Example.com")
+                .errorClass("MailSendException")
+                .from(LocalDateTime.now().minusDays(1))
+                .build());
+
+        // Then
+        assertEquals(3, replayed);
+        verify(mailSender, timeout(5_000).times(3)).send(any(SimpleMailMessage.class));
+
+        statusWriter.flush();
+        assertEquals(NotificationStatus.SUCCEEDED, statusOf(first));
+        assertEquals(NotificationStatus.SUCCEEDED, statusOf(second));
+        assertEquals(NotificationStatus.SUCCEEDED, statusOf(third));
+        assertEquals(NotificationStatus.DEAD, statusOf(otherClass));
+        assertEquals(NotificationStatus.DEAD, statusOf(otherDomain));
+        assertEquals(NotificationStatus.FAILED, statusOf(failed));
+    }
+
+    @Test
+    void replayDeadLettersWithoutFrom_skipsRowsPastRetention() throws InterruptedException {
+
+        // Given - a row older than retention that maintenance has not dropped yet
+        UUID userId = aUser("user@example.com");
+        Notification recent = aNotification(userId, NotificationStatus.DEAD, "MailSendException");
+        Notification expired = aNotification(userId, NotificationStatus.DEAD, "MailSendException", LocalDateTime.now().minusYears(5));
+
+        // When
+        long replayed = deadLetterService.replay(DeadLetterReplayRequest.builder().build());
+
+        // Then
+        assertEquals(1, replayed);
+        verify(mailSender, timeout(5_000).times(1)).send(any(SimpleMailMessage.class));
+
+        // the status is written after the send returns
+        awaitDispatched();
+        statusWriter.flush();
+        assertEquals(NotificationStatus.SUCCEEDED, statusOf(recent));
+        assertEquals(NotificationStatus.DEAD, statusOf(expired));
+    }
+
+    private void awaitDispatched() throws InterruptedException {
+
+        for (int i = 0; i < 100 && notificationDispatcher.getInFlight() > 0; i++) {
+            Thread.sleep(50);
+        }
+    }
+
+    private UUID aUser(String contactInfo) {
+
+        UUID userId = UUID.randomUUID();
+        notificationService.upsertPreference(UpsertNotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationTypeRequest.EMAIL)
+                .contactInfo(contactInfo)
+                .notificationEnabled(true)
+                .build());
+        return userId;
+    }
+
+    private Notification aNotification(UUID userId, NotificationStatus status, String failureClass) {
+        return aNotification(userId, status, failureClass, LocalDateTime.now());
+    }
+
+    private Notification aNotification(UUID userId, NotificationStatus status, String failureClass, LocalDateTime createdOn) {
+
+        return notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Payment processed")
+                .body("Your payment was processed.")
+                .createdOn(createdOn)
+                .type(NotificationType.EMAIL)
+                .status(status)
+                .attempts(5)
+                .failureClass(failureClass)
+                .failureReason("421 Service not available")
+                .build());
+    }
+
+    private NotificationStatus statusOf(Notification notification) {
+        return notificationRepository.findById(notification.getId()).orElseThrow().getStatus();
+    }
+}
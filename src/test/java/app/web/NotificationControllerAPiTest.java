@@ -1,34 +1,59 @@
 package app.web;
 
+import app.exception.NotificationNotFoundException;
+import app.exception.NotificationStoredException;
 import app.model.NotificationPreference;
 import app.model.NotificationType;
+import app.model.Notification;
+import app.model.NotificationStatus;
+import app.service.AdmissionLimiter;
+import app.service.AsyncNotificationService;
+import app.service.NotificationDispatcher;
 import app.service.NotificationService;
+import app.service.RecentHistoryCache;
+import app.service.UserVersions;
+import app.spool.NotificationSpool;
+import app.stream.NotificationStreamHub;
 import app.web.dto.NotificationRequest;
+import app.web.dto.NotificationResponse;
 import app.web.dto.NotificationTypeRequest;
 import app.web.dto.UpsertNotificationPreference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static app.web.TestBuilder.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(NotificationController.class)
+@Import(AdmissionLimiter.class)
 public class NotificationControllerAPiTest {
 
     @MockitoBean
@@ -37,6 +62,21 @@ public class NotificationControllerAPiTest {
     @MockitoBean
     private JavaMailSender mailSender;
 
+    @MockitoBean
+    private NotificationDispatcher notificationDispatcher;
+
+    @MockitoBean
+    private AsyncNotificationService asyncNotificationService;
+
+    @MockitoBean
+    private NotificationStreamHub notificationStreamHub;
+
+    @MockitoBean
+    private NotificationSpool notificationSpool;
+
+    @MockitoBean
+    private UserVersions userVersions;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -86,6 +126,27 @@ public class NotificationControllerAPiTest {
                 .andExpect(jsonPath("contactInfo").isNotEmpty());
     }
 
+    @Test
+    void getRequestNotificationPreferenceWithMatchingETag_returns304WithoutReadingPreference() throws Exception {
+
+        // 01. Build Request
+        UUID userId = UUID.randomUUID();
+        when(userVersions.preferenceETag(userId)).thenReturn("\"p-1\"");
+        when(notificationService.getPreferenceByUserId(userId)).thenReturn(aRandomNotificationPreference());
+        String eTag = mockMvc.perform(get("/api/v1/notifications/preferences").param("userId", userId.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // 2. Send Request
+        mockMvc.perform(get("/api/v1/notifications/preferences")
+                        .param("userId", userId.toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        verify(notificationService, times(1)).getPreferenceByUserId(userId);
+    }
+
     // 03. sendNotification
     @Test
     void postWithBodyToCreateNotification_returns201AndCorrectDtoStructure() throws Exception {
@@ -111,6 +172,209 @@ public class NotificationControllerAPiTest {
                 .andExpect(jsonPath("type").isNotEmpty());
     }
 
+    @Test
+    void postNotificationWithCallerId_passesTheNormalisedCallerToTheService() throws Exception {
+
+        // 01. Build Request
+        NotificationRequest requestDto = NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment")
+                .body("body of email")
+                .build();
+
+        when(notificationService.sendNotification(any())).thenReturn(aRandomNotification());
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications")
+                .header("X-Caller-Id", " Billing-Service ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto));
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isCreated());
+
+        ArgumentCaptor<NotificationRequest> sent = ArgumentCaptor.forClass(NotificationRequest.class);
+        verify(notificationService).sendNotification(sent.capture());
+        assertEquals("billing-service", sent.getValue().getCaller());
+    }
+
+    @Test
+    void postNotificationWhileBacklogIsFull_returns429WithRetryAfter() throws Exception {
+
+        // 01. Build Request
+        NotificationRequest requestDto = NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment")
+                .body("body of email")
+                .build();
+
+        when(notificationDispatcher.getQueueSize()).thenReturn(1_000_000);
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto));
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("status").value(429));
+
+        verify(notificationService, times(0)).sendNotification(any());
+    }
+
+    @Test
+    void postNotificationWhileDatabaseIsDown_returns202AndJournalsTheRequest() throws Exception {
+
+        // 01. Build Request
+        NotificationRequest requestDto = NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment")
+                .body("body of email")
+                .build();
+
+        Notification spooled = Notification.builder()
+                .userId(requestDto.getUserId())
+                .subject("Payment")
+                .status(NotificationStatus.QUEUED)
+                .createdOn(LocalDateTime.now())
+                .build();
+        when(notificationService.sendNotification(any())).thenThrow(new CannotCreateTransactionException("Connection refused"));
+        when(notificationSpool.spool(any())).thenReturn(spooled);
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto));
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().doesNotExist(HttpHeaders.LOCATION))
+                .andExpect(jsonPath("status").value("QUEUED"));
+
+        verify(notificationSpool, times(1)).spool(any());
+    }
+
+    @Test
+    void postNotificationWhileDatabaseFailsAfterTheRowWasStored_returns202WithLocationAndDoesNotJournal() throws Exception {
+
+        // 01. Build Request
+        NotificationRequest requestDto = NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment")
+                .body("body of email")
+                .build();
+
+        Notification sending = aRandomNotification();
+        sending.setStatus(NotificationStatus.SENDING);
+        when(notificationService.sendNotification(any())).thenThrow(new NotificationStoredException(sending, new CannotCreateTransactionException("Connection refused")));
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto));
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/v1/notifications/" + sending.getId()))
+                .andExpect(jsonPath("status").value("SENDING"));
+
+        verify(notificationSpool, never()).spool(any());
+    }
+
+    @Test
+    void postNotificationAsyncWhileBacklogIsFull_returns429WithRetryAfter() throws Exception {
+
+        // 01. Build Request
+        NotificationRequest requestDto = NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment")
+                .body("body of email")
+                .build();
+
+        when(notificationDispatcher.getQueueSize()).thenReturn(1_000_000);
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto));
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+        verify(asyncNotificationService, never()).acceptNotification(any());
+    }
+
+    @Test
+    void postNotificationAsync_returns202WithIdAndLocation() throws Exception {
+
+        // 01. Build Request
+        NotificationRequest requestDto = NotificationRequest.builder()
+                .userId(UUID.randomUUID())
+                .subject("Payment")
+                .body("body of email")
+                .build();
+
+        Notification queued = aRandomNotification();
+        queued.setStatus(NotificationStatus.QUEUED);
+        when(asyncNotificationService.acceptNotification(any())).thenReturn(queued);
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto));
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/v1/notifications/" + queued.getId()))
+                .andExpect(jsonPath("id").value(queued.getId().toString()))
+                .andExpect(jsonPath("status").value("QUEUED"));
+
+        verify(notificationService, times(0)).sendNotification(any());
+    }
+
+    @Test
+    void getNotificationById_happyPath() throws Exception {
+
+        // 01. Build Request
+        Notification notification = aRandomNotification();
+        when(notificationService.getNotification(notification.getId())).thenReturn(notification);
+        MockHttpServletRequestBuilder request = get("/api/v1/notifications/{id}", notification.getId());
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(notification.getId().toString()))
+                .andExpect(jsonPath("status").value("SUCCEEDED"));
+    }
+
+    @Test
+    void getNotificationByUnknownId_returns404() throws Exception {
+
+        // 01. Build Request
+        UUID notificationId = UUID.randomUUID();
+        when(notificationService.getNotification(notificationId)).thenThrow(new NotificationNotFoundException(notificationId));
+        MockHttpServletRequestBuilder request = get("/api/v1/notifications/{id}", notificationId);
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("status").value(404));
+    }
+
+    @Test
+    void getNotificationStream_startsEventStreamForUser() throws Exception {
+
+        // 01. Build Request
+        UUID userId = UUID.randomUUID();
+        when(notificationStreamHub.subscribe(userId)).thenReturn(new SseEmitter());
+        MockHttpServletRequestBuilder request = get("/api/v1/notifications/stream")
+                .param("userId", userId.toString())
+                .accept(MediaType.TEXT_EVENT_STREAM);
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+
+        verify(notificationStreamHub, times(1)).subscribe(userId);
+    }
+
     // 04. getNotificationHistory
     @Test
     void getNotificationHistory_happyPath() throws Exception {
@@ -128,6 +392,91 @@ public class NotificationControllerAPiTest {
                 .andExpect(jsonPath("$[0].type").isNotEmpty());
     }
 
+    @Test
+    void getNotificationHistoryAcceptingCbor_returnsCborBody() throws Exception {
+
+        // 01. Build Request
+        when(notificationService.getNotificationHistory(any())).thenReturn(aRandomListOfNotificationResponses());
+        MockHttpServletRequestBuilder request = get("/api/v1/notifications")
+                .param("userId", UUID.randomUUID().toString())
+                .accept(MediaType.APPLICATION_CBOR);
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+    }
+
+    @Test
+    void getNotificationHistoryAsJsonAndCbor_returnsDifferentETagsVaryingByAccept() throws Exception {
+
+        // 01. Build Request
+        UUID userId = UUID.randomUUID();
+        when(userVersions.historyETag(userId)).thenReturn("\"h-1-2026-01-01\"");
+        when(notificationService.getNotificationHistory(any())).thenReturn(aRandomListOfNotificationResponses());
+
+        // 2. Send Request
+        String jsonETag = mockMvc.perform(get("/api/v1/notifications").param("userId", userId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/v1/notifications")
+                        .param("userId", userId.toString())
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"h-1-2026-01-01-cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+    }
+
+    @Test
+    void getNotificationHistoryWithLimit_returnsRecentHistory() throws Exception {
+
+        // 01. Build Request
+        UUID userId = UUID.randomUUID();
+        when(notificationService.getRecentNotificationHistory(userId, 10)).thenReturn(List.of(NotificationResponse.builder()
+                .id(UUID.randomUUID())
+                .subject("Payment processed")
+                .createdOn(LocalDateTime.now())
+                .status(NotificationStatus.SUCCEEDED)
+                .type(NotificationType.EMAIL)
+                .build()));
+        MockHttpServletRequestBuilder request = get("/api/v1/notifications")
+                .param("userId", userId.toString())
+                .param("limit", "10");
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].subject").value("Payment processed"));
+        verify(notificationService, never()).getNotificationHistory(any());
+    }
+
+    @Test
+    void getNotificationHistoryWithLimitCached_answersConditionalGetWithoutReadingTheVersion() throws Exception {
+
+        // 01. Build Request
+        UUID userId = UUID.randomUUID();
+        when(notificationService.getCachedRecentHistory(userId, 10)).thenReturn(Optional.of(new RecentHistoryCache.Page(List.of(NotificationResponse.builder()
+                .id(UUID.randomUUID())
+                .subject("Payment processed")
+                .createdOn(LocalDateTime.now())
+                .status(NotificationStatus.SUCCEEDED)
+                .type(NotificationType.EMAIL)
+                .build()), "\"c-7-1\"")));
+        MockHttpServletRequestBuilder request = get("/api/v1/notifications")
+                .param("userId", userId.toString())
+                .param("limit", "10")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"c-7-1\"");
+
+        // 2. Send Request
+        mockMvc.perform(request)
+                .andExpect(status().isNotModified());
+        verify(userVersions, never()).historyETag(any());
+        verify(notificationService, never()).getRecentNotificationHistory(any(), anyInt());
+    }
+
     // 05. changeNotificationPreference
     @Test
     void changeNotificationPreference_shouldReturn200AndUpdatedPreference() throws Exception {